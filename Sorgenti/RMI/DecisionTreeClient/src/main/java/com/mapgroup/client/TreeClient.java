@@ -7,6 +7,10 @@ import java.io.File;
 import java.io.IOException;
 import java.rmi.Naming;
 import java.rmi.NotBoundException;
+import java.rmi.RemoteException;
+import java.rmi.ServerException;
+import java.rmi.UnmarshalException;
+import java.security.SecureRandom;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -162,6 +166,40 @@ public class TreeClient extends JApplet {
      * The remote interface exposed by the server
      */
     private IRemoteServer remoteServer;
+    /**
+     * Flag that indicates if the server accepts the typed requests: <code>false</code>
+     * if it is an older server, which knows only the generic requests
+     */
+    private boolean typedRequests = true;
+    /**
+     * Flag that indicates if the server satisfies a sequence of requests with a single call:
+     * <code>false</code> if it is an older server
+     */
+    private boolean batchRequests = true;
+    /**
+     * Flag that indicates if the server learns the trees in background: <code>false</code>
+     * if it is an older server, which learns them only inside the request
+     */
+    private boolean trainingJobs = true;
+    /**
+     * Flag that indicates if the server sends the snapshots of its tree: <code>false</code>
+     * if it is an older server, which makes the predictions itself
+     */
+    private boolean treeSnapshots = true;
+    /**
+     * The random id of the session of this client, sent with each request so that the
+     * server tells it apart from the other clients running on the same host
+     */
+    private final String sessionId = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+    /**
+     * The extensions of the files supported by the server, <code>null</code> until known
+     */
+    private ArrayList<String> supportedExtensions;
+    /**
+     * Flag that indicates if the tree snapshot has been received together with the
+     * current tree, so that the prediction can start without asking it again
+     */
+    private boolean snapshotReceived = false;
     /**
      * The table in which are contained the selected attributes for the prediction
      */
@@ -174,6 +212,10 @@ public class TreeClient extends JApplet {
      * Associative structure used in order to collect both the attributes and their values
      */
     private HashMap<String, String[]> attrValues;
+    /**
+     * Copy of the current tree of the server, used to make the predictions without asking them to the server
+     */
+    private TreeSnapshotTO treeSnapshot;
     /**
      * Graphical component which represents the panel in which there are all the component needed for the prediction session
      */
@@ -327,6 +369,171 @@ public class TreeClient extends JApplet {
         remoteServer = (IRemoteServer) Naming.lookup("//" + SERVER_HOST + ":" + SERVER_PORT + "/MultiServer");
     }
 
+    /**
+     * Asks the server to execute a command. The request is sent in its typed form when the
+     * arguments have one; if the server doesn't know the typed requests, the generic form is
+     * sent, now and for the following requests.
+     *
+     * @param command the command requested
+     * @param args    the arguments of the command
+     * @return the response of the server
+     * @throws Exception - if some errors occurred in the computation
+     */
+    private ServerResponse satisfyRequest(ServerCommand command, Object... args) throws Exception {
+        TypedRequest typedRequest = typedRequests ? TypedRequest.create(command, args) : null;
+
+        if (typedRequest != null) {
+            typedRequest.setSessionId(sessionId);
+            try {
+                return remoteServer.satisfyRequest(typedRequest);
+            } catch (RemoteException e) {
+                if (!isUnknownClass(e))
+                    throw e;
+                typedRequests = false;
+            }
+        }
+
+        return remoteServer.satisfyRequest(newGenericRequest(command, args));
+    }
+
+    /**
+     * Asks the server to execute a sequence of commands with a single call, if the
+     * server allows it, otherwise with a call for each command. Each command is an array
+     * whose first element is the {@link ServerCommand} followed by its arguments.
+     * <p/>
+     * The failure of a command doesn't stop the following ones: its response is an
+     * {@link ErrorResponse}, whose exception is thrown by {@link #getResult(ServerResponse)}.
+     *
+     * @param commands the commands requested, in the order of execution
+     * @return the responses of the server, in the same order of the commands
+     * @throws Exception - if the server couldn't receive the commands
+     */
+    private ServerResponse[] satisfyRequests(Object[]... commands) throws Exception {
+        if (batchRequests) {
+            List<ClientRequest> requests = new ArrayList<ClientRequest>(commands.length);
+            for (Object[] command : commands) {
+                Object[] args = Arrays.copyOfRange(command, 1, command.length);
+                TypedRequest typedRequest = typedRequests ? TypedRequest.create((ServerCommand) command[0], args) : null;
+                if (typedRequest != null)
+                    typedRequest.setSessionId(sessionId);
+                requests.add(typedRequest != null ? typedRequest : newGenericRequest((ServerCommand) command[0], args));
+            }
+
+            try {
+                List<ServerResponse> responses = remoteServer.satisfyRequests(requests);
+                return responses.toArray(new ServerResponse[responses.size()]);
+            } catch (ServerException e) {
+                // the server couldn't read the call: it is an older server
+                if (!(e.getCause() instanceof UnmarshalException))
+                    throw e;
+                if (isUnknownClass(e))
+                    typedRequests = false;
+                else
+                    batchRequests = false;
+                return satisfyRequests(commands);
+            }
+        }
+
+        ServerResponse[] responses = new ServerResponse[commands.length];
+        for (int i = 0; i < commands.length; i++) {
+            try {
+                responses[i] = satisfyRequest((ServerCommand) commands[i][0],
+                        Arrays.copyOfRange(commands[i], 1, commands[i].length));
+            } catch (Exception e) {
+                responses[i] = new ErrorResponse(e);
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the result of a command executed in a sequence.
+     *
+     * @param response the response of the server to the command
+     * @return the result contained in the response
+     * @throws Exception - the exception thrown by the command, if it failed
+     */
+    private static Object getResult(ServerResponse response) throws Exception {
+        if (response instanceof ErrorResponse)
+            throw ((ErrorResponse) response).getException();
+        return response.getAttribute(0);
+    }
+
+    /**
+     * Asks the server to learn a tree in background and shows the progress of the training
+     * until it is finished; if the server is an older one, the tree is learnt by a command
+     * which waits for it. In both cases the snapshot of the new tree is asked too.
+     *
+     * @param description   the description of the dataset, shown while waiting
+     * @param submitCommand the command which submits the training, followed by its arguments
+     * @param legacyCommand the command which learns the tree inside the request, followed by its arguments
+     * @return the string representation of the tree
+     * @throws Exception - if the tree couldn't be learnt
+     */
+    private String learnTree(String description, Object[] submitCommand, Object[] legacyCommand) throws Exception {
+        if (trainingJobs) {
+            Long jobId = null;
+            try {
+                jobId = (Long) getResult(satisfyRequest((ServerCommand) submitCommand[0],
+                        Arrays.copyOfRange(submitCommand, 1, submitCommand.length)));
+            } catch (ServerException e) {
+                // the server doesn't know the command: it is an older server
+                if (!(e.getCause() instanceof UnmarshalException))
+                    throw e;
+                trainingJobs = false;
+            }
+
+            if (jobId != null) {
+                final long id = jobId;
+                TrainingJobTO status = TrainingMonitor.await(description, new TrainingMonitor.StatusSource() {
+                    public TrainingJobTO getStatus(long wait) throws Exception {
+                        return (TrainingJobTO) getResult(satisfyRequest(ServerCommand.TRAINING_STATUS, id, wait));
+                    }
+                });
+                if (status.getState() == TrainingJobTO.State.FAILED)
+                    throw new Exception(status.getMessage());
+                receiveSnapshot(satisfyRequests(newSnapshotCommand())[0]);
+                return status.getTree();
+            }
+        }
+
+        ServerResponse[] responses = satisfyRequests(legacyCommand, newSnapshotCommand());
+        String tree = (String) getResult(responses[0]);
+        receiveSnapshot(responses[1]);
+        return tree;
+    }
+
+    /**
+     * Builds the generic form of a request, understood by every server, with the id of
+     * the session of this client.
+     *
+     * @param command the command requested
+     * @param args    the arguments of the command
+     * @return the request
+     */
+    private ClientRequest newGenericRequest(ServerCommand command, Object... args) {
+        Object[] values = new Object[args.length + 1];
+        values[0] = command;
+        System.arraycopy(args, 0, values, 1, args.length);
+        ClientRequest request = new ClientRequest(values);
+        request.setSessionId(sessionId);
+        return request;
+    }
+
+    /**
+     * Checks if an exception was caused by a class unknown to the server.
+     *
+     * @param e the exception thrown by the remote call
+     * @return <code>true</code> if a class wasn't found, <code>false</code> otherwise
+     */
+    private static boolean isUnknownClass(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ClassNotFoundException)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Initialize the GUI for the user.
      *
@@ -414,7 +621,7 @@ public class TreeClient extends JApplet {
         cpTreeInput.add(nameDataTxt);
         treeConstructionBt.setIcon(new ImageIcon(loadImage("/gui/plane.png")));
 
-        availableFileModel = new DefaultComboBoxModel<String>(getFileList());
+        availableFileModel = new DefaultComboBoxModel<String>(loadStartupData());
         availableFile = new JComboBox<String>(availableFileModel);
         availableFile.setVisible(false);
         updateFileList = new JButton("Update list");
@@ -775,8 +982,7 @@ public class TreeClient extends JApplet {
      * created a dataset in the server (if a .dat file was loaded then
      * it will not be possible to convert the dataset).
      * <p/>
-     * A request is made to the server to know which extensions are supported.
-     * The supported extensions may change during application life cycle.
+     * The supported extensions are those received from the server at startup.
      */
     private class FileConverter extends JDialog {
         /**
@@ -815,11 +1021,7 @@ public class TreeClient extends JApplet {
             validExtModel = new DefaultComboBoxModel<String>();
             try {
 
-                ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.SUPPORTED_EXTENSIONS));
-
-                @SuppressWarnings("unchecked")
-                ArrayList<String> elem = (ArrayList<String>) response.getAttribute(0);
-                for (String s : elem) {
+                for (String s : getSupportedExtensions()) {
                     validExtModel.addElement(s);
                 }
                 validExtModel.addElement("script");
@@ -894,8 +1096,8 @@ public class TreeClient extends JApplet {
                     String[] data = new String[2];
                     data[0] = currFileName;
                     data[1] = currExt;
-                    ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.CONVERT_DATASET,
-                            data));
+                    ServerResponse response = satisfyRequest(ServerCommand.CONVERT_DATASET,
+                            (Object) data);
 
                     String conversionPath = System.getProperty("user.home")
                             + File.separator + "ConvertedDataset";
@@ -966,10 +1168,10 @@ public class TreeClient extends JApplet {
         }
 
         try {
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.BUILD_TREE_FROM_DB, treeSrc + ".db"));
-
-
-            String inputVal = (String) response.getAttribute(0);
+            String inputVal = learnTree("the table " + treeSrc,
+                    new Object[]{ServerCommand.SUBMIT_DB_TRAINING, treeSrc + ".db"},
+                    new Object[]{ServerCommand.BUILD_TREE_FROM_DB, treeSrc + ".db"});
+            ServerResponse response;
             msgAreaTxt.setText(inputVal);
             sessionTracker.setTree(inputVal);
             startPredictionBt.setEnabled(true);
@@ -988,7 +1190,7 @@ public class TreeClient extends JApplet {
                             values[0]);
             if (returnVal == JOptionPane.YES_OPTION) {
                 try {
-                    response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.SERIALIZE_TREE, treeSrc + ".dat"));
+                    response = satisfyRequest(ServerCommand.SERIALIZE_TREE, treeSrc + ".dat");
                     JOptionPane.showMessageDialog(null, response.getAttribute(1),
                             "File saved",
                             JOptionPane.INFORMATION_MESSAGE);
@@ -1028,8 +1230,10 @@ public class TreeClient extends JApplet {
 
         try {
 
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.LOAD_SERIALIZED_TREE, availableFile.getSelectedItem()));
-            String responseMsg = (String) response.getAttribute(0);
+            ServerResponse[] responses = satisfyRequests(
+                    new Object[]{ServerCommand.LOAD_SERIALIZED_TREE, availableFile.getSelectedItem()}, newSnapshotCommand());
+            String responseMsg = (String) getResult(responses[0]);
+            receiveSnapshot(responses[1]);
             msgAreaTxt.setText(responseMsg);
             sessionTracker.setTree(responseMsg);
             startPredictionBt.setEnabled(true);
@@ -1089,10 +1293,12 @@ public class TreeClient extends JApplet {
             FileSender sender = new FileSender(treeSrc);
             fileContent  = sender.getTransferredFile();
             resultMsg = sender.getResultMessage();
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.UPLOAD_FILE,extension, fileContent));
+            String result = learnTree(new File(treeSrc).getName(), // tree form representation
+                    new Object[]{ServerCommand.SUBMIT_UPLOAD_TRAINING, extension, fileContent},
+                    new Object[]{ServerCommand.UPLOAD_FILE, extension, fileContent});
+            ServerResponse response;
             JOptionPane.showMessageDialog(null, resultMsg, "Upload completed", JOptionPane.INFORMATION_MESSAGE);
 
-            String result = (String) response.getAttribute(0); // tree form representation
             msgAreaTxt.setText(result);
             sessionTracker.setTree(result);
             Object options[] = {"Yes, please", "No, thanks"};
@@ -1108,7 +1314,7 @@ public class TreeClient extends JApplet {
 
             if (choice == JOptionPane.YES_OPTION) {
                 try {
-                    response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.SERIALIZE_TREE, treeSrc.substring(treeSrc.lastIndexOf(File.separator), treeSrc.lastIndexOf('.')) + ".dat"));
+                    response = satisfyRequest(ServerCommand.SERIALIZE_TREE, treeSrc.substring(treeSrc.lastIndexOf(File.separator), treeSrc.lastIndexOf('.')) + ".dat");
 
                     JOptionPane.showMessageDialog(null, response.getAttribute(1),
                             "File saved",
@@ -1142,14 +1348,31 @@ public class TreeClient extends JApplet {
 
     /**
      * Starts the prediction asking the server the first options
-     * to show to the user.
+     * to show to the user. If the server is an older one, which doesn't send the
+     * snapshot of the tree, the options are asked with the attributes information.
      */
+    @SuppressWarnings("unchecked")
     private void startPredictionBt_mouseClicked() {
 
         try {
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.ATTRIBUTES_INFORMATION));
+            // the snapshot may have been received together with the tree
+            if (treeSnapshots && !snapshotReceived) {
+                try {
+                    receiveSnapshot(satisfyRequest(ServerCommand.TREE_SNAPSHOT,
+                            treeSnapshot == null ? -1L : treeSnapshot.getVersion()));
+                } catch (ServerException e) {
+                    // the server doesn't know the command: it is an older server
+                    if (!(e.getCause() instanceof UnmarshalException))
+                        throw e;
+                    treeSnapshots = false;
+                }
+            }
+            snapshotReceived = false;
 
-            attrValues = (HashMap<String, String[]>) response.getAttribute(0);
+            if (treeSnapshots)
+                attrValues = treeSnapshot.getAttributesInformation();
+            else
+                attrValues = (HashMap<String, String[]>) getResult(satisfyRequest(ServerCommand.ATTRIBUTES_INFORMATION));
 
             Component[] components = cpPredictionQuery.getComponents();
             boolean flag = (components.length != 2);
@@ -1176,6 +1399,30 @@ public class TreeClient extends JApplet {
         }
     }
 
+    /**
+     * Returns the command which asks the server the snapshot of the current tree,
+     * to be executed after the commands which build the tree.
+     *
+     * @return the command followed by the version of the snapshot owned by the client
+     */
+    private Object[] newSnapshotCommand() {
+        // the server sends the tree only if it has changed since the last copy
+        return new Object[]{ServerCommand.TREE_SNAPSHOT, treeSnapshot == null ? -1L : treeSnapshot.getVersion()};
+    }
+
+    /**
+     * Keeps the snapshot of the tree received from the server.
+     *
+     * @param response the response to the snapshot command
+     */
+    private void receiveSnapshot(ServerResponse response) {
+        if (response instanceof ErrorResponse)
+            return;
+        if (response.getAttribute(0) != null)
+            treeSnapshot = (TreeSnapshotTO) response.getAttribute(0);
+        snapshotReceived = treeSnapshot != null;
+    }
+
     private boolean checkTableFields(){
         for(int i = 0; i < attributesTable.getRowCount(); i++){
             Object val = attributesTable.getValueAt(i, 1);
@@ -1201,7 +1448,9 @@ public class TreeClient extends JApplet {
     }
 
     /**
-     * Sends to the server the user's choices for the available attributes.
+     * Predicts the class value from the user's choices for the available attributes,
+     * following the copy of the tree received when the prediction was started, or
+     * asking it to the server if it is an older one, which doesn't send the copy.
      * <p/>
      * When the prediction is over then shows a message to the user with
      * the predicted value, otherwise asks for further options.
@@ -1219,10 +1468,10 @@ public class TreeClient extends JApplet {
                userChoices.put(key, optionElem);
            }
 
-           // Send to the server to make the prediction
+           // The prediction is made on the copy of the tree received by the server
             try {
-                ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.START_PREDICTION,userChoices));
-                String outputVal = (String) response.getAttribute(0); // first attribute the predicted value
+                String outputVal = treeSnapshots ? treeSnapshot.predict(userChoices)
+                        : (String) getResult(satisfyRequest(ServerCommand.START_PREDICTION, userChoices));
                 sessionTracker.setPredictedValue(outputVal);
 
                 Object[] choice = new Object[] { "Make another prediction",
@@ -1271,19 +1520,15 @@ public class TreeClient extends JApplet {
      * Displays a file chooser where the user can select which file
      * upload to the server.
      * <p/>
-     * A request is made to the server to know which extensions are supported.
-     * The supported extensions may change during application life cycle.
+     * The supported extensions are those received from the server at startup.
      */
-    @SuppressWarnings("unchecked")
     private void fileChooser_mouseClicked() {
         if (!chooserFlag) {
             return;
         }
         try {
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.SUPPORTED_EXTENSIONS));
             UIManager.put("FileChooser.readOnly", Boolean.TRUE);
-            FileFilter customFilter = new ExtensionFilter(
-                    (ArrayList<String>) response.getAttribute(0));
+            FileFilter customFilter = new ExtensionFilter(getSupportedExtensions());
             // File chooser displays the user's home directory
             JFileChooser fileChooser = new JFileChooser(
                     System.getProperty("user.home"));
@@ -1314,13 +1559,58 @@ public class TreeClient extends JApplet {
      */
     private void closureRoutine() {
         try {
-            remoteServer.satisfyRequest(new ClientRequest(ServerCommand.CLOSE_CONNECTION));
+            satisfyRequest(ServerCommand.CLOSE_CONNECTION);
         } catch (Exception e) {
             System.err
                     .println("Unable to correctly close current session with server (connection already closed).");
         }
     }
 
+    /**
+     * Asks the server, with a single call, the extensions of the files it supports
+     * and the list of available files that can be chosen by the user.
+     *
+     * @return the list of available files
+     */
+    @SuppressWarnings("unchecked")
+    private String[] loadStartupData() {
+        String[] file = null;
+
+        try {
+            ServerResponse[] responses = satisfyRequests(
+                    new Object[]{ServerCommand.SUPPORTED_EXTENSIONS},
+                    new Object[]{ServerCommand.AVAILABLE_DAT_FILES});
+            if (!(responses[0] instanceof ErrorResponse))
+                supportedExtensions = (ArrayList<String>) responses[0].getAttribute(0);
+            file = (String[]) getResult(responses[1]);
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(null,
+                    "Unable to load file list...\nTry pressing 'Update list'",
+                    "ERROR", JOptionPane.ERROR_MESSAGE);
+
+            System.err.println(e.getMessage());
+        }
+
+        if (file == null)
+            file = new String[1];
+
+        return file;
+    }
+
+    /**
+     * Returns the extensions of the files supported by the server, asking them
+     * only if they weren't received at startup.
+     *
+     * @return the supported extensions
+     * @throws Exception - if the server couldn't send the extensions
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<String> getSupportedExtensions() throws Exception {
+        if (supportedExtensions == null)
+            supportedExtensions = (ArrayList<String>) satisfyRequest(ServerCommand.SUPPORTED_EXTENSIONS).getAttribute(0);
+        return supportedExtensions;
+    }
+
     /**
      * Asks the server for the list of available files that can
      * be chosen by the user.
@@ -1331,7 +1621,7 @@ public class TreeClient extends JApplet {
         String[] file = null;
 
         try {
-            ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.AVAILABLE_DAT_FILES));
+            ServerResponse response = satisfyRequest(ServerCommand.AVAILABLE_DAT_FILES);
             file = (String[]) response.getAttribute(0);
         } catch (Exception e) {
             JOptionPane.showMessageDialog(null,
@@ -1675,7 +1965,7 @@ public class TreeClient extends JApplet {
                     to.setPassword(new String(pf.getPassword()));
 
                     temp = new Task();
-                    ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.SEND_EMAIL, to));
+                    ServerResponse response = satisfyRequest(ServerCommand.SEND_EMAIL, to);
                     temp.dispose();
 
                     JOptionPane.showMessageDialog(null, response.getAttribute(0)
@@ -1777,7 +2067,7 @@ public class TreeClient extends JApplet {
         private Object validateMailAddress(String mailAddress) {
 
             try {
-                ServerResponse response = remoteServer.satisfyRequest(new ClientRequest(ServerCommand.VALIDATE_EMAIL, mailAddress));
+                ServerResponse response = satisfyRequest(ServerCommand.VALIDATE_EMAIL, mailAddress);
 
                 return response.getAttribute(0);
 
@@ -0,0 +1,213 @@
+package com.mapgroup.client.utility;
+
+import com.mapgroup.to.TrainingJobTO;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JButton;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+import javax.swing.SwingWorker;
+import javax.swing.WindowConstants;
+
+/**
+ * This class shows the progress of a tree that the server learns in background,
+ * asking for the status of the training job until it is finished.
+ * <p>
+ * The window is modal, so the user waits for the tree as before, but every request
+ * to the server ends in a short time, however long the training is. The user can stop
+ * waiting with the cancel button or by closing the window: the status request in progress
+ * is completed first, so the connection with the server stays consistent.
+ * </p>
+ */
+public class TrainingMonitor extends JDialog {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Milliseconds for which the server can wait for the end of the job before answering
+     */
+    private static final long STATUS_WAIT = 1000;
+
+    /**
+     * Reads the status of a training job from the server.
+     */
+    public interface StatusSource {
+
+        /**
+         * Asks the server the status of the job.
+         *
+         * @param wait milliseconds for which the server can wait for the end of the job
+         * @return the status of the job
+         * @throws Exception if the status can't be read
+         */
+        TrainingJobTO getStatus(long wait) throws Exception;
+    }
+
+    /**
+     * a graphical component which displays the progress of the training
+     */
+    private final JProgressBar progressBar;
+    /**
+     * a graphical component which describes the state of the job
+     */
+    private final JLabel stateLabel;
+    /**
+     * the last status of the job, when it is finished
+     */
+    private TrainingJobTO result;
+    /**
+     * exception that may be generated while reading the status
+     */
+    private Exception failure;
+    /**
+     * <code>true</code> when the user doesn't want to wait for the tree any more
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Initializes the graphical interface of the window.
+     *
+     * @param description the description of the dataset whose tree is learnt
+     */
+    private TrainingMonitor(String description) {
+        setTitle("Training progress");
+        setModal(true);
+        setDefaultCloseOperation(WindowConstants.DO_NOTHING_ON_CLOSE);
+        progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        stateLabel = new JLabel("Submitted");
+        final JButton cancelBt = new JButton("Cancel");
+        cancelBt.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                cancel();
+                cancelBt.setEnabled(false);
+            }
+        });
+        addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                cancel();
+                cancelBt.setEnabled(false);
+            }
+        });
+
+        JPanel info = new JPanel(new GridLayout(3, 1, 5, 10));
+        info.add(new JLabel("Learning the tree of " + description));
+        info.add(stateLabel);
+        info.add(progressBar);
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(cancelBt);
+
+        Container c = getContentPane();
+        c.setLayout(new BorderLayout(5, 10));
+        c.add(info, BorderLayout.CENTER);
+        c.add(buttons, BorderLayout.SOUTH);
+
+        setResizable(false);
+        pack();
+        setLocationRelativeTo(null);
+    }
+
+    /**
+     * Stops waiting for the tree once the status request in progress is answered.
+     */
+    private void cancel() {
+        cancelled = true;
+        stateLabel.setText("Cancelling...");
+    }
+
+    /**
+     * Shows the progress of a training job until it is finished. It must be called
+     * by the event dispatch thread.
+     *
+     * @param description the description of the dataset whose tree is learnt
+     * @param source      reads the status of the job
+     * @return the last status of the job, which is completed or failed
+     * @throws Exception if the status of the job can't be read or the user cancelled the wait
+     */
+    public static TrainingJobTO await(String description, StatusSource source) throws Exception {
+        TrainingMonitor monitor = new TrainingMonitor(description);
+        monitor.new Task(source).execute();
+        // returns when the task disposes the window
+        monitor.setVisible(true);
+
+        if (monitor.failure != null)
+            throw monitor.failure;
+        return monitor.result;
+    }
+
+    /**
+     * This class asks for the status of the job in background,
+     * using the SwingWorker facilities.
+     */
+    private class Task extends SwingWorker<TrainingJobTO, TrainingJobTO> {
+
+        /**
+         * reads the status of the job
+         */
+        private final StatusSource source;
+
+        /**
+         * Creates the task.
+         *
+         * @param source reads the status of the job
+         */
+        Task(StatusSource source) {
+            this.source = source;
+        }
+
+        /**
+         * Asks for the status of the job until it is finished or the user cancels the wait.
+         *
+         * @return the last status of the job
+         * @throws Exception if the status can't be read or the user cancelled the wait
+         */
+        public TrainingJobTO doInBackground() throws Exception {
+            TrainingJobTO status;
+            do {
+                if (cancelled)
+                    throw new Exception("The wait for the tree has been cancelled.");
+                status = source.getStatus(STATUS_WAIT);
+                publish(status);
+            } while (!status.isFinished());
+            return status;
+        }
+
+        /**
+         * Shows the last status received.
+         *
+         * @param statuses the statuses received since the last update
+         */
+        protected void process(List<TrainingJobTO> statuses) {
+            TrainingJobTO status = statuses.get(statuses.size() - 1);
+            if (!cancelled)
+                stateLabel.setText(status.getMessage());
+            progressBar.setValue(status.getProgress());
+        }
+
+        /**
+         * Keeps the result of the task and closes the window.
+         */
+        public void done() {
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                failure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+            } catch (InterruptedException e) {
+                failure = e;
+            }
+            dispose();
+        }
+    }
+}
@@ -9,12 +9,23 @@ import java.util.List;
  * Class containing all the information about a request
  * performed by a client that will be satisfied by a proper
  * executor.
+ * <p>
+ * The request can carry the id of the session of the client, chosen at random by the
+ * client, so that the server can tell apart the clients running on the same host.
+ * The requests of the older clients have no session id.
+ * </p>
  */
 public class ClientRequest implements Serializable{
-    
+
+    /** the value computed for the class without session id, so the older clients and servers can read it */
+    private static final long serialVersionUID = -3888634172613764047L;
+
     /** List of values of the request */
     private final List<Object> values;
 
+    /** id of the session of the client, <code>null</code> if the client has no session id */
+    private String sessionId;
+
     /**
      * Construct this object adding some values
      * to the list field.
@@ -44,4 +55,22 @@ public class ClientRequest implements Serializable{
     public void addAttribute(Object o) {
         values.add(o);
     }
+
+    /**
+     * Returns the id of the session of the client which sends the request.
+     *
+     * @return the session id, <code>null</code> if the client hasn't one
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * Sets the id of the session of the client which sends the request.
+     *
+     * @param sessionId the session id
+     */
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
 }
@@ -0,0 +1,51 @@
+package com.mapgroup.to;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Typed request of a command without arguments or with a single string argument,
+ * such as the name of a table or of a file.
+ */
+public class CommandRequest extends TypedRequest {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the argument of the command, <code>null</code> if it has no arguments */
+    private String argument;
+
+    /**
+     * Constructor used by the deserialization.
+     */
+    public CommandRequest() {
+    }
+
+    /**
+     * Constructs the request of a command.
+     *
+     * @param command  the command requested
+     * @param argument the argument of the command, <code>null</code> if it has no arguments
+     */
+    public CommandRequest(ServerCommand command, String argument) {
+        super(command);
+        this.argument = argument;
+    }
+
+    @Override
+    protected Object getArgument(int index) {
+        if (index != 0 || argument == null)
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return argument;
+    }
+
+    @Override
+    protected void writeArguments(ObjectOutput out) throws IOException {
+        writeString(out, argument);
+    }
+
+    @Override
+    protected void readArguments(ObjectInput in) throws IOException {
+        argument = readString(in);
+    }
+}
@@ -0,0 +1,33 @@
+package com.mapgroup.to;
+
+/**
+ * Response of the server to a request which has failed inside a sequence of
+ * requests, so that the other requests of the sequence are still satisfied.
+ * The attribute 0 is <code>null</code> and the attribute 1 is the message of the exception.
+ */
+public class ErrorResponse extends ServerResponse {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the exception thrown by the request */
+    private final Exception exception;
+
+    /**
+     * Constructs the response to a failed request.
+     *
+     * @param exception the exception thrown by the request
+     */
+    public ErrorResponse(Exception exception) {
+        super(null, exception.getMessage());
+        this.exception = exception;
+    }
+
+    /**
+     * Returns the exception thrown by the request.
+     *
+     * @return the exception
+     */
+    public Exception getException() {
+        return exception;
+    }
+}
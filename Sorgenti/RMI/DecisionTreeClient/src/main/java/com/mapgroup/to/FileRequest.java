@@ -0,0 +1,62 @@
+package com.mapgroup.to;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Typed request of a command which sends a file to the server:
+ * its extension followed by its content.
+ */
+public class FileRequest extends TypedRequest {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the extension of the file */
+    private String extension;
+    /** the content of the file */
+    private byte[] content;
+
+    /**
+     * Constructor used by the deserialization.
+     */
+    public FileRequest() {
+    }
+
+    /**
+     * Constructs the request of a command.
+     *
+     * @param command   the command requested
+     * @param extension the extension of the file
+     * @param content   the content of the file
+     */
+    public FileRequest(ServerCommand command, String extension, byte[] content) {
+        super(command);
+        this.extension = extension;
+        this.content = content;
+    }
+
+    @Override
+    protected Object getArgument(int index) {
+        switch (index) {
+            case 0:
+                return extension;
+            case 1:
+                return content;
+            default:
+                throw new IndexOutOfBoundsException("Index: " + index);
+        }
+    }
+
+    @Override
+    protected void writeArguments(ObjectOutput out) throws IOException {
+        writeString(out, extension);
+        writeBytes(out, content);
+    }
+
+    @Override
+    protected void readArguments(ObjectInput in) throws IOException {
+        extension = readString(in);
+        content = readBytes(in);
+    }
+}
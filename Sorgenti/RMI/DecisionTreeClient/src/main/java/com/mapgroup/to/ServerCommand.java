@@ -30,7 +30,19 @@ public enum ServerCommand implements Serializable{
     /** Converts a dataset from a format to another */
     CONVERT_DATASET (11),
     /** Asks for information on an attribute needed to make prediction */
-    ATTRIBUTES_INFORMATION(12);
+    ATTRIBUTES_INFORMATION(12),
+    /** Predicts the class of every example of a dataset uploaded or read from a table */
+    BATCH_PREDICTION(13),
+    /** Asks for a copy of the current tree, used by the client to make predictions by itself */
+    TREE_SNAPSHOT(14),
+    /** Submits the training of a tree from a database table, without waiting for its end */
+    SUBMIT_DB_TRAINING(15),
+    /** Uploads a file and submits the training of its tree, without waiting for its end */
+    SUBMIT_UPLOAD_TRAINING(16),
+    /** Asks for the status of a training job, which gives its tree when it is completed */
+    TRAINING_STATUS(17),
+    /** Asks for a page of the predictions of the last dataset sent with {@link #BATCH_PREDICTION} */
+    PREDICTION_PAGE(18);
 
     /** Value of the command */
     private final int id;
@@ -40,4 +52,27 @@ public enum ServerCommand implements Serializable{
         this.id = id;
     }
 
+    /**
+     * Returns the value of the command, which identifies it in the typed requests.
+     *
+     * @return value of the command
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the command with the specified value.
+     *
+     * @param id value of the command
+     * @return the command, <code>null</code> if no command has that value
+     */
+    public static ServerCommand valueOf(int id) {
+        for (ServerCommand command : values()) {
+            if (command.id == id)
+                return command;
+        }
+        return null;
+    }
+
 }
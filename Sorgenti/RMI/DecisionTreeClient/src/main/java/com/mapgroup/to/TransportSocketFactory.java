@@ -0,0 +1,156 @@
+package com.mapgroup.to;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.rmi.server.RMIClientSocketFactory;
+import java.rmi.server.RMIServerSocketFactory;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * This class creates the sockets used by the remote calls between the client and the
+ * server. The sockets have large buffers and, if required, compress everything they send,
+ * which reduces the transfer time of the trees and of the datasets over slow networks.
+ * <p>
+ * The factory is chosen by the server when it exports its remote object, and reaches the
+ * client together with the stub, so the client uses it without any configuration.
+ * </p>
+ */
+public class TransportSocketFactory implements RMIClientSocketFactory, RMIServerSocketFactory, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Size of the buffers of the streams and of the sockets */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** <code>true</code> if the data sent are compressed */
+    private final boolean compressed;
+
+    /**
+     * Creates a factory of sockets with large buffers.
+     *
+     * @param compressed <code>true</code> if the data sent must be compressed
+     */
+    public TransportSocketFactory(boolean compressed) {
+        this.compressed = compressed;
+    }
+
+    /**
+     * Returns the factory described by a name.
+     *
+     * @param name <code>BUFFERED</code> or <code>COMPRESSED</code>, ignoring the case
+     * @return the factory, <code>null</code> for any other name, so that the default sockets are used
+     */
+    public static TransportSocketFactory forName(String name) {
+        if ("BUFFERED".equalsIgnoreCase(name))
+            return new TransportSocketFactory(false);
+        if ("COMPRESSED".equalsIgnoreCase(name))
+            return new TransportSocketFactory(true);
+        return null;
+    }
+
+    public Socket createSocket(String host, int port) throws IOException {
+        Socket socket = new TransportSocket(compressed);
+        socket.setSendBufferSize(4 * BUFFER_SIZE);
+        socket.setReceiveBufferSize(4 * BUFFER_SIZE);
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        return socket;
+    }
+
+    public ServerSocket createServerSocket(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket() {
+            @Override
+            public Socket accept() throws IOException {
+                Socket socket = new TransportSocket(compressed);
+                implAccept(socket);
+                socket.setSendBufferSize(4 * BUFFER_SIZE);
+                socket.setTcpNoDelay(true);
+                return socket;
+            }
+        };
+        // the receive buffer of the accepted sockets must be set before binding
+        serverSocket.setReceiveBufferSize(4 * BUFFER_SIZE);
+        serverSocket.bind(new InetSocketAddress(port));
+        return serverSocket;
+    }
+
+    /**
+     * Returns a description of the sockets created, for the log.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString() {
+        return compressed ? "compressed sockets" : "buffered sockets";
+    }
+
+    /**
+     * The remote calls reuse the connections created by equal factories.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof TransportSocketFactory && ((TransportSocketFactory) obj).compressed == compressed;
+    }
+
+    @Override
+    public int hashCode() {
+        return compressed ? 1 : 0;
+    }
+
+    /**
+     * Socket whose streams are buffered and, if required, compressed. The compressed
+     * stream is flushed with a sync flush, so the receiver can decompress every message
+     * as soon as it arrives.
+     */
+    private static class TransportSocket extends Socket {
+
+        /** <code>true</code> if the data sent are compressed */
+        private final boolean compressed;
+        /** the stream to the other side, created on the first request */
+        private OutputStream out;
+        /** the stream from the other side, created on the first request */
+        private InputStream in;
+
+        /**
+         * Creates an unconnected socket.
+         *
+         * @param compressed <code>true</code> if the data sent must be compressed
+         */
+        TransportSocket(boolean compressed) {
+            this.compressed = compressed;
+        }
+
+        @Override
+        public synchronized OutputStream getOutputStream() throws IOException {
+            if (out == null) {
+                if (compressed)
+                    out = new DeflaterOutputStream(super.getOutputStream(),
+                            new Deflater(Deflater.BEST_SPEED), BUFFER_SIZE, true);
+                else
+                    out = new BufferedOutputStream(super.getOutputStream(), BUFFER_SIZE);
+            }
+            return out;
+        }
+
+        @Override
+        public synchronized InputStream getInputStream() throws IOException {
+            if (in == null) {
+                if (compressed)
+                    in = new InflaterInputStream(super.getInputStream(), new Inflater(), BUFFER_SIZE);
+                else
+                    in = new BufferedInputStream(super.getInputStream(), BUFFER_SIZE);
+            }
+            return in;
+        }
+    }
+}
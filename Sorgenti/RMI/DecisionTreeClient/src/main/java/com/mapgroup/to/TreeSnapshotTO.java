@@ -0,0 +1,91 @@
+package com.mapgroup.to;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class transmits to the client a compact copy of the current decision tree,
+ * so that the client can make its predictions without asking them to the server.
+ * <p>
+ * The nodes are numbered in pre-order, the root is node 0. The children of node
+ * <code>n</code> are <code>children[childOffsets[n]]</code> ... <code>children[childOffsets[n + 1] - 1]</code>,
+ * so a leaf has no entries. The version tells the client if its copy is still the current tree.
+ * </p>
+ */
+public class TreeSnapshotTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Version of the tree on the server */
+    private final long version;
+    /** Name of the attribute of each split node, <code>null</code> for the leaves */
+    private final String[] attributeNames;
+    /** Position in <code>children</code> of the first child of each node, plus the end of the last one */
+    private final int[] childOffsets;
+    /** Children of the nodes, in the order of their options */
+    private final int[] children;
+    /** Class value predicted by each leaf, <code>null</code> for the split nodes */
+    private final String[] predictedValues;
+    /** The options of each attribute (key: name of the attribute; value: options) */
+    private final HashMap<String, String[]> attributesInformation;
+
+    /**
+     * Builds this object with the arrays which describe the tree.
+     *
+     * @param version               version of the tree on the server
+     * @param attributeNames        name of the attribute of each split node
+     * @param childOffsets          position of the first child of each node, plus the number of children
+     * @param children              children of the nodes
+     * @param predictedValues       class value predicted by each leaf
+     * @param attributesInformation the options of each attribute
+     */
+    public TreeSnapshotTO(long version, String[] attributeNames, int[] childOffsets, int[] children,
+                          String[] predictedValues, HashMap<String, String[]> attributesInformation) {
+        this.version = version;
+        this.attributeNames = attributeNames;
+        this.childOffsets = childOffsets;
+        this.children = children;
+        this.predictedValues = predictedValues;
+        this.attributesInformation = attributesInformation;
+    }
+
+    /**
+     * Returns the version of the tree on the server.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the options that the user can choose for each attribute.
+     *
+     * @return the options (key: name of the attribute; value: options)
+     */
+    public HashMap<String, String[]> getAttributesInformation() {
+        return attributesInformation;
+    }
+
+    /**
+     * Predicts the class value following the options chosen by the user,
+     * as the server does for a prediction session.
+     *
+     * @param choices position of the option chosen for each attribute (key: name of the attribute)
+     * @return the predicted class value
+     * @throws IllegalArgumentException if an incorrect choice was selected
+     */
+    public String predict(Map<String, Integer> choices) {
+        int node = 0;
+
+        while (attributeNames[node] != null) {
+            Integer choice = choices.get(attributeNames[node]);
+            if (choice == null || choice < 0 || choice >= childOffsets[node + 1] - childOffsets[node])
+                throw new IllegalArgumentException("An invalid value was used for the attribute " + attributeNames[node] + ".");
+
+            node = children[childOffsets[node] + choice];
+        }
+        return predictedValues[node];
+    }
+}
@@ -0,0 +1,203 @@
+package com.mapgroup.to;
+
+import java.io.EOFException;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Base class of the requests whose values have a fixed type, which are sent to the server
+ * with a compact encoding instead of the generic serialization of {@link ClientRequest}.
+ * <p>
+ * A typed request is still a {@link ClientRequest}: the command is the attribute 0 and the
+ * arguments follow it, so the server handles both the forms in the same way. The server
+ * answers a typed request with a {@link TypedResponse}.
+ * </p>
+ * <p>
+ * The session id is written after the arguments: an older server skips it, as the
+ * external data which it doesn't read, and the requests of an older client end
+ * before it.
+ * </p>
+ */
+public abstract class TypedRequest extends ClientRequest implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the command requested */
+    private ServerCommand command;
+
+    /**
+     * Constructor used by the deserialization.
+     */
+    protected TypedRequest() {
+    }
+
+    /**
+     * Constructs a request of the specified command.
+     *
+     * @param command the command requested
+     */
+    protected TypedRequest(ServerCommand command) {
+        this.command = command;
+    }
+
+    /**
+     * Returns the typed request of a command with the specified arguments.
+     *
+     * @param command the command requested
+     * @param args    the arguments of the command
+     * @return the typed request, <code>null</code> if the arguments have no typed form
+     */
+    public static TypedRequest create(ServerCommand command, Object... args) {
+        if (args.length == 0)
+            return new CommandRequest(command, null);
+        if (args.length == 1 && args[0] instanceof String)
+            return new CommandRequest(command, (String) args[0]);
+        if (args.length == 1 && args[0] instanceof Long)
+            return new VersionRequest(command, (Long) args[0]);
+        if (args.length == 2 && args[0] instanceof String && args[1] instanceof byte[])
+            return new FileRequest(command, (String) args[0], (byte[]) args[1]);
+        return null;
+    }
+
+    /**
+     * Returns the command requested.
+     *
+     * @return the command
+     */
+    public ServerCommand getCommand() {
+        return command;
+    }
+
+    /**
+     * Returns the command (index 0) or one of its arguments (from index 1).
+     *
+     * @param index the position of the value
+     * @return the value
+     */
+    @Override
+    public Object getAttribute(int index) {
+        if (index == 0)
+            return command;
+        return getArgument(index - 1);
+    }
+
+    /**
+     * The values of a typed request can't change.
+     *
+     * @param o the value
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addAttribute(Object o) {
+        throw new UnsupportedOperationException("The arguments of a typed request can't change");
+    }
+
+    /**
+     * Returns an argument of the command.
+     *
+     * @param index the position of the argument, from 0
+     * @return the argument
+     * @throws IndexOutOfBoundsException if the command hasn't that argument
+     */
+    protected abstract Object getArgument(int index);
+
+    /**
+     * Writes the arguments of the command.
+     *
+     * @param out the stream to write to
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract void writeArguments(ObjectOutput out) throws IOException;
+
+    /**
+     * Reads the arguments of the command.
+     *
+     * @param in the stream to read from
+     * @throws IOException if an I/O error occurs
+     */
+    protected abstract void readArguments(ObjectInput in) throws IOException;
+
+    public final void writeExternal(ObjectOutput out) throws IOException {
+        out.writeByte(command.getId());
+        writeArguments(out);
+        writeString(out, getSessionId());
+    }
+
+    public final void readExternal(ObjectInput in) throws IOException {
+        int id = in.readUnsignedByte();
+        command = ServerCommand.valueOf(id);
+        if (command == null)
+            throw new InvalidObjectException("Unknown command " + id);
+        readArguments(in);
+        try {
+            setSessionId(readString(in));
+        } catch (EOFException e) {
+            // the request of a client without session id
+        }
+    }
+
+    /**
+     * Writes a string of any length, even <code>null</code>. Unlike
+     * {@link ObjectOutput#writeUTF(String)}, it isn't limited to 64 KB.
+     *
+     * @param out   the stream to write to
+     * @param value the string
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeString(ObjectOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes("UTF-8");
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string written by {@link #writeString(ObjectOutput, String)}.
+     *
+     * @param in the stream to read from
+     * @return the string, possibly <code>null</code>
+     * @throws IOException if an I/O error occurs
+     */
+    static String readString(ObjectInput in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, "UTF-8");
+    }
+
+    /**
+     * Writes an array of bytes, even <code>null</code>.
+     *
+     * @param out   the stream to write to
+     * @param bytes the bytes
+     * @throws IOException if an I/O error occurs
+     */
+    static void writeBytes(ObjectOutput out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads an array of bytes written by {@link #writeBytes(ObjectOutput, byte[])}.
+     *
+     * @param in the stream to read from
+     * @return the bytes, possibly <code>null</code>
+     * @throws IOException if an I/O error occurs
+     */
+    static byte[] readBytes(ObjectInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
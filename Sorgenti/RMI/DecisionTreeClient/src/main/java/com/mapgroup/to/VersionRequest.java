@@ -0,0 +1,51 @@
+package com.mapgroup.to;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Typed request of a command whose argument is a version, such as the
+ * version of the tree snapshot already owned by the client.
+ */
+public class VersionRequest extends TypedRequest {
+
+    private static final long serialVersionUID = 1L;
+
+    /** the version sent to the server */
+    private long version;
+
+    /**
+     * Constructor used by the deserialization.
+     */
+    public VersionRequest() {
+    }
+
+    /**
+     * Constructs the request of a command.
+     *
+     * @param command the command requested
+     * @param version the version sent to the server
+     */
+    public VersionRequest(ServerCommand command, long version) {
+        super(command);
+        this.version = version;
+    }
+
+    @Override
+    protected Object getArgument(int index) {
+        if (index != 0)
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return version;
+    }
+
+    @Override
+    protected void writeArguments(ObjectOutput out) throws IOException {
+        out.writeLong(version);
+    }
+
+    @Override
+    protected void readArguments(ObjectInput in) throws IOException {
+        version = in.readLong();
+    }
+}
@@ -0,0 +1,111 @@
+package com.mapgroup.classificator.boundary;
+
+import com.mapgroup.classificator.data.Data;
+import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.utility.BatchPrediction;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class contains the data that the server keeps for a single client
+ * between its requests: the decision tree, the dataset it was learnt from,
+ * the last batch prediction and the time of the last request.
+ */
+class ClientSession {
+
+    /** last version given to a tree, shared by all the sessions so that a version is never reused */
+    private static final AtomicLong treeVersions = new AtomicLong();
+
+    /** the decision tree of the client */
+    private DecisionTree tree;
+    /** the dataset of the client */
+    private Data trainingSet;
+    /** the last batch prediction of the client, whose predictions are asked a page at a time */
+    private BatchPrediction batchPrediction;
+    /** version of <code>tree</code> */
+    private long treeVersion;
+    /** time of the last request, in milliseconds */
+    private volatile long lastAccessTime = System.currentTimeMillis();
+
+    /**
+     * Returns the decision tree of the client.
+     *
+     * @return the current decision tree, <code>null</code> if the client hasn't one
+     */
+    DecisionTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Replaces the decision tree of the client, giving it a new version if it's a different tree.
+     *
+     * @param tree the new decision tree
+     */
+    void setTree(DecisionTree tree) {
+        if (tree != this.tree) {
+            this.tree = tree;
+            treeVersion = treeVersions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the version of the decision tree of the client.
+     *
+     * @return the tree version, <code>0</code> if the client hasn't a tree
+     */
+    long getTreeVersion() {
+        return treeVersion;
+    }
+
+    /**
+     * Returns the dataset of the client.
+     *
+     * @return the current dataset, <code>null</code> if the client hasn't one
+     */
+    Data getTrainingSet() {
+        return trainingSet;
+    }
+
+    /**
+     * Replaces the dataset of the client.
+     *
+     * @param trainingSet the new dataset
+     */
+    void setTrainingSet(Data trainingSet) {
+        this.trainingSet = trainingSet;
+    }
+
+    /**
+     * Returns the last batch prediction of the client.
+     *
+     * @return the batch prediction, <code>null</code> if the client hasn't one
+     */
+    BatchPrediction getBatchPrediction() {
+        return batchPrediction;
+    }
+
+    /**
+     * Replaces the batch prediction of the client.
+     *
+     * @param batchPrediction the new batch prediction
+     */
+    void setBatchPrediction(BatchPrediction batchPrediction) {
+        this.batchPrediction = batchPrediction;
+    }
+
+    /**
+     * Records that the client has made a request.
+     */
+    void touch() {
+        lastAccessTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns the time of the last request of the client.
+     *
+     * @return the time in milliseconds
+     */
+    long getLastAccessTime() {
+        return lastAccessTime;
+    }
+}
@@ -5,6 +5,7 @@ import com.mapgroup.classificator.database.IncorrectLoginException;
 import com.mapgroup.classificator.database.SupportedDBMS;
 import com.mapgroup.classificator.database.dao.DbAccess;
 import com.mapgroup.classificator.database.dao.DbAccessFactory;
+import com.mapgroup.classificator.utility.Utility;
 
 import javax.swing.*;
 import java.awt.*;
@@ -33,6 +34,14 @@ import java.rmi.registry.LocateRegistry;
  * </p>
  */
 public class LoginForm {
+    /** Name of the system property which defines the DBMS used without graphical interface */
+    static final String DBMS_PROPERTY = "decisiontree.db.dbms";
+    /** Name of the system property which defines the DBMS user used without graphical interface */
+    static final String USER_PROPERTY = "decisiontree.db.user";
+    /** Name of the system property which defines the DBMS password used without graphical interface */
+    static final String PASSWORD_PROPERTY = "decisiontree.db.password";
+    /** Name of the environment variable which defines the DBMS password, if the property is missing */
+    static final String PASSWORD_VARIABLE = "DECISIONTREE_DB_PASSWORD";
     /**
      * Text box in which the user was able to insert his username
      */
@@ -63,7 +72,10 @@ public class LoginForm {
      * */
     public static void main(String[] args) {
         int port = 2367;
-        new LoginForm(port);
+        if (Utility.isHeadless())
+            startHeadless(port);
+        else
+            new LoginForm(port);
         /*if (args.length != 0) {
             int userPort = Integer.parseInt(args[0]);
             if (userPort < 1024 || userPort > 49151) // Invalid port specified
@@ -78,6 +90,58 @@ public class LoginForm {
 
     }
 
+    /**
+     * Connects to the DBMS defined by the system properties, when the server has no
+     * graphical interface. Without {@link #USER_PROPERTY} the server runs without database.
+     *
+     * @return <code>true</code> if the server can start, <code>false</code> if the credentials are wrong
+     */
+    private static boolean connectDatabase() {
+        String userName = System.getProperty(USER_PROPERTY);
+        if (userName == null) {
+            System.out.println("No database user specified: the database tables won't be available.");
+            return true;
+        }
+
+        String dbms = System.getProperty(DBMS_PROPERTY, SupportedDBMS.getSupportedDBMSName()[0]);
+        String passText = System.getProperty(PASSWORD_PROPERTY, System.getenv(PASSWORD_VARIABLE));
+        try {
+            DbAccess databaseConn = DbAccessFactory.createDbAccess(dbms);
+            databaseConn.initConnection(userName, passText == null ? "" : passText);
+            return true;
+        } catch (DataException e) {
+            System.err.println("Unable to connect to the database.\n" + e.getMessage());
+        } catch (IncorrectLoginException e) {
+            System.err.println("Unable to connect to the database.\nWrong combination of username and password.");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unsupported DBMS: " + dbms);
+        }
+        return false;
+    }
+
+    /**
+     * Starts the server without graphical interface on the specified port.
+     *
+     * @param port the port on which the server will be started
+     */
+    private static void startHeadless(int port) {
+        if (!connectDatabase())
+            System.exit(1);
+
+        try {
+            MultiServer multi = new MultiServer();
+            LocateRegistry.createRegistry(port);
+            Naming.bind("//localhost:" + port + "/MultiServer", multi);
+            System.out.println("Server started on port " + port + ".");
+        } catch (IOException e) {
+            System.err.println("Some errors were occurred in initializing the server: " + e.getMessage());
+            System.exit(1);
+        } catch (AlreadyBoundException e) {
+            System.err.println("ERROR: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
     /**
      * Initializes all the graphical interface of the login panel.
      * @param port the port on which the server will be started
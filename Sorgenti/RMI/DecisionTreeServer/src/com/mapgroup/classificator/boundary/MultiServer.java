@@ -6,11 +6,19 @@ import com.mapgroup.classificator.controller.ServerExecutorFactory;
 import com.mapgroup.classificator.data.Data;
 import com.mapgroup.classificator.database.dao.DbAccess;
 import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.utility.BatchPrediction;
+import com.mapgroup.classificator.utility.RollingLogFile;
+import com.mapgroup.classificator.utility.ServerLog;
+import com.mapgroup.classificator.utility.TrainingQueue;
 import com.mapgroup.classificator.utility.Utility;
 import com.mapgroup.to.ClientRequest;
+import com.mapgroup.to.ErrorResponse;
 import com.mapgroup.to.IRemoteServer;
 import com.mapgroup.to.ServerCommand;
 import com.mapgroup.to.ServerResponse;
+import com.mapgroup.to.TransportSocketFactory;
+import com.mapgroup.to.TypedRequest;
+import com.mapgroup.to.TypedResponse;
 
 import javax.swing.*;
 import java.awt.*;
@@ -18,9 +26,14 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.server.ServerNotActiveException;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 
 /**
@@ -57,23 +70,75 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
         during its activity
      * */
     private JTextArea logArea;
-    /** the generated decision tree*/
-    private DecisionTree tree;
-    private Data trainingSet;
+    /** the connected clients, shown by <code>clientArea</code> */
+    private final Set<String> clients = new ConcurrentSkipListSet<String>();
+    /** the trainings of the decision trees submitted by the clients */
+    private final TrainingQueue trainings = new TrainingQueue();
+    /** the decision trees and the datasets of the connected clients */
+    private final SessionRegistry sessions = new SessionRegistry(new SessionRegistry.EvictionListener() {
+        public void sessionEvicted(String client) {
+            // a client which exits without closing the connection is forgotten with its session
+            disconnect(client);
+        }
+    });
+
+    /** Name of the system property which defines the sockets used by the remote calls */
+    static final String TRANSPORT_PROPERTY = "decisiontree.rmi.transport";
 
     /**
      * MultiServer constructor which loads the server on the
-     * specified <code>port</code> and create its graphical interface.
+     * specified <code>port</code> and create its graphical interface,
+     * unless the server runs without it ({@link Utility#isHeadless()}).
+     * The messages of the server are written in the log files in any case.
+     * <p>
+     * The remote calls use the sockets defined by the system property {@link #TRANSPORT_PROPERTY}:
+     * <code>DEFAULT</code> (default) for the standard sockets, <code>BUFFERED</code> for sockets with
+     * large buffers, <code>COMPRESSED</code> for sockets which also compress the data, useful on slow
+     * networks. The clients older than these sockets can connect only with <code>DEFAULT</code>.
+     * </p>
      *
      * @throws RemoteException - if some errors occurred while initializing the remote object
      * */
     public MultiServer() throws RemoteException {
+        this(TransportSocketFactory.forName(System.getProperty(TRANSPORT_PROPERTY, "DEFAULT")));
+    }
+
+    /**
+     * Exports the server with the specified sockets.
+     *
+     * @param socketFactory the factory of the sockets, <code>null</code> for the standard sockets
+     * @throws RemoteException - if some errors occurred while initializing the remote object
+     */
+    private MultiServer(TransportSocketFactory socketFactory) throws RemoteException {
+        super(0, socketFactory, socketFactory);
         Utility.checkMainFolder();
         Utility.cleanFolder("download");
         Utility.cleanFolder("report");
         Utility.cleanFolder("conversion");
-        initAndShowGUI();
+        startLogFile();
+        if (!Utility.isHeadless())
+            initAndShowGUI();
+
+        ServerLog.log("Server is waiting for connection...\n");
+        if (socketFactory != null)
+            ServerLog.log("Remote calls use " + socketFactory + "\n");
+        ServerLog.log("Trainings: " + trainings + "\n");
+    }
 
+    /**
+     * Starts writing the messages of the server in the log files.
+     */
+    private static void startLogFile() {
+        try {
+            RollingLogFile logFile = new RollingLogFile();
+            ServerLog.addListener(logFile);
+            ServerLog.log("Log written in " + logFile.getPath() + "\n");
+            // without the log panel, the console tells where the log can be read
+            if (Utility.isHeadless())
+                System.out.println("Log written in " + logFile.getPath());
+        } catch (IOException e) {
+            System.err.println("Unable to open the log file: " + e.getMessage());
+        }
     }
 
     /**
@@ -162,7 +227,7 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
 
         frame.setVisible(true);
 
-        logArea.append("Server is waiting for connection...\n");
+        ServerLog.addListener(new LogPanelListener(logArea));
     }
 
     /**
@@ -176,16 +241,20 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
      * the task. All this kind of information are saved in the generated context structure.
      *
      * @param clientRequest  the client's request
+     * @param client         the client, as returned by {@link #getClient(ClientRequest)}
+     * @param session        the session of the client
      * @return current context information
      */
-    private ContextRequest generateContextRequest(ClientRequest clientRequest){
+    private ContextRequest generateContextRequest(ClientRequest clientRequest, String client, ClientSession session){
         // The first attribute is the server command needed to resolve the context
         ServerCommand command = (ServerCommand)clientRequest.getAttribute(0);
+        DecisionTree tree = session.getTree();
+        Data trainingSet = session.getTrainingSet();
 
         switch (command) {
 
             case BUILD_TREE_FROM_DB:
-                return new ContextRequest(tree, trainingSet, clientRequest.getAttribute(1));
+                return new ContextRequest(tree, trainingSet, clientRequest.getAttribute(1), trainings, client);
             case SERIALIZE_TREE:
                 return new ContextRequest(tree, null, clientRequest.getAttribute(1));
             case LOAD_SERIALIZED_TREE:
@@ -195,7 +264,7 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
                 return new ContextRequest(); // No context information needed
             case UPLOAD_FILE:
                 try {
-                    return new ContextRequest(tree, trainingSet, clientRequest.getAttribute(1), clientRequest.getAttribute(2), getClientHost());
+                    return new ContextRequest(tree, trainingSet, clientRequest.getAttribute(1), clientRequest.getAttribute(2), getClientHost(), trainings, client);
                 } catch (ServerNotActiveException e) {
                     System.err.println("ERROR: " + e.getCause() + " -- " + e.getMessage());
                 }
@@ -211,17 +280,35 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
                 return new ContextRequest(null, null, clientRequest.getAttribute(1));
             case CONVERT_DATASET:
                 try {
-                    return new ContextRequest(null, trainingSet, clientRequest.getAttribute(1), getClientHost(), logArea);
+                    return new ContextRequest(null, trainingSet, clientRequest.getAttribute(1), getClientHost());
                 } catch (ServerNotActiveException e) {
                     System.err.println("ERROR: " + e.getCause() + " -- " + e.getMessage());
                 }
             case CLOSE_CONNECTION:
+                return new ContextRequest(null, null, clients, client);
+            case ATTRIBUTES_INFORMATION: return new ContextRequest(tree, null);
+            case TREE_SNAPSHOT:
+                return new ContextRequest(tree, null, clientRequest.getAttribute(1), session.getTreeVersion());
+            case SUBMIT_DB_TRAINING:
+                return new ContextRequest(null, null, clientRequest.getAttribute(1), trainings, client);
+            case SUBMIT_UPLOAD_TRAINING:
                 try {
-                    return new ContextRequest(null, null, clientArea, listModel, getClientHost());
+                    return new ContextRequest(null, null, clientRequest.getAttribute(1), clientRequest.getAttribute(2), getClientHost(), trainings, client);
                 } catch (ServerNotActiveException e) {
                     System.err.println("ERROR: " + e.getCause() + " -- " + e.getMessage());
                 }
-            case ATTRIBUTES_INFORMATION: return new ContextRequest(tree, null);
+                break;
+            case TRAINING_STATUS:
+                return new ContextRequest(null, null, clientRequest.getAttribute(1), clientRequest.getAttribute(2), trainings, client);
+            case BATCH_PREDICTION:
+                try {
+                    return new ContextRequest(tree, null, clientRequest.getAttribute(1), clientRequest.getAttribute(2), getClientHost(), null);
+                } catch (ServerNotActiveException e) {
+                    System.err.println("ERROR: " + e.getCause() + " -- " + e.getMessage());
+                }
+                break;
+            case PREDICTION_PAGE:
+                return new ContextRequest(null, null, clientRequest.getAttribute(1), clientRequest.getAttribute(2), session.getBatchPrediction());
         }
 
          return null;
@@ -237,16 +324,103 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
      * @throws Exception - if some errors occurred while processing the specified client's request
      */
     public ServerResponse satisfyRequest(ClientRequest clientRequest) throws Exception {
-        addClient(getClientHost());
-        ContextRequest context = generateContextRequest(clientRequest);
+        String client = getClient(clientRequest);
+        addClient(client);
+        ClientSession session = sessions.get(client);
+
+        // the requests of the same client are served in order, those of different clients in parallel
+        synchronized (session) {
+            return executeRequest(clientRequest, client, session);
+        }
+
+    }
+
+    /**
+     * Remote method used in order to satisfy a sequence of requests made by the
+     * current client with a single call. The requests are executed in order; if one of
+     * them fails, its response is an {@link ErrorResponse} and the following ones are
+     * executed anyway. The requests must belong to the same session, since they are
+     * executed with a single lock on it.
+     *
+     * @param clientRequests the client's requests
+     * @return the responses, in the same order of the requests
+     * @throws Exception - if the client host can't be retrieved or the requests belong to different sessions
+     */
+    public List<ServerResponse> satisfyRequests(List<ClientRequest> clientRequests) throws Exception {
+        List<ServerResponse> responses = new ArrayList<ServerResponse>(clientRequests.size());
+        if (clientRequests.isEmpty())
+            return responses;
+
+        // all the requests must be sent by the same client
+        String client = getClient(clientRequests.get(0));
+        for (ClientRequest clientRequest : clientRequests) {
+            if (!client.equals(getClient(clientRequest)))
+                throw new Exception("The requests of a sequence must belong to the same session.");
+        }
+        addClient(client);
+        ClientSession session = sessions.get(client);
+
+        synchronized (session) {
+            for (ClientRequest clientRequest : clientRequests) {
+                try {
+                    responses.add(executeRequest(clientRequest, client, session));
+                } catch (Exception e) {
+                    responses.add(new ErrorResponse(e));
+                }
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Returns the identity of the client which sent a request: its host followed by the id
+     * of its session, so that the clients on the same host have different sessions. An older
+     * client, which sends no session id, is identified by its host.
+     *
+     * @param clientRequest the client's request
+     * @return the identity of the client
+     * @throws ServerNotActiveException if the method isn't called by a remote call
+     */
+    private String getClient(ClientRequest clientRequest) throws ServerNotActiveException {
+        String clientHost = getClientHost();
+        String sessionId = clientRequest.getSessionId();
+        return sessionId == null ? clientHost : clientHost + "/" + sessionId;
+    }
+
+    /**
+     * Executes a request of a client with its session, which must be locked by the caller.
+     *
+     * @param clientRequest the client's request
+     * @param client        the client, as returned by {@link #getClient(ClientRequest)}
+     * @param session       the session of the client
+     * @return structure which contains the result of the current operation
+     * @throws Exception - if some errors occurred while processing the specified client's request
+     */
+    private ServerResponse executeRequest(ClientRequest clientRequest, String client,
+                                          ClientSession session) throws Exception {
+        ContextRequest context = generateContextRequest(clientRequest, client, session);
         IServerExecutor executor = ServerExecutorFactory.createExecutor(clientRequest);
 
         ServerResponse response = executor.executeCommand(context);
-        updateServerData(context);
+        updateServerData(context, session);
         displayOperationResult(response);
 
-        return response;
+        // the predictions of the dataset are asked later, a page at a time,
+        // and the dataset is discarded after the last page
+        if (clientRequest.getAttribute(0) == ServerCommand.BATCH_PREDICTION)
+            session.setBatchPrediction((BatchPrediction) context.getAttribute(5));
+        else if (clientRequest.getAttribute(0) == ServerCommand.PREDICTION_PAGE)
+            session.setBatchPrediction((BatchPrediction) context.getAttribute(4));
 
+        if (clientRequest.getAttribute(0) == ServerCommand.CLOSE_CONNECTION) {
+            sessions.remove(client);
+            disconnect(client);
+        }
+
+        // a typed request is answered with the compact form of the response
+        if (clientRequest instanceof TypedRequest)
+            return new TypedResponse(response);
+        return response;
     }
 
     /**
@@ -259,35 +433,62 @@ public class MultiServer extends UnicastRemoteObject implements IRemoteServer {
     private void displayOperationResult(ServerResponse response){
          Object result = response.getAttribute(1);
         if( result != null ){
-            logArea.append(result + "");
+            ServerLog.log(result + "");
         }
     }
 
     /**
-     * Adds the specified client's host to the list of connected client.
+     * Adds the specified client to the list of connected client.
      *
-     * @param clientHost the current client host
+     * @param client the current client
      */
-    private void addClient(String clientHost) {
-        if(!listModel.contains(clientHost)){
-            listModel.addElement(clientHost);
-            clientArea.setModel(listModel);
-        }
+    private void addClient(String client) {
+        if (clients.add(client))
+            showClients();
+    }
+
+    /**
+     * Removes a client from the list of connected clients and discards its training jobs.
+     *
+     * @param client the client
+     */
+    private void disconnect(String client) {
+        clients.remove(client);
+        trainings.cancel(client);
+        showClients();
+    }
+
+    /**
+     * Shows the connected clients in the <code>clientArea</code>, if the server has
+     * a graphical interface. The list is updated by the event dispatch thread.
+     */
+    private void showClients() {
+        if (listModel == null)
+            return;
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                listModel.clear();
+                for (String client : clients)
+                    listModel.addElement(client);
+            }
+        });
     }
 
     /**
-     * Updates the server main data according to the specified context
+     * Updates the data of the client session according to the specified context
      * structure resulting from the latest computation.
      *
      * @param context the current context structure
+     * @param session the session of the client
      */
-    private void updateServerData(ContextRequest context){
+    private void updateServerData(ContextRequest context, ClientSession session){
         if (!context.isEmpty()) {
             if (context.getAttribute(0) != null)
-                tree = (DecisionTree) context.getAttribute(0);
+                session.setTree((DecisionTree) context.getAttribute(0));
 
             if (context.getAttribute(1) != null)
-                trainingSet = (Data) context.getAttribute(1);
+                session.setTrainingSet((Data) context.getAttribute(1));
         }
     }
 
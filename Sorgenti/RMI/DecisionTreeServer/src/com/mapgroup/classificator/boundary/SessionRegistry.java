@@ -0,0 +1,129 @@
+package com.mapgroup.classificator.boundary;
+
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class keeps the sessions of the clients connected to the server,
+ * identified by their host and the id of their session, or only by their
+ * host for the clients which don't send a session id.
+ * <p>
+ * A session is discarded when its client doesn't make requests for
+ * {@link #TIMEOUT_PROPERTY} minutes (default 30). At most {@link #MAX_SESSIONS_PROPERTY}
+ * sessions (default 100) are kept, so that the trees and the datasets of the clients
+ * don't exhaust the memory: when a new client exceeds the limit, the session which has
+ * been idle for the longest time is discarded. The {@link EvictionListener} is told
+ * of each discarded session.
+ * </p>
+ */
+class SessionRegistry {
+
+    /** Name of the system property which defines the minutes after which an idle session is discarded */
+    static final String TIMEOUT_PROPERTY = "decisiontree.session.timeout";
+    /** Name of the system property which defines the maximum number of sessions */
+    static final String MAX_SESSIONS_PROPERTY = "decisiontree.session.max";
+
+    /** the sessions, by client */
+    private final ConcurrentMap<String, ClientSession> sessions = new ConcurrentHashMap<String, ClientSession>();
+    /** milliseconds after which an idle session is discarded */
+    private final long timeout;
+    /** maximum number of sessions */
+    private final int maxSessions;
+    /** receives the clients whose sessions are discarded */
+    private final EvictionListener listener;
+
+    /**
+     * Receives the clients whose sessions are discarded because they are idle
+     * or because there are too many sessions.
+     */
+    interface EvictionListener {
+
+        /**
+         * Called after the session of a client has been discarded.
+         *
+         * @param client the client
+         */
+        void sessionEvicted(String client);
+    }
+
+    /**
+     * Creates an empty registry and starts the thread which discards the idle sessions.
+     *
+     * @param listener receives the clients whose sessions are discarded
+     */
+    SessionRegistry(EvictionListener listener) {
+        this.listener = listener;
+        timeout = Math.max(1, Long.getLong(TIMEOUT_PROPERTY, 30)) * 60 * 1000;
+        maxSessions = Math.max(1, Integer.getInteger(MAX_SESSIONS_PROPERTY, 100));
+
+        new Timer("session-eviction", true).schedule(new TimerTask() {
+            public void run() {
+                evictIdleSessions();
+            }
+        }, timeout, Math.min(timeout, 60 * 1000));
+    }
+
+    /**
+     * Returns the session of a client, creating it on its first request,
+     * and records the access.
+     *
+     * @param client the client
+     * @return the session of the client
+     */
+    ClientSession get(String client) {
+        ClientSession session = sessions.get(client);
+
+        if (session == null) {
+            ClientSession created = new ClientSession();
+            session = sessions.putIfAbsent(client, created);
+            if (session == null) {
+                session = created;
+                evictLeastRecentlyUsed();
+            }
+        }
+        session.touch();
+        return session;
+    }
+
+    /**
+     * Discards the session of a client.
+     *
+     * @param client the client
+     */
+    void remove(String client) {
+        sessions.remove(client);
+    }
+
+    /**
+     * Discards the sessions whose clients haven't made requests for longer than the timeout.
+     */
+    void evictIdleSessions() {
+        long now = System.currentTimeMillis();
+
+        for (Map.Entry<String, ClientSession> entry : sessions.entrySet()) {
+            if (now - entry.getValue().getLastAccessTime() > timeout
+                    && sessions.remove(entry.getKey(), entry.getValue()))
+                listener.sessionEvicted(entry.getKey());
+        }
+    }
+
+    /**
+     * Discards the sessions idle for the longest time until the limit is respected.
+     */
+    private void evictLeastRecentlyUsed() {
+        while (sessions.size() > maxSessions) {
+            Map.Entry<String, ClientSession> oldest = null;
+            for (Map.Entry<String, ClientSession> entry : sessions.entrySet()) {
+                if (oldest == null || entry.getValue().getLastAccessTime() < oldest.getValue().getLastAccessTime())
+                    oldest = entry;
+            }
+            if (oldest == null)
+                return;
+            if (sessions.remove(oldest.getKey(), oldest.getValue()))
+                listener.sessionEvicted(oldest.getKey());
+        }
+    }
+}
@@ -53,7 +53,7 @@ public class AttrInfoSenderExecutor implements IServerExecutor {
      * @param tree the decision tree that will be traversed
      * @param attributeInfo structure that will contain the attributes' information
      */
-    private void getAttributeInformation(DecisionTree tree, HashMap<String, String[]> attributeInfo){
+    void getAttributeInformation(DecisionTree tree, HashMap<String, String[]> attributeInfo){
         Node node = tree.getRoot();
         if( !(node instanceof LeafNode)){
             getCurrNodeInformation((SplitNode)node, attributeInfo);
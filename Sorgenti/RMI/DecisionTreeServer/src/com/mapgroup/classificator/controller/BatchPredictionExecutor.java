@@ -0,0 +1,60 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.utility.BatchPrediction;
+import com.mapgroup.classificator.utility.Utility;
+import com.mapgroup.to.ServerResponse;
+
+import java.io.File;
+
+/**
+ * This class grants to predict the class values of all the examples
+ * of a dataset, uploaded by the client or read from a database table,
+ * using the current decision tree. The predictions are then asked a page
+ * at a time with the {@link PredictionPageExecutor}.
+ */
+public class BatchPredictionExecutor implements IServerExecutor {
+
+    /**
+     * Reads the dataset specified in the request and prepares the prediction of the class
+     * value of its examples, which the client asks a page at a time.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>decision tree</li>
+     * <li>null</li>
+     * <li>dataset extension, "db" for a database table</li>
+     * <li>the content of the uploaded file, or the name of the table</li>
+     * <li>client ip address</li>
+     * <li>null, replaced by the prepared batch prediction</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the server response which contains the number of examples of the dataset
+     * and a message which displays the result
+     * @throws Exception - if no tree was loaded or the dataset can't be read
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        DecisionTree tree = (DecisionTree) contextRequest.getAttribute(0);
+        String extension = (String) contextRequest.getAttribute(2);
+        String source;
+
+        if (extension.equals("db")) {
+            source = contextRequest.getAttribute(3) + ".db";
+        } else {
+            String downDir = System.getProperty("user.dir")
+                    + File.separator + "download"
+                    + File.separator;
+            Utility.checkDirectory(downDir);
+            source = UploadExecutor.writeFileContent((byte[]) contextRequest.getAttribute(3),
+                    downDir, extension, (String) contextRequest.getAttribute(4));
+        }
+
+        BatchPrediction prediction = new BatchPrediction(tree, source);
+        contextRequest.setAttributes(5, prediction);
+
+        return new ServerResponse(prediction.getNumberOfExamples(), "Read "
+                + prediction.getNumberOfExamples() + " examples of " + source
+                + " to predict their class.\n");
+    }
+}
@@ -2,8 +2,7 @@ package com.mapgroup.classificator.controller;
 
 import com.mapgroup.to.ServerResponse;
 
-import javax.swing.DefaultListModel;
-import javax.swing.JList;
+import java.util.Set;
 
 
 /**
@@ -13,17 +12,16 @@ public class ConnectionCloserExecutor implements IServerExecutor{
 
     /**
      * Sending a specific context structure which contains the current context information, asks to the
-     * server to close the current connection with the specified host and prints all the result
-     * of the operation on a specific panel.
+     * server to close the current connection with the specified client, removing it from the
+     * connected clients.
      *
      * <p>
      * The context request structure must have these specific parameters in the order:
      * <ul>
      * <li>null</li>
      * <li>null</li>
-     * <li>the panel in which are listed all the connected clients</li>
-     * <li>the model associated to the panel</li>
-     * <li>client's ip address</li>
+     * <li>the connected clients</li>
+     * <li>the client, identified by its host and the id of its session</li>
      * </ul>
 
      *
@@ -32,18 +30,14 @@ public class ConnectionCloserExecutor implements IServerExecutor{
      * @throws Exception - if some errors in closing the connection occurred
      */
     public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
-        JList clientArea = (JList)contextRequest.getAttribute(2);
-        @SuppressWarnings("unchecked") DefaultListModel<String> listModel = (DefaultListModel<String>)contextRequest.getAttribute(3);
-        String clientHost = (String)contextRequest.getAttribute(4);
+        @SuppressWarnings("unchecked") Set<String> clients = (Set<String>)contextRequest.getAttribute(2);
+        String clientHost = (String)contextRequest.getAttribute(3);
         ServerResponse response = new ServerResponse();
         response.addAttribute(null);
-        if(listModel.contains(clientHost)){
-            listModel.removeElement(clientHost);
-
-            clientArea.setModel(listModel);
-            response.addAttribute("Client host " + clientHost + " correctly disconnected.");
+        if(clients.remove(clientHost)){
+            response.addAttribute("Client " + clientHost + " correctly disconnected.");
         }else{
-            response.addAttribute("Client host " + clientHost + " wasn't correctly disconnected.");
+            response.addAttribute("Client " + clientHost + " wasn't correctly disconnected.");
         }
 
         return response;
@@ -9,7 +9,6 @@ import com.mapgroup.to.ServerResponse;
 
 
 import java.io.File;
-import javax.swing.JTextArea;
 
 /**
  * This class models the executor used to convert a specific
@@ -26,7 +25,7 @@ public class ConvertExecutor implements IServerExecutor {
      * <li>null</li>
      * <li>dataset</li>
      * <li>an array which contains the file's name and its extension</li>
-     * <li>log panel in which are printed all the result information</li>
+     * <li>client's ip address</li>
      * </ul>
 
      *
@@ -53,8 +52,9 @@ public class ConvertExecutor implements IServerExecutor {
         // the second attribute is the training set
         datasetWriter.write(new RequestStruct(
                 completeFileName, contextRequest.getAttribute(1), data[0]));
-        // the 5th attribute is the text area in which are printed the message
-        byte[] fileContent = new FileSender(completeFileName,(JTextArea)contextRequest.getAttribute(4)).getTransferredFile();
+        // without graphical interface the file is read without showing the progress
+        byte[] fileContent = Utility.isHeadless() ? FileSender.readFile(completeFileName)
+                : new FileSender(completeFileName).getTransferredFile();
         return new ServerResponse(fileContent, "The file " + completeFileName
                 + " was correctly converted.\n");
 
@@ -3,6 +3,7 @@ package com.mapgroup.classificator.controller;
 import com.mapgroup.classificator.data.Data;
 import com.mapgroup.classificator.database.DataException;
 import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.utility.TrainingQueue;
 import com.mapgroup.to.ServerResponse;
 
 /**
@@ -24,20 +25,26 @@ public class DatabaseExecutor implements IServerExecutor {
      * <li>tree</li>
      * <li>dataset</li>
      * <li>table's name</li>
-     *
+     * <li>the training queue of the server</li>
+     * <li>the client, identified by its host and the id of its session</li>
      * </ul>
      *
      * @param contextRequest information about the context in which the computation will be done
      * @return the server response which contains the decision tree string representation and the message which notify the result
-     * @throws Exception - if some errors occurs in the creation of the decision tree or in reading from the database
+     * @throws Exception - if some errors occurs in the creation of the decision tree or in reading from the database,
+     * or if too many trainings are waiting
      */
     public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
         try {
             String tableName = (String)contextRequest.getAttribute(2);
-
-            Data trainingSet = new Data(tableName);
-
-            DecisionTree tree = new DecisionTree(trainingSet);
+            TrainingQueue trainings = (TrainingQueue) contextRequest.getAttribute(3);
+            String clientHost = (String) contextRequest.getAttribute(4);
+
+            // the tree is learnt by the training queue, which limits the trainings running together
+            TrainingQueue.Job job = trainings.submitTable(clientHost, tableName,
+                    TrainingQueue.WAITING_PRIORITY);
+            DecisionTree tree = job.awaitTree();
+            Data trainingSet = job.getTrainingSet();
 
             contextRequest.setAttributes(0,tree);
             contextRequest.setAttributes(1,trainingSet);
@@ -0,0 +1,39 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.utility.TrainingQueue;
+import com.mapgroup.to.ServerResponse;
+
+/**
+ * This class grants the possibility to learn in background the decision tree
+ * of a database table, while the client keeps working.
+ */
+public class DatabaseTrainingExecutor implements IServerExecutor {
+
+    /**
+     * Submits the training of the decision tree of a database table and returns the id of the job,
+     * without waiting for its end. The client asks for the status of the job with the
+     * {@link TrainingStatusExecutor}.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>null</li>
+     * <li>null</li>
+     * <li>table's name</li>
+     * <li>the training queue of the server</li>
+     * <li>the client, identified by its host and the id of its session</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the server response which contains the id of the job
+     * @throws Exception - if too many trainings are waiting
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        String tableName = (String) contextRequest.getAttribute(2);
+        TrainingQueue trainings = (TrainingQueue) contextRequest.getAttribute(3);
+        String clientHost = (String) contextRequest.getAttribute(4);
+
+        TrainingQueue.Job job = trainings.submitTable(clientHost, tableName,
+                TrainingQueue.BACKGROUND_PRIORITY);
+        return new ServerResponse(job.getId(), null);
+    }
+}
@@ -0,0 +1,53 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.utility.BatchPrediction;
+import com.mapgroup.to.ServerResponse;
+
+/**
+ * This class grants to receive the predictions of the dataset sent with the
+ * last batch prediction a page at a time, so that they are never held all at
+ * once. The server keeps the dataset, in the columns of a {@code Data}, until
+ * the last page is asked.
+ */
+public class PredictionPageExecutor implements IServerExecutor {
+
+    /**
+     * Predicts the class values of a page of examples of the last batch prediction of the client.
+     * A page holds at most {@link BatchPrediction#CHUNK_SIZE} predictions. When the page reaches
+     * the last example, the batch prediction is discarded: the pages must be asked in order.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>null</li>
+     * <li>null</li>
+     * <li>the index of the first example of the page</li>
+     * <li>the greatest number of examples of the page</li>
+     * <li>the last batch prediction of the client, replaced by null after the last page</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the server response which contains the array of the predicted class values, in the order
+     * of the examples (<code>null</code> for the examples with values unknown by the tree), and a message
+     * which displays the result
+     * @throws Exception - if the client has no batch prediction or the page isn't valid
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        int offset = (Integer) contextRequest.getAttribute(2), limit = (Integer) contextRequest.getAttribute(3);
+        BatchPrediction prediction = (BatchPrediction) contextRequest.getAttribute(4);
+        if (prediction == null)
+            throw new Exception("No dataset was sent for the batch prediction.");
+
+        String[] predictions = prediction.predict(offset, limit);
+        if (offset + predictions.length >= prediction.getNumberOfExamples())
+            contextRequest.setAttributes(4, null);
+        int unknownExamples = 0;
+        for (String value : predictions) {
+            if (value == null)
+                unknownExamples++;
+        }
+
+        return new ServerResponse(predictions, "Predicted the class of examples " + offset + "-"
+                + (offset + predictions.length) + " of " + prediction.getNumberOfExamples() + " ("
+                + unknownExamples + " with unknown values).\n");
+    }
+}
@@ -47,6 +47,18 @@ public class ServerExecutorFactory {
         	return new ConnectionCloserExecutor();
             case ATTRIBUTES_INFORMATION: 
         	return new AttrInfoSenderExecutor();
+            case BATCH_PREDICTION:
+                return new BatchPredictionExecutor();
+            case TREE_SNAPSHOT:
+                return new TreeSnapshotExecutor();
+            case SUBMIT_DB_TRAINING:
+                return new DatabaseTrainingExecutor();
+            case SUBMIT_UPLOAD_TRAINING:
+                return new UploadTrainingExecutor();
+            case TRAINING_STATUS:
+                return new TrainingStatusExecutor();
+            case PREDICTION_PAGE:
+                return new PredictionPageExecutor();
         }
         return null;
     }
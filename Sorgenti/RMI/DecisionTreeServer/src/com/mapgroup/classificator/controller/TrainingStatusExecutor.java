@@ -0,0 +1,48 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.utility.TrainingQueue;
+import com.mapgroup.to.ServerResponse;
+import com.mapgroup.to.TrainingJobTO;
+
+/**
+ * This class grants the possibility to follow a training submitted in background
+ * and to receive its decision tree.
+ */
+public class TrainingStatusExecutor implements IServerExecutor {
+
+    /**
+     * Returns the status of a training job, waiting for its end at most for the time asked by
+     * the client (see {@link TrainingQueue#MAX_STATUS_WAIT}). When the job is completed, its tree
+     * and its dataset become the current ones of the client.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>null, replaced by the learnt tree when the job is completed</li>
+     * <li>null, replaced by the dataset of the tree when the job is completed</li>
+     * <li>the id of the job</li>
+     * <li>the milliseconds to wait for the end of the job</li>
+     * <li>the training queue of the server</li>
+     * <li>the client, identified by its host and the id of its session</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the server response which contains the status of the job
+     * @throws Exception - if the client has no job with the specified id
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        long id = (Long) contextRequest.getAttribute(2), wait = (Long) contextRequest.getAttribute(3);
+        TrainingQueue trainings = (TrainingQueue) contextRequest.getAttribute(4);
+        String clientHost = (String) contextRequest.getAttribute(5);
+
+        TrainingQueue.Job job = trainings.getJob(clientHost, id);
+        if (job == null)
+            throw new Exception("Unknown training job " + id + ".");
+
+        TrainingJobTO status = job.getStatus(wait);
+        if (status.getState() == TrainingJobTO.State.COMPLETED) {
+            contextRequest.setAttributes(0, job.getTree());
+            contextRequest.setAttributes(1, job.getTrainingSet());
+        }
+        return new ServerResponse(status, null);
+    }
+}
@@ -0,0 +1,95 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.tree.LeafNode;
+import com.mapgroup.classificator.tree.NoTreeExists;
+import com.mapgroup.classificator.tree.SplitNode;
+import com.mapgroup.to.ServerResponse;
+import com.mapgroup.to.TreeSnapshotTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * This class grants the possibility to send to the client a compact copy
+ * of the current decision tree, which the client uses to make its predictions
+ * by itself.
+ */
+public class TreeSnapshotExecutor implements IServerExecutor {
+
+    /**
+     * Sends the snapshot of the current decision tree, unless the client already has its version.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>decision tree</li>
+     * <li>null</li>
+     * <li>the version of the snapshot owned by the client, <code>-1</code> if it has none</li>
+     * <li>the version of the current decision tree</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the response which contains the snapshot, or <code>null</code> if the client's one is still current
+     * @throws Exception - if no tree was loaded
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        DecisionTree tree = (DecisionTree) contextRequest.getAttribute(0);
+        long clientVersion = (Long) contextRequest.getAttribute(2), version = (Long) contextRequest.getAttribute(3);
+
+        if (tree == null)
+            throw new NoTreeExists();
+
+        if (clientVersion == version)
+            return new ServerResponse(null, null);
+
+        List<String> attributeNames = new ArrayList<String>();
+        List<Integer> childOffsets = new ArrayList<Integer>();
+        List<Integer> children = new ArrayList<Integer>();
+        List<String> predictedValues = new ArrayList<String>();
+        addNode(tree, attributeNames, childOffsets, children, predictedValues);
+        childOffsets.add(children.size());
+
+        HashMap<String, String[]> attributeInfo = new HashMap<String, String[]>();
+        new AttrInfoSenderExecutor().getAttributeInformation(tree, attributeInfo);
+
+        return new ServerResponse(new TreeSnapshotTO(version,
+                attributeNames.toArray(new String[attributeNames.size()]),
+                toArray(childOffsets), toArray(children),
+                predictedValues.toArray(new String[predictedValues.size()]), attributeInfo), null);
+    }
+
+    /**
+     * Adds a subtree, in pre-order, to the arrays of the snapshot.
+     *
+     * @return the number of the root of the subtree
+     */
+    private int addNode(DecisionTree tree, List<String> attributeNames, List<Integer> childOffsets,
+                        List<Integer> children, List<String> predictedValues) {
+        int node = attributeNames.size();
+
+        childOffsets.add(children.size());
+        if (tree.getRoot() instanceof LeafNode) {
+            attributeNames.add(null);
+            predictedValues.add(((LeafNode) tree.getRoot()).getPredictedClassValue());
+        } else {
+            attributeNames.add(((SplitNode) tree.getRoot()).getAttribute().getName());
+            predictedValues.add(null);
+
+            // the slots of the children follow the ones of the previous nodes
+            int offset = children.size();
+            for (int i = 0; i < tree.getNumberOfChildren(); i++)
+                children.add(-1);
+            for (int i = 0; i < tree.getNumberOfChildren(); i++)
+                children.set(offset + i, addNode(tree.subTree(i), attributeNames, childOffsets, children, predictedValues));
+        }
+        return node;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++)
+            array[i] = values.get(i);
+        return array;
+    }
+}
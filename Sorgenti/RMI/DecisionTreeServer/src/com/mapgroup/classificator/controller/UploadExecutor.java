@@ -3,6 +3,7 @@ package com.mapgroup.classificator.controller;
 import com.mapgroup.classificator.data.Data;
 import com.mapgroup.classificator.database.DataException;
 import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.utility.TrainingQueue;
 import com.mapgroup.classificator.utility.Utility;
 import com.mapgroup.to.ServerResponse;
 
@@ -32,6 +33,8 @@ public class UploadExecutor implements IServerExecutor {
      * <li>file extension</li>
      * <li>the content of the file that will be uploaded</li>
      * <li>client ip address</li>
+     * <li>the training queue of the server</li>
+     * <li>the client, identified by its host and the id of its session</li>
      * </ul>
      *
      * @param contextRequest information about the context in which the computation will be done
@@ -52,8 +55,12 @@ public class UploadExecutor implements IServerExecutor {
         String fileSaved = writeFileContent(
                 fileContent, downDir, extension, clientHost);
         try {
-            Data trainingSet = new Data(fileSaved);
-            DecisionTree tree = new DecisionTree(trainingSet);
+            TrainingQueue trainings = (TrainingQueue) contextRequest.getAttribute(5);
+            String client = (String) contextRequest.getAttribute(6);
+            TrainingQueue.Job job = trainings.submitFile(client, fileSaved,
+                    TrainingQueue.WAITING_PRIORITY);
+            DecisionTree tree = job.awaitTree();
+            Data trainingSet = job.getTrainingSet();
 
             contextRequest.setAttributes(0, tree);
             contextRequest.setAttributes(1, trainingSet);
@@ -81,7 +88,7 @@ public class UploadExecutor implements IServerExecutor {
      * @return The complete filepath of the uploaded file
      * @throws IOException - if some errors occurs in writing the file
      */
-    private String writeFileContent(byte[] fileContent, String downDir, String extension, String clientHost) throws IOException {
+    static String writeFileContent(byte[] fileContent, String downDir, String extension, String clientHost) throws IOException {
         String tempName = downDir + clientHost + "." + extension;
         String fileName = Utility.getAvailableName(tempName);
         BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(fileName));
@@ -0,0 +1,51 @@
+package com.mapgroup.classificator.controller;
+
+import com.mapgroup.classificator.utility.TrainingQueue;
+import com.mapgroup.classificator.utility.Utility;
+import com.mapgroup.to.ServerResponse;
+
+import java.io.File;
+
+/**
+ * This class grants the possibility to upload a dataset and to learn its
+ * decision tree in background, while the client keeps working.
+ */
+public class UploadTrainingExecutor implements IServerExecutor {
+
+    /**
+     * Saves the file uploaded by the client, as the {@link UploadExecutor} does, and submits the
+     * training of its decision tree, returning the id of the job without waiting for its end.
+     * <p>
+     * The context request structure must have these specific parameters in the order:
+     * <ul>
+     * <li>null</li>
+     * <li>null</li>
+     * <li>file extension</li>
+     * <li>the content of the file that will be uploaded</li>
+     * <li>client ip address</li>
+     * <li>the training queue of the server</li>
+     * <li>the client, identified by its host and the id of its session</li>
+     * </ul>
+     *
+     * @param contextRequest information about the context in which the computation will be done
+     * @return the server response which contains the id of the job and a message which displays the result
+     * @throws Exception - if the file can't be saved or too many trainings are waiting
+     */
+    public ServerResponse executeCommand(ContextRequest contextRequest) throws Exception {
+        String downDir = System.getProperty("user.dir")
+                + File.separator + "download"
+                + File.separator;
+        String extension = (String) contextRequest.getAttribute(2), clientHost = (String) contextRequest.getAttribute(4);
+        byte[] fileContent = (byte[]) contextRequest.getAttribute(3);
+        TrainingQueue trainings = (TrainingQueue) contextRequest.getAttribute(5);
+        String client = (String) contextRequest.getAttribute(6);
+
+        Utility.checkDirectory(downDir);
+        String fileSaved = UploadExecutor.writeFileContent(
+                fileContent, downDir, extension, clientHost);
+
+        TrainingQueue.Job job = trainings.submitFile(client, fileSaved,
+                TrainingQueue.BACKGROUND_PRIORITY);
+        return new ServerResponse(job.getId(), "Download of " + fileSaved + " completed.\n");
+    }
+}
@@ -5,7 +5,7 @@ import com.mapgroup.classificator.filemanager.RequestStruct;
 import com.mapgroup.classificator.filemanager.reader.DataReader;
 import com.mapgroup.classificator.filemanager.reader.DataReaderFactory;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -14,25 +14,41 @@ import java.util.List;
 public class Data {
 
     /**
-     * N*M matrix of type object that contains the training set.
-     * <p>The training set is organized as (number of examples) * (number of attributes)</p>
+     * Values of the continuous attributes organized by column.
+     * <p>The column of the i-th explanatory attribute is stored in position i when
+     * the attribute is a <code>ContinuousAttribute</code>, otherwise that position is <code>null</code></p>
      */
-    private Object data[][];
+    private final float[][] continuousColumns;
+
+    /**
+     * Values of the discrete attributes organized by column.
+     * <p>Each cell contains the position of the value in the sorted values of the
+     * <code>DiscreteAttribute</code>. The column of the i-th explanatory attribute is stored
+     * in position i when the attribute is discrete, otherwise that position is <code>null</code></p>
+     */
+    private final int[][] discreteColumns;
+
+    /**
+     * Column of the class attribute, encoded as the position of each value
+     * in the sorted values of <code>classAttribute</code>
+     */
+    private final int[] classColumn;
 
     /**
      * cardinality of the training set
      */
-    private int numberOfExamples;
+    private final int numberOfExamples;
 
     /**
-     * List of <code>Attribute</code> to represent the attributes
+     * Array of <code>Attribute</code> to represent the attributes
      */
-    private List<Attribute> explanatorySet;
+    private final Attribute[] explanatorySet;
 
     /**
-     * Class attribute is a <code>DiscreteAttribute</code>
+     * Class attribute is a <code>DiscreteAttribute</code>, <code>null</code> for a
+     * dataset read without class
      */
-    private DiscreteAttribute classAttribute;
+    private final DiscreteAttribute classAttribute;
 
     /**
      * Initializes this training set using a formatted file with name fileName
@@ -43,19 +59,71 @@ public class Data {
      */
 
     public Data(String fileName) throws DataException {
+        this(fileName, 0, true);
+    }
+
+    /**
+     * Initializes a dataset whose class is unknown, e.g. to predict it, reading only the first
+     * <code>numberOfAttributes</code> columns of the formatted file with name fileName as
+     * explanatory attributes. The following columns, the class one included if present, are
+     * ignored, and the class values of the examples can't be asked.
+     *
+     * @param fileName           is the name of formatted file
+     * @param numberOfAttributes number of columns read as explanatory attributes
+     * @throws DataException is launched when there are an error to create data set
+     *                       or the file has less columns
+     */
+    public Data(String fileName, int numberOfAttributes) throws DataException {
+        this(fileName, numberOfAttributes, false);
+    }
+
+    /**
+     * Reads the dataset of a formatted file.
+     *
+     * @param fileName           is the name of formatted file
+     * @param numberOfAttributes number of columns read as explanatory attributes, ignored when
+     *                           the last column is the class one
+     * @param withClass          <code>true</code> if the last column is the class one
+     * @throws DataException is launched when there are an error to create data set
+     */
+    private Data(String fileName, int numberOfAttributes, boolean withClass) throws DataException {
 
         try {
             RequestStruct rs = new RequestStruct(fileName);
             DataReader reader = DataReaderFactory.getDataReader(rs);
 
             reader.initPopulator(rs);
-            data = reader.tupleFactory(rs);
+            Object[][] data = reader.tupleFactory(rs);
             numberOfExamples = data.length;
 
-            explanatorySet = new LinkedList<Attribute>();
-            reader.retrieveIndependentAttribute(data, explanatorySet);
-            classAttribute = reader.retrieveClassValue(data);
-
+            List<Attribute> attributes = new ArrayList<Attribute>();
+            if (withClass) {
+                reader.retrieveIndependentAttribute(data, attributes);
+            } else if (numberOfExamples > 0 && data[0].length < numberOfAttributes) {
+                throw new DataException("The dataset " + fileName + " has " + data[0].length
+                        + " columns, " + numberOfAttributes + " attributes are needed.");
+            } else {
+                reader.retrieveIndependentAttribute(data, attributes, numberOfExamples > 0 ? numberOfAttributes : 0);
+            }
+            explanatorySet = attributes.toArray(new Attribute[attributes.size()]);
+            classAttribute = withClass ? reader.retrieveClassValue(data) : null;
+
+            // moves the read values in the columns, the matrix is discarded at the end of the constructor
+            continuousColumns = new float[explanatorySet.length][];
+            discreteColumns = new int[explanatorySet.length][];
+            for (int k = 0; k < explanatorySet.length; k++) {
+                int col = explanatorySet[k].getIndex();
+                if (explanatorySet[k] instanceof DiscreteAttribute) {
+                    discreteColumns[k] = encodeColumn(data, col, (DiscreteAttribute) explanatorySet[k]);
+                } else {
+                    float[] column = new float[numberOfExamples];
+                    for (int i = 0; i < numberOfExamples; i++) {
+                        column[i] = (Float) data[i][col];
+                    }
+                    continuousColumns[k] = column;
+                }
+            }
+            classColumn = withClass ? encodeColumn(data, classAttribute.getIndex(), classAttribute) : null;
 
         } catch (Exception e) {
             throw new DataException(e.getMessage());
@@ -63,6 +131,24 @@ public class Data {
 
     }
 
+    /**
+     * Replaces each value of the column <code>col</code> of the read matrix with its
+     * position in the sorted values of the specified discrete attribute
+     *
+     * @param data      matrix returned by the reader
+     * @param col       column of the matrix that will be encoded
+     * @param attribute discrete attribute which owns the column
+     * @return the encoded column
+     */
+
+    private static int[] encodeColumn(Object[][] data, int col, DiscreteAttribute attribute) {
+        int[] column = new int[data.length];
+        for (int i = 0; i < data.length; i++) {
+            column[i] = attribute.getCode((String) data[i][col]);
+        }
+        return column;
+    }
+
     /**
      * Constructs this object with the classical playtennis example dataset
      */
@@ -199,7 +285,7 @@ public class Data {
      */
 
     public int getNumberOfExplanatoryAttributes() {
-        return explanatorySet.size();
+        return explanatorySet.length;
     }
 
     /**
@@ -210,7 +296,19 @@ public class Data {
      */
 
     public String getClassValue(int exampleIndex) {
-        return (String) data[exampleIndex][classAttribute.getIndex()];
+        return classAttribute.getValue(classColumn[exampleIndex]);
+    }
+
+    /**
+     * Returns the code of the class value for the example indexed by input.
+     * <p>The code is the position of the value in the sorted values of the class <code>Attribute</code></p>
+     *
+     * @param exampleIndex row index to a specific example
+     * @return code of the class value for the exampleIndex
+     */
+
+    public int getClassCode(int exampleIndex) {
+        return classColumn[exampleIndex];
     }
 
     /**
@@ -222,7 +320,36 @@ public class Data {
      */
 
     public Object getExplanatoryValue(int exampleIndex, int attributeIndex) {
-        return data[exampleIndex][explanatorySet.get(attributeIndex).getIndex()];
+        if (discreteColumns[attributeIndex] != null) {
+            return ((DiscreteAttribute) explanatorySet[attributeIndex]).getValue(discreteColumns[attributeIndex][exampleIndex]);
+        }
+        return continuousColumns[attributeIndex][exampleIndex];
+    }
+
+    /**
+     * Returns the value of the continuous attribute indexed by <code>attributeIndex</code> for the
+     * example <code>exampleIndex</code> without boxing it
+     *
+     * @param exampleIndex   row index to a specific example
+     * @param attributeIndex index of a <code>ContinuousAttribute</code> in explanatory set
+     * @return value of the continuous attribute for the example indexed by input
+     */
+
+    public float getContinuousValue(int exampleIndex, int attributeIndex) {
+        return continuousColumns[attributeIndex][exampleIndex];
+    }
+
+    /**
+     * Returns the code of the value of the discrete attribute indexed by <code>attributeIndex</code>
+     * for the example <code>exampleIndex</code>
+     *
+     * @param exampleIndex   row index to a specific example
+     * @param attributeIndex index of a <code>DiscreteAttribute</code> in explanatory set
+     * @return position of the value in the sorted values of the attribute
+     */
+
+    public int getDiscreteCode(int exampleIndex, int attributeIndex) {
+        return discreteColumns[attributeIndex][exampleIndex];
     }
 
     /**
@@ -233,7 +360,7 @@ public class Data {
      */
 
     public Attribute getExplanatoryAttribute(int index) {
-        return explanatorySet.get(index);
+        return explanatorySet[index];
     }
 
     /**
@@ -256,155 +383,159 @@ public class Data {
     public String toString() {
         String value = "";
         for (int i = 0; i < numberOfExamples; i++) {
-            for (int j = 0; j < explanatorySet.size(); j++) {
-                value += data[i][j] + ",";
+            for (int j = 0; j < explanatorySet.length; j++) {
+                value += getExplanatoryValue(i, j) + ",";
             }
 
-            value += data[i][explanatorySet.size()] + "\n";
+            value += (classAttribute != null ? getClassValue(i) : "") + "\n";
         }
         return value;
 
     }
 
     /**
-     * Orders the subset of examples in the range [<code>beginExampleIndex</code>][<code>endExampleIndex</code>] on <code>data</code>
-     * with respect to the specific attribute
+     * Orders the positions [<code>beginExampleIndex</code>][<code>endExampleIndex</code>] of <code>examples</code>
+     * with respect to the specific attribute.
+     * <p>Only the permutation is rearranged: the columns keep the original order of the examples.</p>
      *
      * @param attribute         attribute values ​​which have to be ordered
+     * @param examples          permutation of the example indexes
      * @param beginExampleIndex value of example where the order start
      * @param endExampleIndex   value of example where the order end
      */
 
-    public void sort(Attribute attribute, int beginExampleIndex,
+    public void sort(Attribute attribute, int[] examples, int beginExampleIndex,
                      int endExampleIndex) {
-        quicksort(attribute, beginExampleIndex, endExampleIndex);
+        quicksort(attribute, examples, beginExampleIndex, endExampleIndex);
     }
 
 
     /**
-     * Quick sort algorithm for ordering the tuples contained in the subset(<code>inf</code>, <code>sup</code>)
+     * Quick sort algorithm for ordering the example indexes contained in the subset(<code>inf</code>, <code>sup</code>)
      * using the proper order relationship of the specified attribute, <code>attribute</code>
      *
      * @param attribute attribute values ​​which have to be ordered
+     * @param examples  permutation of the example indexes
      * @param inf       value of example where the order start
      * @param sup       value of example where the order end
      */
 
-    private void quicksort(Attribute attribute, int inf, int sup) {
+    private void quicksort(Attribute attribute, int[] examples, int inf, int sup) {
 
         if (sup >= inf) {
 
             int pos;
             if (attribute instanceof DiscreteAttribute) {
-                pos = partition((DiscreteAttribute) attribute, inf, sup);
+                pos = partition((DiscreteAttribute) attribute, examples, inf, sup);
             } else {
-                pos = partition((ContinuousAttribute) attribute, inf, sup);
+                pos = partition((ContinuousAttribute) attribute, examples, inf, sup);
             }
 
             if ((pos - inf) < (sup - pos + 1)) {
-                quicksort(attribute, inf, pos - 1);
-                quicksort(attribute, pos + 1, sup);
+                quicksort(attribute, examples, inf, pos - 1);
+                quicksort(attribute, examples, pos + 1, sup);
             } else {
-                quicksort(attribute, pos + 1, sup);
-                quicksort(attribute, inf, pos - 1);
+                quicksort(attribute, examples, pos + 1, sup);
+                quicksort(attribute, examples, inf, pos - 1);
             }
         }
     }
 
     /**
-     * Partitions the tuples with discrete value contained in the subset(<code>inf</code>, <code>sup</code>) and returns the point of separation
+     * Partitions the example indexes with discrete value contained in the subset(<code>inf</code>, <code>sup</code>) and returns the point of separation
      *
      * @param attribute attribute values ​​which have to be ordered
+     * @param examples  permutation of the example indexes
      * @param inf       value of example where the order start
      * @param sup       value of example where the order end
      * @return the index of the pivotal element
      */
 
-    private int partition(DiscreteAttribute attribute, int inf, int sup) {
+    private int partition(DiscreteAttribute attribute, int[] examples, int inf, int sup) {
         int i, j;
 
         i = inf;
         j = sup;
         int med = (inf + sup) / 2;
-        String x = (String) getExplanatoryValue(med, attribute.getIndex());
-        swap(inf, med);
+        // the codes follow the order of the sorted values, so they can be compared in place of the strings
+        int[] column = discreteColumns[attribute.getIndex()];
+        int x = column[examples[med]];
+        swap(examples, inf, med);
 
         while (true) {
-            while (i <= sup && ((String) getExplanatoryValue(i, attribute.getIndex())).compareTo(x) <= 0)
+            while (i <= sup && column[examples[i]] <= x)
                 i++;
 
-            while (((String) getExplanatoryValue(j, attribute.getIndex())).compareTo(x) > 0)
+            while (column[examples[j]] > x)
                 j--;
 
             if (i < j)
-                swap(i, j);
+                swap(examples, i, j);
             else
                 break;
 
         }
 
-        swap(inf, j);
+        swap(examples, inf, j);
         return j;
 
     }
 
     /**
-     * Partitions the tuples with continuous value contained in the subset(<code>inf</code>, <code>sup</code>) and returns the point of separation
+     * Partitions the example indexes with continuous value contained in the subset(<code>inf</code>, <code>sup</code>) and returns the point of separation
      *
      * @param attribute The attribute on which the sorting is being performed
+     * @param examples  Permutation of the example indexes
      * @param inf Lower bound of the partition
      * @param sup Upper bound of the partition
      * @return the index of the pivotal element
      */
 
-    private int partition(ContinuousAttribute attribute, int inf, int sup) {
+    private int partition(ContinuousAttribute attribute, int[] examples, int inf, int sup) {
         int i, j;
 
         i = inf;
         j = sup;
         int med = (inf + sup) / 2;
-        Float x = (Float) getExplanatoryValue(med, attribute.getIndex());
-        swap(inf, med);
+        float[] column = continuousColumns[attribute.getIndex()];
+        float x = column[examples[med]];
+        swap(examples, inf, med);
 
         while (true) {
 
-            while (i <= sup
-                    && ((Float) getExplanatoryValue(i, attribute.getIndex())) <= x) {
+            while (i <= sup && column[examples[i]] <= x) {
                 i++;
 
             }
 
-            while (((Float) getExplanatoryValue(j, attribute.getIndex())) > x) {
+            while (column[examples[j]] > x) {
                 j--;
 
             }
 
             if (i < j) {
-                swap(i, j);
+                swap(examples, i, j);
             } else {
                 break;
             }
         }
-        swap(inf, j);
+        swap(examples, inf, j);
         return j;
 
     }
 
     /**
-     * Swapping of param <code>i</code> and <code>j</code>
+     * Swapping of the cells <code>i</code> and <code>j</code> of an index array
      *
-     * @param i first param
-     * @param j second param
+     * @param indexes array of example indexes
+     * @param i       first cell
+     * @param j       second cell
      */
 
-    private void swap(int i, int j) {
-        Object temp;
-        for (int k = 0; k < getNumberOfExplanatoryAttributes() + 1; k++) {
-            temp = data[i][k];
-            data[i][k] = data[j][k];
-            data[j][k] = temp;
-        }
-
+    private static void swap(int[] indexes, int i, int j) {
+        int temp = indexes[i];
+        indexes[i] = indexes[j];
+        indexes[j] = temp;
     }
 
 	/*
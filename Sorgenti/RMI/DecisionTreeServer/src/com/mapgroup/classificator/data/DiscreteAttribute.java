@@ -1,16 +1,31 @@
 package com.mapgroup.classificator.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.HashMap;
+
 /**
  * This class represents an attribute with only discrete values
  */
 
 public class DiscreteAttribute extends Attribute {
+    /**
+     * Version of the serialized form, kept stable in order to read the trees saved in the dataset folder
+     */
+    private static final long serialVersionUID = -1629778660279945289L;
+
     /**
      * Possible values for this attribute
      *
      */
     private final String[] values;
 
+    /**
+     * Dictionary which maps each possible value to its position in <code>values</code>.
+     * <p>The position is used as the integer code of the value in the training set</p>
+     */
+    private transient HashMap<String, Integer> codes;
+
     /**
      * Initialize this attribute with input values
      *
@@ -22,6 +37,33 @@ public class DiscreteAttribute extends Attribute {
         // calls the superclass constructor
         super(name, index);
         this.values = values;
+        this.codes = buildCodes(values);
+    }
+
+    /**
+     * Builds the dictionary of the codes for the specified values
+     *
+     * @param values possible values for this attribute
+     * @return the dictionary value-code
+     */
+    private static HashMap<String, Integer> buildCodes(String[] values) {
+        HashMap<String, Integer> codes = new HashMap<String, Integer>();
+        for (int i = 0; i < values.length; i++) {
+            codes.put(values[i], i);
+        }
+        return codes;
+    }
+
+    /**
+     * Restores the dictionary of the codes, which is not serialized with the attribute
+     *
+     * @param in stream from which the attribute is read
+     * @throws IOException            - if some errors occurred reading the stream
+     * @throws ClassNotFoundException - if an invalid class was read
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        codes = buildCodes(values);
     }
 
     /**
@@ -42,4 +84,16 @@ public class DiscreteAttribute extends Attribute {
     public String getValue(int i) {
         return values[i];
     }
+
+    /**
+     * Return the code of the input value, that is its position among the possible values for this attribute.
+     * <p>The possible values are sorted, so the codes follow the natural order of the values</p>
+     *
+     * @param value attribute's value
+     * @return code of the value, or <code>-1</code> if the value doesn't belong to this attribute
+     */
+    public int getCode(String value) {
+        Integer code = codes.get(value);
+        return (code == null) ? -1 : code;
+    }
 }
@@ -152,7 +152,7 @@ class ArffReader extends DataReader {
                 	in.close();
                 	throw new Exception("Unsupported jolly character '?'");
                     }
-                    data[i][j] = values[j];
+                    data[i][j] = intern(j, values[j]);
                 }
             }
         }
@@ -70,7 +70,8 @@ class dbReader extends DataReader {
 
         for (int i = 0; i < tuples.size(); i++) {
             for (int j = 0; j < numColumns; j++) {
-                data[i][j] = tuples.get(i).tuple.get(j);
+                Object value = tuples.get(i).tuple.get(j);
+                data[i][j] = (value instanceof String) ? intern(j, (String) value) : value;
             }
         }
 
@@ -9,44 +9,67 @@ import java.util.List;
 
 public class ContinuousNode extends SplitNode {
 
-    public ContinuousNode(Data trainingSet, int beginExampelIndex, int endExampleIndex, ContinuousAttribute attribute) {
-        super(trainingSet, beginExampelIndex, endExampleIndex, attribute);
+    private static final long serialVersionUID = 1280504694401663211L;
 
+    public ContinuousNode(Data trainingSet, int[] examples, int beginExampelIndex, int endExampleIndex, int[] classFrequencies, ContinuousAttribute attribute) {
+        super(trainingSet, examples, beginExampelIndex, endExampleIndex, classFrequencies, attribute);
+
+    }
+
+    ContinuousNode(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex, int endExampleIndex, int[] classFrequencies, ContinuousAttribute attribute) {
+        super(trainingSet, histogram, beginExampleIndex, endExampleIndex, classFrequencies, attribute);
     }
     
-    protected void setSplitInfo(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
+    protected void setSplitInfo(Data trainingSet, int[] examples, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
         //Update mapSplit defined in SplitNode -- contiene gli indici del partizionamento
-        Float currentSplitValue = (Float) trainingSet.getExplanatoryValue(beginExampleIndex, attribute.getIndex());
+        int numberOfClasses = trainingSet.getClassAttribute().getNumOfDistinctValues();
+        int numberOfExamples = endExampleIndex - beginExampleIndex + 1;
+
+        // class frequencies at the left (<=) and at the right (>) of the current boundary
+        int[] leftFrequencies = new int[numberOfClasses];
+        int[] rightFrequencies = classFrequencies.clone();
+
+        float currentSplitValue = trainingSet.getContinuousValue(examples[beginExampleIndex], attribute.getIndex());
         float bestInfoGain = 0;
-        List<SplitInfo> bestMapSplit = null;
+        float bestSplitValue = 0;
+        int bestBoundary = -1;
 
         for (int i = beginExampleIndex + 1; i <= endExampleIndex; i++) {
-            Float value = (Float) trainingSet.getExplanatoryValue(i, attribute.getIndex());
-            if (value.floatValue() != currentSplitValue.floatValue()) {
-                if (bestMapSplit == null) {
-                    bestMapSplit = new ArrayList<SplitInfo>();
-                    bestMapSplit.add(new SplitInfo(currentSplitValue, beginExampleIndex, i - 1, 0, "<="));
-                    bestMapSplit.add(new SplitInfo(currentSplitValue, i, endExampleIndex, 1, ">"));
+            // the example i - 1 moves at the left of the boundary
+            int classCode = trainingSet.getClassCode(examples[i - 1]);
+            leftFrequencies[classCode]++;
+            rightFrequencies[classCode]--;
+
+            float value = trainingSet.getContinuousValue(examples[i], attribute.getIndex());
+            if (value != currentSplitValue) {
+                if (bestBoundary == -1) {
+                    bestBoundary = i;
+                    bestSplitValue = currentSplitValue;
                 } else {
                     //compute entropy=sum_i{pi*E(i)} i=1..m ;m = number of classes
                     float splitEntropy = 0;
-                    float p = ((float) ((i - 1) - beginExampleIndex + 1)) / (endExampleIndex - beginExampleIndex + 1);
-                    float localEntropy = new LeafNode(trainingSet, beginExampleIndex, i - 1).getEntropy();
-                    splitEntropy += (p * localEntropy);
-                    p = ((float) (endExampleIndex - i + 1)) / (endExampleIndex - beginExampleIndex + 1);
-                    localEntropy = new LeafNode(trainingSet, i, endExampleIndex).getEntropy();
-                    splitEntropy += (p * localEntropy);
+                    float p = ((float) (i - beginExampleIndex)) / numberOfExamples;
+                    splitEntropy += (p * computeEntropy(leftFrequencies, i - beginExampleIndex));
+                    p = ((float) (endExampleIndex - i + 1)) / numberOfExamples;
+                    splitEntropy += (p * computeEntropy(rightFrequencies, endExampleIndex - i + 1));
                     //compute info gain
-                    infoGain = entropy - splitEntropy;
-                    if (bestInfoGain < infoGain) {
-                        bestInfoGain = infoGain;
-                        bestMapSplit.set(0, new SplitInfo(currentSplitValue, beginExampleIndex, i - 1, 0, "<="));
-                        bestMapSplit.set(1, new SplitInfo(currentSplitValue, i, endExampleIndex, 1, ">"));
+                    float gain = entropy - splitEntropy;
+                    if (bestInfoGain < gain) {
+                        bestInfoGain = gain;
+                        bestBoundary = i;
+                        bestSplitValue = currentSplitValue;
                     }
                 }
                 currentSplitValue = value;
             }
         }
+
+        List<SplitInfo> bestMapSplit = null;
+        if (bestBoundary != -1) {
+            bestMapSplit = new ArrayList<SplitInfo>();
+            bestMapSplit.add(new SplitInfo(bestSplitValue, beginExampleIndex, bestBoundary - 1, 0, "<="));
+            bestMapSplit.add(new SplitInfo(bestSplitValue, bestBoundary, endExampleIndex, 1, ">"));
+        }
         mapSplit = bestMapSplit;
         //rimuovo split inutili (che includono tutti gli esempi nella stessa partizione)
 
@@ -57,6 +80,81 @@ public class ContinuousNode extends SplitNode {
 
     }
 
+    protected void setSplitInfo(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
+        int numberOfExamples = endExampleIndex - beginExampleIndex + 1;
+
+        // class frequencies at the left (<=) and at the right (>) of the current boundary
+        int[] leftFrequencies = new int[classFrequencies.length];
+        int[] rightFrequencies = classFrequencies.clone();
+        int leftSize = 0;
+
+        float bestInfoGain = 0;
+        int[] bestLeftFrequencies = null;
+        int bestLeftSize = 0;
+        int bestBin = -1;
+        int previousBin = -1;
+
+        for (int bin = 0; bin < histogram.getNumberOfRows(); bin++) {
+            int size = histogram.getRowSize(bin);
+            if (size == 0) {
+                continue;
+            }
+            // boundary between the previous non empty bin and this one
+            if (previousBin != -1) {
+                boolean better = bestBin == -1;
+                if (!better) {
+                    //compute entropy=sum_i{pi*E(i)} i=1..m ;m = number of classes
+                    float splitEntropy = 0;
+                    float p = ((float) leftSize) / numberOfExamples;
+                    splitEntropy += (p * computeEntropy(leftFrequencies, leftSize));
+                    p = ((float) (numberOfExamples - leftSize)) / numberOfExamples;
+                    splitEntropy += (p * computeEntropy(rightFrequencies, numberOfExamples - leftSize));
+                    //compute info gain
+                    float gain = entropy - splitEntropy;
+                    if (bestInfoGain < gain) {
+                        bestInfoGain = gain;
+                        better = true;
+                    }
+                }
+                if (better) {
+                    bestBin = previousBin;
+                    bestLeftSize = leftSize;
+                    bestLeftFrequencies = leftFrequencies.clone();
+                }
+            }
+
+            int[] binFrequencies = histogram.getFrequencies(bin);
+            for (int c = 0; c < binFrequencies.length; c++) {
+                leftFrequencies[c] += binFrequencies[c];
+                rightFrequencies[c] -= binFrequencies[c];
+            }
+            leftSize += size;
+            previousBin = bin;
+        }
+
+        if (bestBin == -1) {
+            mapSplit = null;
+            return;
+        }
+
+        float splitValue = histogram.getUpperBound(bestBin);
+        int boundary = beginExampleIndex + bestLeftSize;
+        mapSplit.add(new SplitInfo(splitValue, beginExampleIndex, boundary - 1, 0, "<="));
+        mapSplit.add(new SplitInfo(splitValue, boundary, endExampleIndex, 1, ">"));
+
+        int[] bestRightFrequencies = classFrequencies.clone();
+        for (int c = 0; c < bestRightFrequencies.length; c++) {
+            bestRightFrequencies[c] -= bestLeftFrequencies[c];
+        }
+        childClassFrequencies = new int[][]{bestLeftFrequencies, bestRightFrequencies};
+
+        //rimuovo split inutili (che includono tutti gli esempi nella stessa partizione)
+        if (boundary == endExampleIndex) {
+            mapSplit.remove(1);
+            childClassFrequencies = new int[][]{bestLeftFrequencies};
+        }
+    }
+
     protected int testCondition(Object value) {
         if ((Float) (value) <= (Float) mapSplit.get(0).getSplitValue()) {
             return 0;
@@ -1,17 +1,23 @@
 package com.mapgroup.classificator.tree;
 
-import com.mapgroup.classificator.data.ContinuousAttribute;
+import com.mapgroup.classificator.data.Attribute;
 import com.mapgroup.classificator.data.Data;
-import com.mapgroup.classificator.data.DiscreteAttribute;
 
 import java.io.*;
-import java.util.TreeSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 /**
  * This class represents the decision tree as a set of sub-trees.
  */
 public class DecisionTree implements Serializable {
 
+    private static final long serialVersionUID = 4571534350072416284L;
+
     /**
      * Root node of this sub-tree
      */
@@ -88,13 +94,55 @@ public class DecisionTree implements Serializable {
 
     /**
      * Constructs a subtree of the whole decision tree and starts the tree's induction
-     * from the training examples in input.
+     * from the training examples in input, using the default induction mode.
      *
      * @param trainingSet whole dataset used
+     * @see InductionMode#getDefault()
      */
     public DecisionTree(Data trainingSet) {
+        this(trainingSet, InductionMode.getDefault());
+    }
+
+    /**
+     * Constructs a subtree of the whole decision tree and starts the tree's induction
+     * from the training examples in input, using the specified induction mode.
+     *
+     * @param trainingSet whole dataset used
+     * @param mode        strategy used to order the examples during the induction
+     */
+    public DecisionTree(Data trainingSet, InductionMode mode) {
+        this(trainingSet, mode, null);
+    }
+
+    /**
+     * Constructs a subtree of the whole decision tree and starts the tree's induction
+     * from the training examples in input, recording its progress.
+     *
+     * @param trainingSet whole dataset used
+     * @param mode        strategy used to order the examples during the induction
+     * @param progress    receives the number of examples placed in the leaves, <code>null</code> if not needed
+     */
+    public DecisionTree(final Data trainingSet, InductionMode mode, final TrainingProgress progress) {
 
-        learnTree(trainingSet, 0, trainingSet.getNumberOfExamples() - 1, trainingSet.getNumberOfExamples() * 10 / 100);
+        final ExampleOrdering ordering = ExampleOrdering.newInstance(trainingSet, mode);
+        final int end = trainingSet.getNumberOfExamples() - 1;
+
+        final int[] classFrequencies = Node.countClasses(trainingSet, ordering.getExamples(), 0, end);
+        final int numberOfExamplesPerLeaf = trainingSet.getNumberOfExamples() * 10 / 100;
+        if (progress != null)
+            progress.start(trainingSet.getNumberOfExamples());
+
+        ForkJoinPool pool = ParallelTraining.getPool();
+        if (pool == null || ForkJoinTask.inForkJoinPool()) {
+            learnTree(trainingSet, ordering, 0, end, classFrequencies, numberOfExamplesPerLeaf, progress);
+        } else {
+            // the induction runs inside the pool, so that its steps can fork other tasks
+            pool.invoke(new RecursiveAction() {
+                protected void compute() {
+                    learnTree(trainingSet, ordering, 0, end, classFrequencies, numberOfExamplesPerLeaf, progress);
+                }
+            });
+        }
     }
 
     /**
@@ -116,45 +164,94 @@ public class DecisionTree implements Serializable {
      * </p>
      *
      * @param trainingSet             whole training set
+     * @param ordering                permutations of the example indexes over the training set
      * @param begin                   starter index of the training subset
      * @param end                     last index of the training subset
+     * @param classFrequencies        absolute frequency of each class value in the training subset
      * @param numberOfExamplesPerLeaf maximum number of children for the node
+     * @param progress                receives the number of examples placed in the leaves, possibly <code>null</code>
      */
-    private void learnTree(Data trainingSet, int begin, int end, int numberOfExamplesPerLeaf) {
+    private void learnTree(Data trainingSet, ExampleOrdering ordering, int begin, int end, int[] classFrequencies, int numberOfExamplesPerLeaf, TrainingProgress progress) {
         // A leaf node was generated
-        if (isLeaf(trainingSet, begin, end, numberOfExamplesPerLeaf)) {
+        if (isLeaf(classFrequencies, begin, end, numberOfExamplesPerLeaf)) {
 
-            root = new LeafNode(trainingSet, begin, end);
+            root = new LeafNode(trainingSet, begin, end, classFrequencies);
         } else // a split node was generated
         {
             try {
                 // determines the most frequent class in the current partition
-                root = determineBestSplitNode(trainingSet, begin, end);
+                root = determineBestSplitNode(trainingSet, ordering, begin, end, classFrequencies);
+                // arranges the examples in the ranges of the children
+                ExampleOrdering[] childOrderings = ordering.split((SplitNode) root, begin, end);
 
                 childTree = new DecisionTree[root.getNumberOfChildren()];
-                for (int i = 0; i < root.getNumberOfChildren(); i++) {
-                    childTree[i] = new DecisionTree();
+                if (root.getNumberOfChildren() > 1 && ForkJoinTask.inForkJoinPool()
+                        && (end - begin) + 1 >= ParallelTraining.getThreshold()) {
+                    // the children cover disjoint ranges, so their subtrees can be learnt together
+                    List<SubtreeInduction> inductions = new ArrayList<SubtreeInduction>();
+                    for (int i = 0; i < root.getNumberOfChildren(); i++) {
+                        childTree[i] = new DecisionTree();
+                        inductions.add(new SubtreeInduction(childTree[i], trainingSet, childOrderings[i], (SplitNode) root, i, numberOfExamplesPerLeaf, progress));
+                    }
+                    ForkJoinTask.invokeAll(inductions);
+                } else {
+                    for (int i = 0; i < root.getNumberOfChildren(); i++) {
+                        childTree[i] = new DecisionTree();
 
-                    childTree[i].learnTree(trainingSet, ((SplitNode) root).getSplitInfo(i).getBeginIndex(), ((SplitNode) root).getSplitInfo(i).getEndIndex(), numberOfExamplesPerLeaf);
+                        childTree[i].learnTree(trainingSet, childOrderings[i], ((SplitNode) root).getSplitInfo(i).getBeginIndex(), ((SplitNode) root).getSplitInfo(i).getEndIndex(), ((SplitNode) root).getChildClassFrequencies(i), numberOfExamplesPerLeaf, progress);
+                    }
                 }
             } catch (NoSplitException e) {
-                root = new LeafNode(trainingSet, begin, end);
+                root = new LeafNode(trainingSet, begin, end, classFrequencies);
             }
 
         }
+
+        if (progress != null && root instanceof LeafNode)
+            progress.examplesLearnt(end - begin + 1);
+    }
+
+    /**
+     * Fork/join task which learns the subtree of a single child of a split node.
+     */
+    private static class SubtreeInduction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DecisionTree subtree;
+        private final Data trainingSet;
+        private final ExampleOrdering ordering;
+        private final SplitNode splitNode;
+        private final int child;
+        private final int numberOfExamplesPerLeaf;
+        private final TrainingProgress progress;
+
+        SubtreeInduction(DecisionTree subtree, Data trainingSet, ExampleOrdering ordering, SplitNode splitNode, int child, int numberOfExamplesPerLeaf, TrainingProgress progress) {
+            this.subtree = subtree;
+            this.trainingSet = trainingSet;
+            this.ordering = ordering;
+            this.splitNode = splitNode;
+            this.child = child;
+            this.numberOfExamplesPerLeaf = numberOfExamplesPerLeaf;
+            this.progress = progress;
+        }
+
+        protected void compute() {
+            subtree.learnTree(trainingSet, ordering, splitNode.getSplitInfo(child).getBeginIndex(), splitNode.getSplitInfo(child).getEndIndex(), splitNode.getChildClassFrequencies(child), numberOfExamplesPerLeaf, progress);
+        }
     }
 
     /**
      * Checks if the current subset could be associated to a leaf node verifying if the
      * subset's cardinality is lower than the minimum value and the class attribute values' frequency.
      *
-     * @param trainingSet             whole training set
+     * @param classFrequencies        absolute frequency of each class value in the training subset
      * @param begin                   starter index of the training subset
      * @param end                     last index of the training subset
      * @param numberOfExamplesPerLeaf maximum number of children for the node
      * @return <code>true</code> if the current subset verify the leaf node condition, <code>false</code> otherwise
      */
-    private boolean isLeaf(Data trainingSet, int begin, int end, int numberOfExamplesPerLeaf) {
+    private boolean isLeaf(int[] classFrequencies, int begin, int end, int numberOfExamplesPerLeaf) {
         /*
           A node becomes leaf if and only if:
           1) the number of training examples which are present in the subset is lower
@@ -169,11 +266,10 @@ public class DecisionTree implements Serializable {
         if ((end - begin) + 1 < numberOfExamplesPerLeaf) {
             return true;
         } else {
-            String currValue = trainingSet.getClassValue(begin);
-
-            for (int i = begin + 1; i <= end; i++) {
-                if (!currValue.equals(trainingSet.getClassValue(i))) {
-                    return false;
+            // the subset is pure if the first class value found covers all of it
+            for (int frequency : classFrequencies) {
+                if (frequency != 0) {
+                    return frequency == (end - begin) + 1;
                 }
             }
 
@@ -189,52 +285,78 @@ public class DecisionTree implements Serializable {
      * thereby improving the process of construction of the decision tree.
      *
      * @param trainingSet full data Set
+     * @param ordering    permutations of the example indexes over the training set
      * @param begin       first extreme of the training subset
      * @param end         last extreme of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
      * @return a node with the highest information gain
      * @throws NoSplitException
      */
-    private SplitNode determineBestSplitNode(Data trainingSet, int begin, int end) throws NoSplitException {
-        TreeSet<SplitNode> ts = new TreeSet<SplitNode>();
-
+    private SplitNode determineBestSplitNode(Data trainingSet, ExampleOrdering ordering, int begin, int end, int[] classFrequencies) throws NoSplitException {
+        //for each independent variable make an instance of DiscreteNode or ContinuousNode
+        //for this variable, then keep the node with the best information gain
 
-        //for each independent variable(at the moment there are only discrete variable)
-        //make an instance of DiscreteNode for this variable and set currentNode with this instance
-        //update bestNode thereby to save the node with the best information gain
-
-        if (trainingSet.getNumberOfExplanatoryAttributes() == 0) {
+        int numberOfAttributes = trainingSet.getNumberOfExplanatoryAttributes();
+        if (numberOfAttributes == 0) {
             throw new NoSplitException();    // Aggiungere eccezione diversa()
         }
-        if (trainingSet.getExplanatoryAttribute(0) instanceof DiscreteAttribute) {
-            ts.add(new DiscreteNode(trainingSet, begin, end, (DiscreteAttribute) trainingSet.getExplanatoryAttribute(0)));
-        } else {
-            ts.add(new ContinuousNode(trainingSet, begin, end, (ContinuousAttribute) trainingSet.getExplanatoryAttribute(0)));
-
 
+        SplitNode[] candidates = new SplitNode[numberOfAttributes];
+        if (numberOfAttributes > 1 && ordering.isConcurrent() && ForkJoinTask.inForkJoinPool()) {
+            // the evaluations of the attributes are independent, so they can run together
+            List<SplitEvaluation> evaluations = new ArrayList<SplitEvaluation>();
+            for (int i = 0; i < numberOfAttributes; i++) {
+                evaluations.add(new SplitEvaluation(ordering, trainingSet.getExplanatoryAttribute(i), begin, end, classFrequencies));
+            }
+            ForkJoinTask.invokeAll(evaluations);
+            for (int i = 0; i < numberOfAttributes; i++) {
+                candidates[i] = evaluations.get(i).getRawResult();
+            }
+        } else {
+            for (int i = 0; i < numberOfAttributes; i++) {
+                candidates[i] = ordering.newSplitNode(trainingSet.getExplanatoryAttribute(i), begin, end, classFrequencies);
+            }
         }
 
-        for (int i = 1; i < trainingSet.getNumberOfExplanatoryAttributes(); i++) {
-            if (trainingSet.getExplanatoryAttribute(i) instanceof DiscreteAttribute) {
-                ts.add(new DiscreteNode(trainingSet, begin, end, (DiscreteAttribute)
-                        trainingSet.getExplanatoryAttribute(i)));
-
-            } else {
-                ts.add(new ContinuousNode(trainingSet, begin, end, (ContinuousAttribute) trainingSet.getExplanatoryAttribute(i)));
-
+        // on equal gains the attribute which comes first wins, whatever the evaluation order was
+        SplitNode bestNode = candidates[0];
+        for (int i = 1; i < numberOfAttributes; i++) {
+            if (candidates[i].compareTo(bestNode) < 0) {
+                bestNode = candidates[i];
             }
-
         }
-
-        SplitNode bestNode = ts.first();
         if (bestNode.getNumberOfChildren() == 1) {
             throw new NoSplitException();
         }
 
-        // do an order with the split type
-        trainingSet.sort(bestNode.getAttribute(), begin, end);
+        return ordering.arrange(bestNode, begin, end, classFrequencies);
 
-        return bestNode;
+    }
 
+    /**
+     * Fork/join task which evaluates the split on a single explanatory attribute.
+     */
+    private static class SplitEvaluation extends RecursiveTask<SplitNode> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ExampleOrdering ordering;
+        private final Attribute attribute;
+        private final int begin;
+        private final int end;
+        private final int[] classFrequencies;
+
+        SplitEvaluation(ExampleOrdering ordering, Attribute attribute, int begin, int end, int[] classFrequencies) {
+            this.ordering = ordering;
+            this.attribute = attribute;
+            this.begin = begin;
+            this.end = end;
+            this.classFrequencies = classFrequencies;
+        }
+
+        protected SplitNode compute() {
+            return ordering.newSplitNode(attribute, begin, end, classFrequencies);
+        }
     }
 
     /**
@@ -264,6 +386,28 @@ public class DecisionTree implements Serializable {
         return childTree.length;
     }
 
+    /**
+     * Compiles this decision tree in a model which only holds what is needed to
+     * predict the class values.
+     *
+     * @return the inference model of this decision tree
+     * @throws NoTreeExists if the tree wasn't learnt
+     */
+    public InferenceModel toInferenceModel() throws NoTreeExists {
+        return new InferenceModel(this);
+    }
+
+    /**
+     * Returns the predictor of this decision tree: its inference model or, when the system
+     * property {@link PredictorCompiler#PROPERTY} is <code>true</code>, a class generated from it.
+     *
+     * @return the predictor of this decision tree
+     * @throws NoTreeExists if the tree wasn't learnt
+     */
+    public Predictor toPredictor() throws NoTreeExists {
+        return PredictorCompiler.getPredictor(toInferenceModel());
+    }
+
     /**
      * Prints the information of the decision tree
      *
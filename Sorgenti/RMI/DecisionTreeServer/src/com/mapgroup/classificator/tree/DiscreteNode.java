@@ -5,38 +5,70 @@ import com.mapgroup.classificator.data.Data;
 import com.mapgroup.classificator.data.DiscreteAttribute;
 
 public class DiscreteNode extends SplitNode {
-    public DiscreteNode(Data trainingSet, int beginExampleIndex,
-                        int endExampleIndex, DiscreteAttribute attribute) {
-        super(trainingSet, beginExampleIndex, endExampleIndex, attribute);
+
+    private static final long serialVersionUID = -6126885618100205821L;
+    public DiscreteNode(Data trainingSet, int[] examples, int beginExampleIndex,
+                        int endExampleIndex, int[] classFrequencies, DiscreteAttribute attribute) {
+        super(trainingSet, examples, beginExampleIndex, endExampleIndex, classFrequencies, attribute);
+    }
+
+    DiscreteNode(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex,
+                 int endExampleIndex, int[] classFrequencies, DiscreteAttribute attribute) {
+        super(trainingSet, histogram, beginExampleIndex, endExampleIndex, classFrequencies, attribute);
     }
 
-    protected void setSplitInfo(Data trainingSet, int beginExampleIndex,
+    protected void setSplitInfo(Data trainingSet, int[] examples, int beginExampleIndex,
                                 int endExampleIndex, Attribute attribute) {
 
-        Object currentSplitValue, nextSplitValue = null;
+        DiscreteAttribute discreteAttribute = (DiscreteAttribute) attribute;
+        int currentCode, nextCode = trainingSet.getDiscreteCode(examples[beginExampleIndex],
+                attribute.getIndex());
 
         int beginSplit = beginExampleIndex;
         int child = 0;
-        // determina quando varia il valore in 'attribute'
+        // determina quando varia il codice del valore in 'attribute'
 
         for (int i = beginExampleIndex; i < endExampleIndex; i++) {
 
-            currentSplitValue = trainingSet.getExplanatoryValue(i,
-                    attribute.getIndex());
-            nextSplitValue = trainingSet.getExplanatoryValue(i + 1,
+            currentCode = nextCode;
+            nextCode = trainingSet.getDiscreteCode(examples[i + 1],
                     attribute.getIndex());
 
-            if (!currentSplitValue.equals(nextSplitValue)) {
-                mapSplit.add(new SplitInfo(currentSplitValue, beginSplit, i,
-                        child));
+            if (currentCode != nextCode) {
+                mapSplit.add(new SplitInfo(discreteAttribute.getValue(currentCode),
+                        beginSplit, i, child));
                 beginSplit = i + 1;
                 child++;
             }
         }
 
-        mapSplit.add(new SplitInfo(nextSplitValue, beginSplit, endExampleIndex,
-                child));
+        mapSplit.add(new SplitInfo(discreteAttribute.getValue(nextCode), beginSplit,
+                endExampleIndex, child));
+
+    }
+
+    protected void setSplitInfo(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex,
+                                int endExampleIndex, Attribute attribute) {
+
+        DiscreteAttribute discreteAttribute = (DiscreteAttribute) attribute;
+        int[][] frequencies = new int[histogram.getNumberOfRows()][];
+        int beginSplit = beginExampleIndex;
+        int child = 0;
+
+        // i codici sono in ordine, come i valori dopo l'ordinamento
+        for (int code = 0; code < histogram.getNumberOfRows(); code++) {
+            int size = histogram.getRowSize(code);
+            if (size != 0) {
+                mapSplit.add(new SplitInfo(discreteAttribute.getValue(code), beginSplit,
+                        beginSplit + size - 1, child));
+                frequencies[child] = histogram.getFrequencies(code).clone();
+                beginSplit += size;
+                child++;
+            }
+        }
 
+        childClassFrequencies = new int[child][];
+        System.arraycopy(frequencies, 0, childClassFrequencies, 0, child);
     }
 
     public int testCondition(Object value) throws UnknownValueException {
@@ -0,0 +1,299 @@
+package com.mapgroup.classificator.tree;
+
+import com.mapgroup.classificator.data.DiscreteAttribute;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Immutable model which predicts the class values of a learnt decision tree.
+ * <p>
+ * The nodes of the tree are numbered in pre-order and described by parallel arrays,
+ * so a prediction is a loop over a few integers and floats instead of a walk
+ * through the nodes and their training information. The root is node <code>0</code>.
+ * </p>
+ * <p>
+ * The examples are given as arrays indexed by the position of the explanatory attributes
+ * in the training set.
+ * </p>
+ *
+ * @see DecisionTree#toInferenceModel()
+ * @see PredictorCompiler
+ */
+public final class InferenceModel implements Predictor, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Value of <code>attributeIndexes</code> for the leaf nodes
+     */
+    private static final int LEAF = -1;
+
+    /**
+     * Position of the explanatory attribute tested by each node, {@link #LEAF} for the leaves
+     */
+    private final int[] attributeIndexes;
+    /**
+     * Split value of each continuous node: the examples up to it go to the first child
+     */
+    private final float[] thresholds;
+    /**
+     * For a split node, the position in <code>children</code> of its first entry;
+     * for a leaf, the position in <code>classValues</code> of its predicted class value
+     */
+    private final int[] offsets;
+    /**
+     * Children of the split nodes: two entries for a continuous node, one entry
+     * for each code of the attribute for a discrete node (<code>-1</code> if no child holds the code)
+     */
+    private final int[] children;
+    /**
+     * Distinct class values predicted by the leaves
+     */
+    private final String[] classValues;
+    /**
+     * Discrete attributes tested by the tree, indexed by position (<code>null</code> for the others)
+     */
+    private final DiscreteAttribute[] discreteAttributes;
+    /**
+     * Number of explanatory attribute values which an example must contain
+     */
+    private final int numberOfAttributes;
+
+    /**
+     * Compiles the model of a learnt decision tree.
+     *
+     * @param tree decision tree
+     * @throws NoTreeExists if the tree wasn't learnt
+     */
+    InferenceModel(DecisionTree tree) throws NoTreeExists {
+        if (tree.getRoot() == null)
+            throw new NoTreeExists();
+
+        Builder builder = new Builder();
+        builder.add(tree);
+
+        int numberOfNodes = builder.attributeIndexes.size();
+        attributeIndexes = new int[numberOfNodes];
+        thresholds = new float[numberOfNodes];
+        offsets = new int[numberOfNodes];
+        for (int i = 0; i < numberOfNodes; i++) {
+            attributeIndexes[i] = builder.attributeIndexes.get(i);
+            thresholds[i] = builder.thresholds.get(i);
+            offsets[i] = builder.offsets.get(i);
+        }
+        children = new int[builder.children.size()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = builder.children.get(i);
+        }
+        classValues = builder.classValues.toArray(new String[builder.classValues.size()]);
+
+        int maxIndex = -1;
+        for (int index : attributeIndexes) {
+            maxIndex = Math.max(maxIndex, index);
+        }
+        numberOfAttributes = maxIndex + 1;
+        discreteAttributes = new DiscreteAttribute[numberOfAttributes];
+        for (DiscreteAttribute attribute : builder.discreteAttributes) {
+            discreteAttributes[attribute.getIndex()] = attribute;
+        }
+    }
+
+    /**
+     * Collects the arrays of the model while the tree is visited.
+     */
+    private static class Builder {
+        final List<Integer> attributeIndexes = new ArrayList<Integer>();
+        final List<Float> thresholds = new ArrayList<Float>();
+        final List<Integer> offsets = new ArrayList<Integer>();
+        final List<Integer> children = new ArrayList<Integer>();
+        final List<String> classValues = new ArrayList<String>();
+        final List<DiscreteAttribute> discreteAttributes = new ArrayList<DiscreteAttribute>();
+
+        /**
+         * Adds a subtree in pre-order.
+         *
+         * @param tree subtree
+         * @return number of the root of the subtree
+         */
+        int add(DecisionTree tree) {
+            int node = attributeIndexes.size();
+            Node root = tree.getRoot();
+
+            if (root instanceof LeafNode) {
+                String classValue = ((LeafNode) root).getPredictedClassValue();
+                if (!classValues.contains(classValue))
+                    classValues.add(classValue);
+                attributeIndexes.add(LEAF);
+                thresholds.add(0f);
+                offsets.add(classValues.indexOf(classValue));
+                return node;
+            }
+
+            SplitNode splitNode = (SplitNode) root;
+            int offset = children.size();
+            attributeIndexes.add(splitNode.getAttribute().getIndex());
+            offsets.add(offset);
+
+            if (splitNode instanceof ContinuousNode) {
+                thresholds.add((Float) splitNode.getSplitInfo(0).getSplitValue());
+                children.add(-1);
+                children.add(-1);
+            } else {
+                DiscreteAttribute attribute = (DiscreteAttribute) splitNode.getAttribute();
+                if (!discreteAttributes.contains(attribute))
+                    discreteAttributes.add(attribute);
+                thresholds.add(0f);
+                for (int code = 0; code < attribute.getNumOfDistinctValues(); code++)
+                    children.add(-1);
+            }
+
+            for (int i = 0; i < splitNode.getNumberOfChildren(); i++) {
+                int child = add(tree.subTree(i));
+                if (splitNode instanceof ContinuousNode) {
+                    children.set(offset + i, child);
+                } else {
+                    int code = ((DiscreteAttribute) splitNode.getAttribute()).getCode((String) splitNode.getSplitInfo(i).getSplitValue());
+                    children.set(offset + code, child);
+                }
+            }
+            return node;
+        }
+    }
+
+    /**
+     * Predicts the class value of an example whose discrete values are given
+     * as the codes of the training attributes.
+     *
+     * @param example value of each explanatory attribute, the code for the discrete ones
+     * @return predicted class value
+     * @throws UnknownValueException if a discrete code can't be followed in the tree
+     */
+    public String predict(float[] example) throws UnknownValueException {
+        int node = 0;
+
+        while (attributeIndexes[node] != LEAF) {
+            float value = example[attributeIndexes[node]];
+            if (discreteAttributes[attributeIndexes[node]] == null) {
+                node = children[offsets[node] + (value <= thresholds[node] ? 0 : 1)];
+            } else {
+                int code = (int) value;
+                if (code < 0 || code >= discreteAttributes[attributeIndexes[node]].getNumOfDistinctValues())
+                    throw new UnknownValueException();
+                node = children[offsets[node] + code];
+                if (node == -1)
+                    throw new UnknownValueException();
+            }
+        }
+        return classValues[offsets[node]];
+    }
+
+    /**
+     * Predicts the class value of an example whose values are given as objects:
+     * a <code>String</code> for the discrete attributes, a <code>Number</code> for the continuous ones.
+     *
+     * @param example value of each explanatory attribute
+     * @return predicted class value
+     * @throws UnknownValueException if a value can't be followed in the tree
+     */
+    public String predict(Object[] example) throws UnknownValueException {
+        int node = 0;
+
+        while (attributeIndexes[node] != LEAF) {
+            Object value = example[attributeIndexes[node]];
+            DiscreteAttribute attribute = discreteAttributes[attributeIndexes[node]];
+            if (attribute == null) {
+                if (!(value instanceof Number))
+                    throw new UnknownValueException();
+                node = children[offsets[node] + (((Number) value).floatValue() <= thresholds[node] ? 0 : 1)];
+            } else {
+                int code = value == null ? -1 : attribute.getCode(value.toString());
+                if (code == -1 || (node = children[offsets[node] + code]) == -1)
+                    throw new UnknownValueException();
+            }
+        }
+        return classValues[offsets[node]];
+    }
+
+    /**
+     * Returns the code of a discrete value, to be used in the examples given to {@link #predict(float[])}.
+     *
+     * @param attributeIndex position of the explanatory attribute
+     * @param value          value of the attribute
+     * @return code of the value, <code>-1</code> if the value or the attribute isn't known by the model
+     */
+    public int encode(int attributeIndex, String value) {
+        if (attributeIndex < 0 || attributeIndex >= numberOfAttributes || discreteAttributes[attributeIndex] == null)
+            return -1;
+        return discreteAttributes[attributeIndex].getCode(value);
+    }
+
+    /**
+     * Returns the minimum length of the examples given to the model.
+     *
+     * @return one more than the greatest position of an attribute tested by the tree
+     */
+    public int getNumberOfAttributes() {
+        return numberOfAttributes;
+    }
+
+    /**
+     * Returns the number of nodes of the model.
+     *
+     * @return number of leaves and split nodes
+     */
+    public int getNumberOfNodes() {
+        return attributeIndexes.length;
+    }
+
+    /*
+     * Accessors used by PredictorCompiler and CompiledPredictor
+     */
+
+    boolean isLeaf(int node) {
+        return attributeIndexes[node] == LEAF;
+    }
+
+    int getAttributeIndex(int node) {
+        return attributeIndexes[node];
+    }
+
+    float getThreshold(int node) {
+        return thresholds[node];
+    }
+
+    /**
+     * Returns the number of entries of a split node in the child table.
+     *
+     * @param node split node
+     * @return <code>2</code> for a continuous node, the number of codes for a discrete one
+     */
+    int getNumberOfBranches(int node) {
+        DiscreteAttribute attribute = discreteAttributes[attributeIndexes[node]];
+        return attribute == null ? 2 : attribute.getNumOfDistinctValues();
+    }
+
+    /**
+     * Returns the child reached through an entry of the child table.
+     *
+     * @param node   split node
+     * @param branch <code>0</code> or <code>1</code> for a continuous node, a code for a discrete one
+     * @return the child node, <code>-1</code> if no child holds the code
+     */
+    int getChild(int node, int branch) {
+        return children[offsets[node] + branch];
+    }
+
+    int getClassIndex(int leaf) {
+        return offsets[leaf];
+    }
+
+    String getClassValue(int classIndex) {
+        return classValues[classIndex];
+    }
+
+    boolean isDiscrete(int attributeIndex) {
+        return discreteAttributes[attributeIndex] != null;
+    }
+}
@@ -4,10 +4,12 @@ import com.mapgroup.classificator.data.Data;
 import com.mapgroup.classificator.data.DiscreteAttribute;
 
 public class LeafNode extends Node {
+
+    private static final long serialVersionUID = 2082895423593221285L;
     private final String predictedClassValue;
 
-    public LeafNode(Data trainingSet, int beginExampleIndex, int endExampleIndex) {
-        super(trainingSet, beginExampleIndex, endExampleIndex);
+    public LeafNode(Data trainingSet, int beginExampleIndex, int endExampleIndex, int[] classFrequencies) {
+        super(beginExampleIndex, endExampleIndex, classFrequencies);
         predictedClassValue = determineMostFrequentClass(trainingSet);
     }
 
@@ -18,22 +20,17 @@ public class LeafNode extends Node {
 
     private String determineMostFrequentClass(Data trainingSet) {
         DiscreteAttribute classAttr = trainingSet.getClassAttribute();
-        String maxValue = null;
+        int maxCode = -1;
         int currMax = 0;
-        String currString;
-        int currFrequency;
-
-        for (int i = 0; i < classAttr.getNumOfDistinctValues(); i++) {
-            currString = classAttr.getValue(i);
-            currFrequency = classValueAbsoluteFrequency.get(currString);
 
-            if (currMax < currFrequency) {
-                currMax = currFrequency;
-                maxValue = currString;
+        for (int i = 0; i < classFrequencies.length; i++) {
+            if (currMax < classFrequencies[i]) {
+                currMax = classFrequencies[i];
+                maxCode = i;
             }
         }
 
-        return maxValue;
+        return maxCode == -1 ? null : classAttr.getValue(maxCode);
     }
 
     public int getNumberOfChildren() {
@@ -3,46 +3,52 @@ package com.mapgroup.classificator.tree;
 import com.mapgroup.classificator.data.Data;
 
 import java.io.Serializable;
-import java.util.HashMap;
 
 public abstract class Node implements Serializable {
+
+    // kept equal to the one of the earlier releases, so that the saved trees can still be loaded
+    private static final long serialVersionUID = -1594599962422758160L;
+
+    private static final double LN_2 = Math.log(2);
+
     protected final int beginExampleIndex;
     protected final int endExampleIndex;
-    protected final HashMap<String, Integer> classValueAbsoluteFrequency;
+    protected final int[] classFrequencies;
     protected float entropy;
 
-    protected Node(Data trainingSet, int beginExampleIndex, int endExampleIndex) {
-        classValueAbsoluteFrequency = new HashMap<String, Integer>();
-
+    protected Node(int beginExampleIndex, int endExampleIndex, int[] classFrequencies) {
         // mantiene gli indici di inizio-fine per la partizione dati
         // compresa tra beginExampleIndex e endExampleIndex
         this.beginExampleIndex = beginExampleIndex;
         this.endExampleIndex = endExampleIndex;
 
-        // aggiorna classValueAbsoluteFrequency in maniera che per ciascun valore distinto di classe sia mantenua la frequenza della classe nella partiziane dati
+        // frequenza di ciascun valore di classe (indicizzata per codice) nella partizione dati,
+        // gia' calcolata dal nodo padre
+        this.classFrequencies = classFrequencies;
+
+        // calcola il valore di entropia per la partizione dati
         // compresa tra beginExampleIndex e endExampleIndex
-        for (int i = 0; i < trainingSet.getClassAttribute().getNumOfDistinctValues(); i++) {
-            classValueAbsoluteFrequency.put(trainingSet.getClassAttribute().getValue(i), 0);
-        }
+        entropy = computeEntropy(classFrequencies, endExampleIndex - beginExampleIndex + 1);
+    }
 
+    static int[] countClasses(Data trainingSet, int[] examples, int beginExampleIndex, int endExampleIndex) {
+        int[] frequencies = new int[trainingSet.getClassAttribute().getNumOfDistinctValues()];
         for (int i = beginExampleIndex; i <= endExampleIndex; i++) {
-            String classValue = trainingSet.getClassValue(i);
-            classValueAbsoluteFrequency.put(classValue, classValueAbsoluteFrequency.get(classValue) + 1);
+            frequencies[trainingSet.getClassCode(examples[i])]++;
         }
+        return frequencies;
+    }
 
+    static float computeEntropy(int[] frequencies, int numberOfExamples) {
+        float entropy = 0;
 
-        // calcola il valore di entropia per la partizione dati
-        // compresa tra beginExampleIndex e endExampleIndex
-        entropy = 0;
-
-        int numberOfExamples = endExampleIndex - beginExampleIndex + 1;
-        for (Integer v : classValueAbsoluteFrequency.values()) {
-
+        for (int v : frequencies) {
             if (v != 0) {
                 float p = ((float) v) / numberOfExamples;
-                entropy += (-p * Math.log10(p) / Math.log10(2));
+                entropy += (-p * Math.log(p) / LN_2);
             }
         }
+        return entropy;
     }
 
     public int getBeginExampleIndex() {
@@ -0,0 +1,68 @@
+package com.mapgroup.classificator.tree;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Gives access to the fork/join pool shared by the inductions of the decision trees.
+ * <p>
+ * The number of worker threads is read from the system property {@link #PARALLELISM_PROPERTY}
+ * and defaults to the number of available processors. A value lower than <code>2</code>
+ * disables the parallel training.
+ * </p>
+ * <p>
+ * The subtrees of a node are learnt as separate tasks only when the node covers at least
+ * {@link #THRESHOLD_PROPERTY} examples: below that size the tasks would cost more than they save.
+ * </p>
+ */
+final class ParallelTraining {
+
+    /**
+     * Name of the system property which defines the number of worker threads
+     */
+    static final String PARALLELISM_PROPERTY = "decisiontree.parallelism";
+
+    /**
+     * Name of the system property which defines the minimum size of a training subset
+     * whose subtrees are learnt in parallel
+     */
+    static final String THRESHOLD_PROPERTY = "decisiontree.parallel.threshold";
+
+    /**
+     * Default value of the {@link #THRESHOLD_PROPERTY} property
+     */
+    private static final int DEFAULT_THRESHOLD = 1000;
+
+    /**
+     * Pool shared by all the trainings, created on first use
+     */
+    private static ForkJoinPool pool;
+
+    private ParallelTraining() {
+    }
+
+    /**
+     * Returns the pool used to train the decision trees.
+     *
+     * @return the shared pool, <code>null</code> if the training has to be sequential
+     */
+    static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            int parallelism = Integer.getInteger(PARALLELISM_PROPERTY, Runtime.getRuntime().availableProcessors());
+            if (parallelism < 2) {
+                return null;
+            }
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Returns the minimum number of examples that a node must cover for
+     * its subtrees to be learnt in parallel.
+     *
+     * @return size of the smallest training subset split in parallel
+     */
+    static int getThreshold() {
+        return Integer.getInteger(THRESHOLD_PROPERTY, DEFAULT_THRESHOLD);
+    }
+}
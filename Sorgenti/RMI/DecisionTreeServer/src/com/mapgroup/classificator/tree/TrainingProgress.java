@@ -0,0 +1,47 @@
+package com.mapgroup.classificator.tree;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class measures the progress of the induction of a decision tree as the
+ * number of examples already placed in a leaf. It can be read by another thread
+ * while the tree is learnt, also when the subtrees are learnt in parallel.
+ */
+public class TrainingProgress {
+
+    /** number of examples of the training set */
+    private volatile int totalExamples;
+    /** number of examples already placed in a leaf */
+    private final AtomicInteger learntExamples = new AtomicInteger();
+
+    /**
+     * Records the number of examples of the training set, when the induction starts.
+     *
+     * @param totalExamples the number of examples
+     */
+    void start(int totalExamples) {
+        learntExamples.set(0);
+        this.totalExamples = totalExamples;
+    }
+
+    /**
+     * Records that some examples have been placed in a leaf.
+     *
+     * @param examples the number of examples of the leaf
+     */
+    void examplesLearnt(int examples) {
+        learntExamples.addAndGet(examples);
+    }
+
+    /**
+     * Returns the percentage of the examples already placed in a leaf.
+     *
+     * @return the progress, from 0 to 100; <code>0</code> if the induction hasn't started
+     */
+    public int getPercentage() {
+        int total = totalExamples;
+        if (total <= 0)
+            return 0;
+        return (int) Math.min(100, 100L * learntExamples.get() / total);
+    }
+}
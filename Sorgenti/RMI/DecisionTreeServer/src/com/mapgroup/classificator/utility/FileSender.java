@@ -10,11 +10,12 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.concurrent.ExecutionException;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
-import javax.swing.JTextArea;
 import javax.swing.SwingWorker;
 
 /**
@@ -35,10 +36,6 @@ public class FileSender extends JDialog implements Runnable, PropertyChangeListe
      * A background task that was executed in order to send the file
      */
     private Task task;
-    /**
-     * The server logArea on which will be printed the operation information
-     */
-    private final JTextArea logArea;
     /**
      * exception that maybe be generated in the file sending
      */
@@ -53,13 +50,11 @@ public class FileSender extends JDialog implements Runnable, PropertyChangeListe
      * of the file sending windows and starts the file sending.
      *
      * @param fileName the filename of the file that will be sent
-     * @param logArea  server application log panel
      * @throws Exception  - if some errors occurred in the file sending process
      */
-    public FileSender(String fileName, JTextArea logArea) throws Exception {
+    public FileSender(String fileName) throws Exception {
         setTitle("Upload progress");
         setModal(true);
-        this.logArea = logArea;
         this.fileName = fileName;
         progressMonitor = new JProgressBar(0, 100);
         progressMonitor.setStringPainted(true);
@@ -97,6 +92,29 @@ public class FileSender extends JDialog implements Runnable, PropertyChangeListe
     public byte[] getTransferredFile(){
         return fileContent;
     }
+
+    /**
+     * Reads the content of a file without showing the progress, for the
+     * server without graphical interface.
+     *
+     * @param fileName the filename of the file that will be sent
+     * @return the file content
+     * @throws IOException if the file can't be read
+     */
+    public static byte[] readFile(String fileName) throws IOException {
+        InputStream input = new FileInputStream(fileName);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) new File(fileName).length());
+            byte[] buffer = new byte[1024 * 4];
+            int n;
+            while ((n = input.read(buffer)) != -1)
+                out.write(buffer, 0, n);
+            ServerLog.log("File " + fileName + " correctly uploaded.\n");
+            return out.toByteArray();
+        } finally {
+            input.close();
+        }
+    }
     /**
      * Secondary thread which starts a background operation
      * which grants to send the file.
@@ -120,18 +138,18 @@ public class FileSender extends JDialog implements Runnable, PropertyChangeListe
 
         } else if (evt.getPropertyName().equals("done-exception")) {
             task.cancel(true);
-            logArea.append("Unexpected errors in the comunication with the client.\n"
+            ServerLog.log("Unexpected errors in the comunication with the client.\n"
                     + ((Exception) evt.getNewValue()).getMessage());
             currException = (Exception) evt.getNewValue();
 
             dispose();
         } else if (evt.getPropertyName().equals("closing")) {
             task.cancel(true);
-            logArea.append("File " + fileName + " not uploaded.\n");
+            ServerLog.log("File " + fileName + " not uploaded.\n");
             dispose();
 
         } else if (evt.getPropertyName().equals("completed")) {
-            logArea.append("File " + fileName + " correctly uploaded.\n");
+            ServerLog.log("File " + fileName + " correctly uploaded.\n");
             dispose();
 
         }
@@ -0,0 +1,155 @@
+package com.mapgroup.classificator.utility;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class writes the messages of the server in the file <code>server.log</code>.
+ * <p>
+ * The files are kept in the directory {@link #DIRECTORY_PROPERTY} (default: <code>log</code>
+ * in the working directory). When the file exceeds {@link #SIZE_PROPERTY} megabytes (default 10)
+ * it is renamed <code>server.log.1</code>, the older files are shifted and only the last
+ * {@link #FILES_PROPERTY} files (default 5) are kept.
+ * </p>
+ */
+public class RollingLogFile implements ServerLog.Listener {
+
+    /** Name of the system property which defines the directory of the log files */
+    static final String DIRECTORY_PROPERTY = "decisiontree.log.dir";
+    /** Name of the system property which defines the megabytes after which the file is rolled */
+    static final String SIZE_PROPERTY = "decisiontree.log.size";
+    /** Name of the system property which defines the number of old files kept */
+    static final String FILES_PROPERTY = "decisiontree.log.files";
+
+    /** Name of the current log file */
+    private static final String FILE_NAME = "server.log";
+
+    /** the directory of the log files */
+    private final File directory;
+    /** bytes after which the file is rolled */
+    private final long maxSize;
+    /** number of old files kept */
+    private final int maxFiles;
+    /** the format of the time of the messages */
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+    /** the stream to the current file */
+    private Writer writer;
+    /** approximate size of the current file, in bytes */
+    private long size;
+
+    /**
+     * Opens the log file, appending the messages to the existing ones.
+     *
+     * @throws IOException if the file can't be opened
+     */
+    public RollingLogFile() throws IOException {
+        directory = new File(System.getProperty(DIRECTORY_PROPERTY,
+                System.getProperty("user.dir") + File.separator + "log"));
+        maxSize = Math.max(1, Long.getLong(SIZE_PROPERTY, 10)) * 1024 * 1024;
+        maxFiles = Math.max(1, Integer.getInteger(FILES_PROPERTY, 5));
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Unable to create the log directory " + directory);
+        open();
+    }
+
+    /**
+     * Returns the path of the current log file.
+     *
+     * @return the path of the file
+     */
+    public String getPath() {
+        return new File(directory, FILE_NAME).getPath();
+    }
+
+    public void messagesLogged(List<ServerLog.Message> messages) {
+        try {
+            if (writer == null)
+                open();
+
+            for (ServerLog.Message message : messages) {
+                String line = timeFormat.format(new Date(message.getTime())) + " "
+                        + trimEnd(message.getText()) + System.getProperty("line.separator");
+                writer.write(line);
+                size += line.length();
+                if (size >= maxSize)
+                    roll();
+            }
+            writer.flush();
+        } catch (IOException e) {
+            // the messages can't be logged anywhere else
+            System.err.println("Error in writing the log: " + e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * Opens the current log file.
+     *
+     * @throws IOException if the file can't be opened
+     */
+    private void open() throws IOException {
+        File file = new File(directory, FILE_NAME);
+        size = file.length();
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8"));
+    }
+
+    /**
+     * Closes the current log file, ignoring the errors.
+     */
+    private void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // the file is abandoned anyway
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Renames the current file and the old ones, discards the oldest one
+     * and opens a new file.
+     *
+     * @throws IOException if the new file can't be opened
+     */
+    private void roll() throws IOException {
+        close();
+
+        File oldest = new File(directory, FILE_NAME + "." + maxFiles);
+        if (oldest.exists() && !oldest.delete())
+            throw new IOException("Unable to delete " + oldest);
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File file = new File(directory, FILE_NAME + "." + i);
+            if (file.exists() && !file.renameTo(new File(directory, FILE_NAME + "." + (i + 1))))
+                throw new IOException("Unable to rename " + file);
+        }
+        File current = new File(directory, FILE_NAME);
+        if (!current.renameTo(new File(directory, FILE_NAME + ".1")))
+            throw new IOException("Unable to rename " + current);
+
+        open();
+    }
+
+    /**
+     * Removes the line terminators at the end of a message, since every
+     * message is written on its own line.
+     *
+     * @param text the message
+     * @return the message without final line terminators
+     */
+    private static String trimEnd(String text) {
+        int end = text.length();
+        while (end > 0 && (text.charAt(end - 1) == '\n' || text.charAt(end - 1) == '\r'))
+            end--;
+        return text.substring(0, end);
+    }
+}
@@ -1,5 +1,6 @@
 package com.mapgroup.classificator.utility;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
 
 /**
@@ -8,6 +9,9 @@ import java.io.File;
  */
 public class Utility {
 
+    /** Name of the system property which starts the server without graphical interface */
+    public static final String HEADLESS_PROPERTY = "decisiontree.headless";
+
     private Utility() {
     }
 
@@ -214,4 +218,14 @@ public class Utility {
                 return 'Z';
         }
     }
+
+    /**
+     * Checks if the server runs without graphical interface, because the system
+     * property {@link #HEADLESS_PROPERTY} is <code>true</code> or because there isn't a display.
+     *
+     * @return <code>true</code> if the server has no graphical interface, <code>false</code> otherwise
+     */
+    public static boolean isHeadless() {
+        return Boolean.getBoolean(HEADLESS_PROPERTY) || GraphicsEnvironment.isHeadless();
+    }
 }
@@ -1,6 +1,7 @@
 package com.mapgroup.to;
 
 import java.rmi.Remote;
+import java.util.List;
 
 /**
  * Remote interface for the server which grants to the client
@@ -16,4 +17,15 @@ public interface IRemoteServer extends Remote {
      * @throws Exception - if some errors occurred in the computation
      */
     public ServerResponse satisfyRequest(ClientRequest clientRequest) throws Exception;
+
+    /**
+     * Satisfies a sequence of requests in a single call, in the order specified.
+     * The failure of a request doesn't stop the following ones: its response is
+     * an {@link ErrorResponse} which contains the exception thrown.
+     *
+     * @param clientRequests the client's requests, in the order of execution
+     * @return the responses, in the same order of the requests
+     * @throws Exception - if the requests couldn't be received by the server
+     */
+    public List<ServerResponse> satisfyRequests(List<ClientRequest> clientRequests) throws Exception;
 }
@@ -0,0 +1,127 @@
+package com.mapgroup.to;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Response of the server to a {@link TypedRequest}, sent with a compact encoding
+ * instead of the generic serialization of {@link ServerResponse}.
+ * <p>
+ * Like every response of the server, the attribute 0 is the result of the command
+ * and the attribute 1 is the message for the log. Strings, arrays of strings and arrays
+ * of bytes are written directly; the other results are serialized.
+ * </p>
+ */
+public class TypedResponse extends ServerResponse implements Externalizable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int STRING_ARRAY = 2;
+    private static final int BYTES = 3;
+    private static final int OBJECT = 4;
+
+    /** the result of the command */
+    private Object result;
+    /** the message for the log, possibly <code>null</code> */
+    private String message;
+
+    /**
+     * Constructor used by the deserialization.
+     */
+    public TypedResponse() {
+    }
+
+    /**
+     * Constructs the typed form of a response of the server.
+     *
+     * @param response the response computed by the server
+     */
+    public TypedResponse(ServerResponse response) {
+        result = response.getAttribute(0);
+        Object logMessage = response.getAttribute(1);
+        message = logMessage == null ? null : logMessage.toString();
+    }
+
+    /**
+     * Returns the result of the command (index 0) or the message for the log (index 1).
+     *
+     * @param index the position of the value
+     * @return the value
+     */
+    @Override
+    public Object getAttribute(int index) {
+        switch (index) {
+            case 0:
+                return result;
+            case 1:
+                return message;
+            default:
+                throw new IndexOutOfBoundsException("Index: " + index);
+        }
+    }
+
+    /**
+     * The values of a typed response can't change.
+     *
+     * @param o the value
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void addAttribute(Object o) {
+        throw new UnsupportedOperationException("The values of a typed response can't change");
+    }
+
+    public void writeExternal(ObjectOutput out) throws IOException {
+        if (result == null) {
+            out.writeByte(NULL);
+        } else if (result instanceof String) {
+            out.writeByte(STRING);
+            TypedRequest.writeString(out, (String) result);
+        } else if (result instanceof String[]) {
+            String[] strings = (String[]) result;
+            out.writeByte(STRING_ARRAY);
+            out.writeInt(strings.length);
+            for (String s : strings)
+                TypedRequest.writeString(out, s);
+        } else if (result instanceof byte[]) {
+            out.writeByte(BYTES);
+            TypedRequest.writeBytes(out, (byte[]) result);
+        } else {
+            out.writeByte(OBJECT);
+            out.writeObject(result);
+        }
+        TypedRequest.writeString(out, message);
+    }
+
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        int type = in.readUnsignedByte();
+        switch (type) {
+            case NULL:
+                result = null;
+                break;
+            case STRING:
+                result = TypedRequest.readString(in);
+                break;
+            case STRING_ARRAY:
+                String[] strings = new String[in.readInt()];
+                for (int i = 0; i < strings.length; i++)
+                    strings[i] = TypedRequest.readString(in);
+                result = strings;
+                break;
+            case BYTES:
+                result = TypedRequest.readBytes(in);
+                break;
+            case OBJECT:
+                result = in.readObject();
+                break;
+            default:
+                throw new InvalidObjectException("Unknown result type " + type);
+        }
+        message = TypedRequest.readString(in);
+    }
+}
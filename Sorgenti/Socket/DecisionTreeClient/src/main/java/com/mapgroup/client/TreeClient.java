@@ -161,6 +161,11 @@ public class TreeClient extends JApplet {
      * Socket of the client
      */
     private Socket clientSocket;
+    /**
+     * Version of the binary protocol used with the server, <code>0</code> if the
+     * Java serialization is used
+     */
+    private int protocolVersion;
     /**
      * Tracker of all the information of the last prediction
      */
@@ -170,6 +175,10 @@ public class TreeClient extends JApplet {
      * last prediction was on a server file, <code>true</code> otherwise
      */
     private boolean datasetCreated = false;
+    /**
+     * The extensions of the files supported by the server, <code>null</code> until known
+     */
+    private ArrayList<String> supportedExtensions;
 
     /**
      * Set-up the connection with server and start the client as a
@@ -271,14 +280,29 @@ public class TreeClient extends JApplet {
     /**
      * Start the connection with server, creating a new socket with
      * the parameter specified at start-up.
+     * <p>
+     * The binary protocol is used if the server knows it, otherwise the
+     * client connects again using the Java serialization.
+     * </p>
      *
      * @throws IOException - if occurred some errors in starting connection with server
      */
     private void initConnection() throws IOException {
         try {
             clientSocket = new Socket(SERVER_HOST, SERVER_PORT);
-            out = new ObjectOutputStream(clientSocket.getOutputStream());
-            in = new ObjectInputStream(clientSocket.getInputStream());
+            protocolVersion = WireProtocol.request(clientSocket);
+            if (protocolVersion > 0) {
+                out = new BinaryObjectOutputStream(clientSocket.getOutputStream());
+                in = new BinaryObjectInputStream(clientSocket.getInputStream());
+            } else {
+                clientSocket.close();
+                clientSocket = new Socket(SERVER_HOST, SERVER_PORT);
+                out = new ObjectOutputStream(clientSocket.getOutputStream());
+                // the header of the server stream must arrive in time, as the answer to the greeting
+                clientSocket.setSoTimeout(WireProtocol.HANDSHAKE_TIMEOUT);
+                in = new ObjectInputStream(clientSocket.getInputStream());
+                clientSocket.setSoTimeout(0);
+            }
         } catch (IOException e) {
             if( in != null )
                 in.close();
@@ -380,7 +404,7 @@ public class TreeClient extends JApplet {
         cpTreeInput.add(nameDataTxt);
         treeConstructionBt.setIcon(new ImageIcon(loadImage("/gui/plane.png")));
 
-        availableFileModel = new DefaultComboBoxModel<String>(getFileList());
+        availableFileModel = new DefaultComboBoxModel<String>(loadStartupData());
         availableFile = new JComboBox<String>(availableFileModel);
         availableFile.setVisible(false);
         updateFileList = new JButton("Update list");
@@ -527,6 +551,45 @@ public class TreeClient extends JApplet {
         }
     }
 
+    /**
+     * Reads the id of the training job submitted by the last command and shows the
+     * progress of the training until it is finished.
+     *
+     * @param description the description of the dataset, shown while waiting
+     * @return the string representation of the learnt tree, or the exception which
+     * explains why it couldn't be learnt
+     * @throws IOException            - if some errors occurred in communicating with the server
+     * @throws ClassNotFoundException - if an invalid object was received from the server
+     */
+    private Object awaitTraining(String description) throws IOException, ClassNotFoundException {
+        final Object jobId = in.readObject();
+        if (jobId instanceof Exception)
+            return jobId;
+
+        try {
+            TrainingJobTO status = TrainingMonitor.await(description, new TrainingMonitor.StatusSource() {
+                public TrainingJobTO getStatus(long wait) throws Exception {
+                    out.writeObject(ServerCommand.TRAINING_STATUS);
+                    out.writeObject(jobId);
+                    out.writeObject(wait);
+                    Object status = in.readObject();
+                    if (status instanceof Exception)
+                        throw (Exception) status;
+                    return (TrainingJobTO) status;
+                }
+            });
+            if (status.getState() == TrainingJobTO.State.FAILED)
+                return new Exception(status.getMessage());
+            return status.getTree();
+        } catch (IOException e) {
+            throw e;
+        } catch (ClassNotFoundException e) {
+            throw e;
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
     /**
      * Starts a prediction loading the tree from a database table.
      * <p/>
@@ -543,11 +606,13 @@ public class TreeClient extends JApplet {
         }
 
         try {
-            out.writeObject(ServerCommand.BUILD_TREE_FROM_DB);
+            // the servers which accept the training jobs learn the tree in background
+            boolean trainingJob = protocolVersion >= WireProtocol.TRAINING_JOBS_VERSION;
+            out.writeObject(trainingJob ? ServerCommand.SUBMIT_DB_TRAINING : ServerCommand.BUILD_TREE_FROM_DB);
             out.writeObject(treeSrc + ".db");
 
             try {
-                Object inputVal = in.readObject();
+                Object inputVal = trainingJob ? awaitTraining("the table " + treeSrc) : in.readObject();
                 if (inputVal instanceof String) {
                     msgAreaTxt.setText((String) inputVal);
                     sessionTracker.setTree((String) inputVal);
@@ -587,7 +652,8 @@ public class TreeClient extends JApplet {
                     }
                 } else {
                     JOptionPane.showMessageDialog(null,
-                            "Unable to load the tree from the server.",
+                            "Unable to load the tree from the server.\n"
+                                    + (inputVal instanceof Exception ? ((Exception) inputVal).getMessage() : ""),
                             "ERROR", JOptionPane.ERROR_MESSAGE);
                 }
 
@@ -695,8 +761,11 @@ public class TreeClient extends JApplet {
         }
 
         try {
-            new FileSender(clientSocket, out, treeSrc);
-            Object result = in.readObject();
+            // the servers which accept the training jobs learn the tree in background
+            boolean trainingJob = protocolVersion >= WireProtocol.TRAINING_JOBS_VERSION;
+            new FileSender(clientSocket, out, treeSrc,
+                    trainingJob ? ServerCommand.SUBMIT_UPLOAD_TRAINING : ServerCommand.UPLOAD_FILE);
+            Object result = trainingJob ? awaitTraining(new File(treeSrc).getName()) : in.readObject();
             if (result instanceof Exception) {
                 JOptionPane.showMessageDialog(null, "Error in uploading file"
                         + ((Exception) result).getMessage() + "\n", "ERROR",
@@ -926,20 +995,16 @@ public class TreeClient extends JApplet {
      * Displays a file chooser where the user can select which file
      * upload to the server.
      * <p/>
-     * A request is made to the server to know which extensions are supported.
-     * The supported extensions may change during application life cycle.
+     * The supported extensions are those received from the server at startup.
      */
     private void fileChooser_mouseClicked() {
         if (!chooserFlag) {
             return;
         }
         try {
-            out.writeObject(ServerCommand.SUPPORTED_EXTENSIONS);
             // Read-only FileChooser: the user can't modify the file
             UIManager.put("FileChooser.readOnly", Boolean.TRUE);
-            @SuppressWarnings("unchecked")
-            FileFilter customFilter = new ExtensionFilter(
-                    (ArrayList<String>) in.readObject());
+            FileFilter customFilter = new ExtensionFilter(getSupportedExtensions());
             // File chooser displays the user's home directory
             JFileChooser fileChooser = new JFileChooser(
                     System.getProperty("user.home"));
@@ -991,6 +1056,65 @@ public class TreeClient extends JApplet {
         }
     }
 
+    /**
+     * Asks the server the extensions of the files it supports and the list of available
+     * files that can be chosen by the user. If the server answers the requests out of order,
+     * both are sent before reading the responses, which are matched by their request id;
+     * otherwise only the list of files is asked.
+     *
+     * @return the list of available files
+     */
+    @SuppressWarnings("unchecked")
+    private String[] loadStartupData() {
+        if (protocolVersion < WireProtocol.PIPELINING_VERSION)
+            return getFileList();
+
+        String[] file = null;
+
+        try {
+            BinaryObjectOutputStream requests = (BinaryObjectOutputStream) out;
+            BinaryObjectInputStream responses = (BinaryObjectInputStream) in;
+            requests.writeObject(ServerCommand.SUPPORTED_EXTENSIONS);
+            int extensionsRequest = requests.getRequestId();
+            requests.writeObject(ServerCommand.AVAILABLE_DAT_FILES);
+            int filesRequest = requests.getRequestId();
+
+            Object extensions = responses.readResponse(extensionsRequest);
+            if (!(extensions instanceof Exception))
+                supportedExtensions = (ArrayList<String>) extensions;
+            Object files = responses.readResponse(filesRequest);
+            if (files instanceof Exception)
+                throw (Exception) files;
+            file = (String[]) files;
+        } catch (Exception e) {
+            JOptionPane.showMessageDialog(null,
+                    "Unable to load file list...\nTry pressing 'Update list'",
+                    "ERROR", JOptionPane.ERROR_MESSAGE);
+        }
+
+        if (file == null)
+            file = new String[1];
+
+        return file;
+    }
+
+    /**
+     * Returns the extensions of the files supported by the server, asking them
+     * only if they weren't received at startup.
+     *
+     * @return the supported extensions
+     * @throws IOException            - if the request can't be sent or the response can't be read
+     * @throws ClassNotFoundException - if the class of the response is unknown
+     */
+    @SuppressWarnings("unchecked")
+    private ArrayList<String> getSupportedExtensions() throws IOException, ClassNotFoundException {
+        if (supportedExtensions == null) {
+            out.writeObject(ServerCommand.SUPPORTED_EXTENSIONS);
+            supportedExtensions = (ArrayList<String>) in.readObject();
+        }
+        return supportedExtensions;
+    }
+
     /**
      * Asks the server for the list of available files that can
      * be chosen by the user.
@@ -1042,8 +1166,7 @@ public class TreeClient extends JApplet {
      * created a dataset in the server (if a .dat file was loaded then
      * it will not be possible to convert the dataset).
      * <p/>
-     * A request is made to the server to know which extensions are supported.
-     * The supported extensions may change during application life cycle.
+     * The supported extensions are those received from the server at startup.
      */
     private class FileConverter extends JDialog {
 
@@ -1082,10 +1205,7 @@ public class TreeClient extends JApplet {
             validExt = new JComboBox<String>();
             validExtModel = new DefaultComboBoxModel<String>();
             try {
-                out.writeObject(ServerCommand.SUPPORTED_EXTENSIONS);
-                @SuppressWarnings("unchecked")
-                ArrayList<String> elem = (ArrayList<String>) in.readObject();
-                for (String s : elem) {
+                for (String s : getSupportedExtensions()) {
                     validExtModel.addElement(s);
                 }
                 validExtModel.addElement("script");
@@ -53,6 +53,10 @@ public class FileSender extends JDialog implements Runnable,
      * exception that maybe be generated in the file sending
      */
     private Exception currException;
+    /**
+     * the command which precedes the file
+     */
+    private final ServerCommand command;
 
     /**
      * File sender constructor which initializes the graphical interface
@@ -65,6 +69,22 @@ public class FileSender extends JDialog implements Runnable,
      */
     public FileSender(Socket s, ObjectOutputStream out, String fileName)
             throws Exception {
+        this(s, out, fileName, ServerCommand.UPLOAD_FILE);
+    }
+
+    /**
+     * File sender constructor which sends the file after the specified command, which
+     * must be one of the commands which upload a dataset.
+     *
+     * @param s        the client socket that will receive the file
+     * @param out      object stream used to communicate with the server
+     * @param fileName the filename of the file that will be sent
+     * @param command  the command which precedes the file
+     * @throws Exception if some errors occurred in the file sending process
+     */
+    public FileSender(Socket s, ObjectOutputStream out, String fileName, ServerCommand command)
+            throws Exception {
+        this.command = command;
         setTitle("Upload progress");
         setModal(true);
         this.outStream = out;
@@ -110,7 +130,7 @@ public class FileSender extends JDialog implements Runnable,
      * @throws IOException - if some error occurred while sending the data
      */
     private void sendSuppData() throws IOException {
-        outStream.writeObject(ServerCommand.UPLOAD_FILE);
+        outStream.writeObject(command);
 
         String extension = fileName.substring(fileName.lastIndexOf(".") + 1,
                 fileName.length());
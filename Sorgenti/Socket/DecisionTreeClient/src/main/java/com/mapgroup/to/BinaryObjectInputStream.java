@@ -0,0 +1,165 @@
+package com.mapgroup.to;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * This class reads the values sent as frames of the {@link WireProtocol}, so it can
+ * replace an {@link ObjectInputStream} in the communication between the client and the server.
+ * <p>
+ * Only {@link #readObject()}, {@link #available()}, {@link #close()} and the methods
+ * reading bytes are supported: the bytes are read as they are from the underlying stream,
+ * as the files received after a command. The stream never reads beyond the end of a frame.
+ * </p>
+ * <p>
+ * When the responses can arrive out of order, {@link #readResponse(int)} returns the
+ * next value of a request, keeping those of the other requests for the following calls.
+ * </p>
+ */
+public class BinaryObjectInputStream extends ObjectInputStream {
+
+    /** Greatest size of the payload buffer kept after a message */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    /** the stream from which the frames are read */
+    private final InputStream in;
+    private final DataInputStream dataIn;
+    /** buffer of the payloads, reused while they are short */
+    private byte[] payload = new byte[256];
+    /** id of the request of the last value returned */
+    private int requestId;
+    /** the values read while looking for another request, in the order they arrived */
+    private final LinkedList<Response> pending = new LinkedList<Response>();
+
+    /**
+     * Creates a stream reading the frames from another stream.
+     *
+     * @param in the stream from which the frames are read
+     * @throws IOException if the stream can't be created
+     */
+    public BinaryObjectInputStream(InputStream in) throws IOException {
+        super();
+        this.in = in;
+        dataIn = new DataInputStream(in);
+    }
+
+    /**
+     * Returns the next value, in the order in which the values arrived.
+     *
+     * @return the value
+     * @throws IOException            if the frame can't be read
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    protected Object readObjectOverride() throws IOException, ClassNotFoundException {
+        if (!pending.isEmpty()) {
+            Response response = pending.removeFirst();
+            requestId = response.requestId;
+            return response.value;
+        }
+        return readFrame();
+    }
+
+    /**
+     * Returns the next value sent for a request, reading and keeping the values of the
+     * other requests until it arrives.
+     *
+     * @param requestId id of the request
+     * @return the value
+     * @throws IOException            if the frame can't be read
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    public Object readResponse(int requestId) throws IOException, ClassNotFoundException {
+        for (Iterator<Response> i = pending.iterator(); i.hasNext(); ) {
+            Response response = i.next();
+            if (response.requestId == requestId) {
+                i.remove();
+                this.requestId = requestId;
+                return response.value;
+            }
+        }
+
+        while (true) {
+            Object value = readFrame();
+            if (this.requestId == requestId)
+                return value;
+            pending.add(new Response(this.requestId, value));
+        }
+    }
+
+    /**
+     * Reads the value of the next frame.
+     *
+     * @return the value
+     * @throws IOException            if the frame can't be read
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    private Object readFrame() throws IOException, ClassNotFoundException {
+        int first = in.read();
+        if (first == -1)
+            throw new EOFException();
+
+        byte type = (byte) first;
+        requestId = dataIn.readInt();
+        int length = WireProtocol.readLength(dataIn);
+
+        if (length > payload.length) {
+            payload = new byte[length];
+        }
+        dataIn.readFully(payload, 0, length);
+
+        DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload, 0, length));
+        Object value = WireProtocol.readPayload(type, payloadIn);
+        if (payloadIn.available() != 0)
+            throw new StreamCorruptedException("Unexpected bytes after a value of type " + type);
+
+        if (payload.length > MAX_RETAINED_CAPACITY)
+            payload = new byte[256];
+        return value;
+    }
+
+    /**
+     * Returns the id of the request to which the last value returned belongs.
+     *
+     * @return the request id
+     */
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public int read() throws IOException {
+        return in.read();
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+        return in.read(b, off, len);
+    }
+
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * A value kept until its request is read.
+     */
+    private static class Response {
+
+        final int requestId;
+        final Object value;
+
+        Response(int requestId, Object value) {
+            this.requestId = requestId;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.mapgroup.to;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * This class writes the values as frames of the {@link WireProtocol}, so it can
+ * replace an {@link ObjectOutputStream} in the communication between the client and the server.
+ * <p>
+ * Only {@link #writeObject(Object)}, {@link #reset()}, {@link #flush()}, {@link #close()}
+ * and the methods writing bytes are supported: the bytes are written as they are on the
+ * underlying stream, as the files sent after a command.
+ * </p>
+ */
+public class BinaryObjectOutputStream extends ObjectOutputStream {
+
+    /** the stream on which the frames are written */
+    private final OutputStream out;
+    /** Bytes of the opcode, the request id and the length which precede the payload */
+    private static final int HEADER_LENGTH = 9;
+    /** Greatest size of the frame buffer kept after a message */
+    private static final int MAX_RETAINED_CAPACITY = 1 << 16;
+
+    /** the frame being written, reused for all the messages */
+    private final FrameBuffer frame = new FrameBuffer();
+    private final DataOutputStream frameOut = new DataOutputStream(frame);
+    /** the stream whose requests are answered, <code>null</code> on the side sending the requests */
+    private final BinaryObjectInputStream requests;
+    /** id of the last request sent */
+    private int requestId;
+
+    /**
+     * Creates a stream which sends the requests: a new request starts with every
+     * {@link ServerCommand} written.
+     *
+     * @param out the stream on which the frames are written
+     * @throws IOException if the stream can't be created
+     */
+    public BinaryObjectOutputStream(OutputStream out) throws IOException {
+        this(out, null);
+    }
+
+    /**
+     * Creates a stream which answers the requests read from another stream: every
+     * message has the id of the last request read.
+     *
+     * @param out      the stream on which the frames are written
+     * @param requests the stream from which the requests are read
+     * @throws IOException if the stream can't be created
+     */
+    public BinaryObjectOutputStream(OutputStream out, BinaryObjectInputStream requests) throws IOException {
+        super();
+        this.out = out;
+        this.requests = requests;
+    }
+
+    /**
+     * Writes a value in a frame of its own. The frames written by different threads
+     * are never mixed.
+     *
+     * @param value the value
+     * @throws IOException if the value can't be written
+     */
+    protected synchronized void writeObjectOverride(Object value) throws IOException {
+        if (requests == null && value instanceof ServerCommand)
+            requestId++;
+        writeFrame(requests == null ? requestId : requests.getRequestId(), value);
+    }
+
+    /**
+     * Writes the response to a request which isn't the last one read, when
+     * the responses are sent out of order.
+     *
+     * @param requestId id of the request
+     * @param value     the response
+     * @throws IOException if the value can't be written
+     */
+    public synchronized void writeResponse(int requestId, Object value) throws IOException {
+        writeFrame(requestId, value);
+    }
+
+    /**
+     * Writes a value in a frame of its own.
+     *
+     * @param id    id of the request to which the value belongs
+     * @param value the value
+     * @throws IOException if the value can't be written
+     */
+    private void writeFrame(int id, Object value) throws IOException {
+        byte type = WireProtocol.typeOf(value);
+        frame.reset();
+        frameOut.writeByte(type);
+        frameOut.writeInt(id);
+        // the length is written when the payload is known
+        frameOut.writeInt(0);
+        WireProtocol.writePayload(frameOut, type, value);
+        frameOut.flush();
+
+        int length = frame.size() - HEADER_LENGTH;
+        if (length > WireProtocol.MAX_PAYLOAD_LENGTH)
+            throw new IOException("The message is too long: " + length + " bytes");
+        frame.setLength(length);
+        frame.writeTo(out);
+        out.flush();
+
+        if (frame.capacity() > MAX_RETAINED_CAPACITY)
+            frame.trim();
+    }
+
+    /**
+     * Returns the id of the last request sent.
+     *
+     * @return the request id
+     */
+    public synchronized int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Does nothing, since the frames don't refer to the values already written.
+     */
+    public void reset() {
+    }
+
+    public void write(int b) throws IOException {
+        out.write(b);
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Buffer which allows to write the length of the payload in the header of the frame.
+     */
+    private static class FrameBuffer extends ByteArrayOutputStream {
+
+        void setLength(int length) {
+            buf[5] = (byte) (length >>> 24);
+            buf[6] = (byte) (length >>> 16);
+            buf[7] = (byte) (length >>> 8);
+            buf[8] = (byte) length;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        /**
+         * Releases the memory taken by a long message.
+         */
+        void trim() {
+            buf = new byte[32];
+            count = 0;
+        }
+    }
+}
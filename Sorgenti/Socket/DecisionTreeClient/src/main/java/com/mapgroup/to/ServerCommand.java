@@ -39,7 +39,22 @@ public enum ServerCommand implements Serializable{
     VALIDATE_EMAIL (10),
     
     /** Converts a dataset from a format to another */
-    CONVERT_DATASET (11);
+    CONVERT_DATASET (11),
+    
+    /** Predicts the class of every example of a dataset uploaded or read from a table */
+    BATCH_PREDICTION (12),
+    
+    /** Predicts the class of an example whose attribute values are sent in a single message */
+    PREDICT_VECTOR (13),
+    
+    /** Submits the training of a tree from a database table, without waiting for its end */
+    SUBMIT_DB_TRAINING (14),
+    
+    /** Uploads a file and submits the training of its tree, without waiting for its end */
+    SUBMIT_UPLOAD_TRAINING (15),
+    
+    /** Asks for the status of a training job, which gives its tree when it is completed */
+    TRAINING_STATUS (16);
     
 
     /** Value of the command */
@@ -49,4 +64,27 @@ public enum ServerCommand implements Serializable{
     private ServerCommand(int id){
         this.id = id;
     }
+
+    /**
+     * Returns the value of the command, which identifies it in the binary protocol.
+     *
+     * @return value of the command
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the command with the specified value.
+     *
+     * @param id value of the command
+     * @return the command, <code>null</code> if no command has that value
+     */
+    public static ServerCommand valueOf(int id) {
+        for (ServerCommand command : values()) {
+            if (command.id == id)
+                return command;
+        }
+        return null;
+    }
 }
@@ -0,0 +1,126 @@
+package com.mapgroup.to;
+
+import java.io.Serializable;
+
+/**
+ * This class transmits to the client the status of a training job, i.e. a decision
+ * tree that the server learns in background while the client keeps working.
+ * <p>
+ * The client submits the training, receives the id of the job and asks for its status
+ * until the job is finished: when it is completed, the learnt tree becomes the current
+ * tree of the client and its string representation is included in the status.
+ * </p>
+ */
+public class TrainingJobTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The states of a training job
+     */
+    public enum State {
+        /** The job waits for a free worker */
+        QUEUED,
+        /** The dataset is being read or the tree is being learnt */
+        RUNNING,
+        /** The tree has been learnt */
+        COMPLETED,
+        /** The dataset couldn't be read or the tree couldn't be learnt */
+        FAILED
+    }
+
+    /** Id of the job */
+    private final long id;
+    /** State of the job */
+    private final State state;
+    /** Number of jobs which will start before this one, if it is queued */
+    private final int queuePosition;
+    /** Percentage of the examples of the dataset already placed in a leaf */
+    private final int progress;
+    /** Description of the state, or the error if the job failed */
+    private final String message;
+    /** String representation of the learnt tree, <code>null</code> until the job is completed */
+    private final String tree;
+
+    /**
+     * Builds the status of a job.
+     *
+     * @param id            id of the job
+     * @param state         state of the job
+     * @param queuePosition number of jobs which will start before this one
+     * @param progress      percentage of the examples already placed in a leaf
+     * @param message       description of the state
+     * @param tree          string representation of the learnt tree, if the job is completed
+     */
+    public TrainingJobTO(long id, State state, int queuePosition, int progress, String message, String tree) {
+        this.id = id;
+        this.state = state;
+        this.queuePosition = queuePosition;
+        this.progress = progress;
+        this.message = message;
+        this.tree = tree;
+    }
+
+    /**
+     * Returns the id of the job.
+     *
+     * @return the id
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the state of the job.
+     *
+     * @return the state
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Checks if the job won't change anymore.
+     *
+     * @return <code>true</code> if the job is completed or failed, <code>false</code> otherwise
+     */
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED;
+    }
+
+    /**
+     * Returns the number of jobs which will start before this one.
+     *
+     * @return the position in the queue, <code>0</code> if the job isn't queued
+     */
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+
+    /**
+     * Returns the percentage of the examples of the dataset already placed in a leaf.
+     *
+     * @return the progress, from 0 to 100
+     */
+    public int getProgress() {
+        return progress;
+    }
+
+    /**
+     * Returns the description of the state of the job.
+     *
+     * @return the description, or the error if the job failed
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Returns the string representation of the learnt tree.
+     *
+     * @return the tree, <code>null</code> if the job isn't completed
+     */
+    public String getTree() {
+        return tree;
+    }
+}
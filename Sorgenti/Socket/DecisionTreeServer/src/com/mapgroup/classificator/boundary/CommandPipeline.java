@@ -0,0 +1,118 @@
+package com.mapgroup.classificator.boundary;
+
+import com.mapgroup.to.BinaryObjectOutputStream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class computes the responses of the commands of a client which don't depend
+ * on the other commands, while the thread serving the client reads the following ones.
+ * Each response is sent with the id of its request as soon as it is ready, so the
+ * responses can reach the client in a different order from the requests.
+ * <p>
+ * At most {@link #MAX_PENDING_RESPONSES} responses of a client are computed at the same
+ * time: the following commands wait until one of them has been sent. The responses of all
+ * the clients are computed by {@link #THREADS_PROPERTY} threads (default: twice the processors).
+ * </p>
+ */
+class CommandPipeline {
+
+    /** Name of the system property which defines the number of threads computing the responses */
+    static final String THREADS_PROPERTY = "decisiontree.pipeline.threads";
+
+    /** Greatest number of responses of a client computed at the same time */
+    private static final int MAX_PENDING_RESPONSES = 32;
+
+    /** the threads which compute the responses, shared by all the clients */
+    private static final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, Integer.getInteger(THREADS_PROPERTY, 2 * Runtime.getRuntime().availableProcessors())),
+            new ThreadFactory() {
+                private final AtomicInteger createdThreads = new AtomicInteger();
+
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "pipeline-" + createdThreads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /** the stream to the client */
+    private final BinaryObjectOutputStream out;
+    /** number of responses not yet sent */
+    private int pendingResponses;
+
+    /**
+     * Creates the pipeline of a client.
+     *
+     * @param out the stream to the client
+     */
+    CommandPipeline(BinaryObjectOutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Computes and sends the response to a request in another thread.
+     * If the response throws an exception, the exception is sent.
+     *
+     * @param requestId id of the request
+     * @param response  computes the response
+     * @throws InterruptedIOException if the thread was interrupted while waiting for the previous responses
+     */
+    void submit(final int requestId, final Callable<Object> response) throws InterruptedIOException {
+        synchronized (this) {
+            try {
+                while (pendingResponses >= MAX_PENDING_RESPONSES)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the responses");
+            }
+            pendingResponses++;
+        }
+
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    Object value;
+                    try {
+                        value = response.call();
+                    } catch (Exception e) {
+                        value = e;
+                    }
+                    out.writeResponse(requestId, value);
+                } catch (IOException e) {
+                    // the connection is closed, the thread serving the client will notice it
+                } finally {
+                    responseSent();
+                }
+            }
+        });
+    }
+
+    private synchronized void responseSent() {
+        pendingResponses--;
+        notifyAll();
+    }
+
+    /**
+     * Waits until all the submitted responses have been sent, so that the next command
+     * is executed after all the previous ones.
+     *
+     * @throws InterruptedIOException if the thread was interrupted while waiting
+     */
+    synchronized void awaitResponses() throws InterruptedIOException {
+        try {
+            while (pendingResponses > 0)
+                wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the responses");
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.mapgroup.classificator.boundary;
+
+import com.mapgroup.classificator.utility.ServerLog;
+import com.mapgroup.to.WireProtocol;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class decides which thread serves each connected client and counts
+ * the connections accepted, served, waiting and rejected by the server.
+ * <p>
+ * The mode is chosen by the system property {@link #MODE_PROPERTY}:
+ * <ul>
+ * <li><code>VIRTUAL</code> (default): every client is served by its own virtual thread, so thousands of
+ * idle clients cost almost nothing. It needs Java 21; on older JVMs <code>THREAD</code> is used;</li>
+ * <li><code>THREAD</code>: every client is served by its own platform thread, without limits;</li>
+ * <li><code>POOL</code>: at most {@link #THREADS_PROPERTY} clients (default 64) are served at
+ * the same time and at most {@link #QUEUE_PROPERTY} clients (default 256) wait for a free thread.
+ * Since a client keeps its thread for its whole session, a client which waits longer than
+ * {@link #QUEUE_WAIT_PROPERTY} milliseconds (default 5000) is rejected, as the clients which
+ * find the queue full.</li>
+ * </ul>
+ * A rejected client is told that the server is busy ({@link WireProtocol#reject(java.io.OutputStream)})
+ * and disconnected.
+ * </p>
+ */
+class ConnectionDispatcher {
+
+    /** Name of the system property which defines how the clients are served */
+    static final String MODE_PROPERTY = "decisiontree.connections.mode";
+    /** Name of the system property which defines the number of threads of the <code>POOL</code> mode */
+    static final String THREADS_PROPERTY = "decisiontree.connections.threads";
+    /** Name of the system property which defines the number of clients waiting in the <code>POOL</code> mode */
+    static final String QUEUE_PROPERTY = "decisiontree.connections.queue";
+    /** Name of the system property which defines the milliseconds a client can wait in the <code>POOL</code> mode */
+    static final String QUEUE_WAIT_PROPERTY = "decisiontree.connections.queue.wait";
+
+    /** the threads which serve the clients */
+    private final ExecutorService executor;
+    /** rejects the clients waiting too long in the <code>POOL</code> mode, <code>null</code> in the other modes */
+    private final ScheduledExecutorService queueTimer;
+    /** milliseconds a client can wait for a thread */
+    private final long queueWait;
+    /** description of the mode used, shown in the log */
+    private final String description;
+
+    /** number of connections accepted since the start of the server */
+    private final AtomicLong accepted = new AtomicLong();
+    /** number of connections rejected since the start of the server */
+    private final AtomicLong rejected = new AtomicLong();
+    /** number of clients currently served */
+    private final AtomicInteger active = new AtomicInteger();
+    /** number of clients waiting for a thread */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /**
+     * Creates the threads of the mode defined by the system properties.
+     */
+    ConnectionDispatcher() {
+        String mode = System.getProperty(MODE_PROPERTY, "VIRTUAL").toUpperCase();
+        ExecutorService virtualExecutor = mode.equals("VIRTUAL") ? newVirtualThreadExecutor() : null;
+        queueWait = Math.max(1, Long.getLong(QUEUE_WAIT_PROPERTY, 5000));
+
+        if (mode.equals("POOL")) {
+            int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, 64));
+            int queueSize = Math.max(1, Integer.getInteger(QUEUE_PROPERTY, 256));
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(queueSize), new ClientThreadFactory("client-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            queueTimer = Executors.newSingleThreadScheduledExecutor(new ClientThreadFactory("client-queue-"));
+            description = threads + " threads, " + queueSize + " clients waiting at most " + queueWait + " ms";
+        } else if (virtualExecutor != null) {
+            executor = virtualExecutor;
+            queueTimer = null;
+            description = "a virtual thread for each client";
+        } else {
+            executor = Executors.newCachedThreadPool(new ClientThreadFactory("client-"));
+            queueTimer = null;
+            description = "a thread for each client"
+                    + (mode.equals("VIRTUAL") ? " (virtual threads need Java 21)" : "");
+        }
+    }
+
+    /**
+     * Creates an executor which starts a virtual thread for each task. The method
+     * is called by reflection, so that the server still runs on older JVMs.
+     *
+     * @return the executor, <code>null</code> if the JVM hasn't virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Serves a client with a thread of this dispatcher. If too many clients are waiting,
+     * or if the client waits for a thread too long, it is rejected.
+     *
+     * @param client the task which serves the client
+     * @param socket the connection of the client
+     */
+    void dispatch(final Runnable client, final Socket socket) {
+        accepted.incrementAndGet();
+        queued.incrementAndGet();
+        final Runnable task = new Runnable() {
+            public void run() {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    client.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            }
+        };
+
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            reject(socket, "Too many clients");
+            return;
+        }
+
+        if (queueTimer != null) {
+            queueTimer.schedule(new Runnable() {
+                public void run() {
+                    // the task is removed only if it is still waiting for a thread
+                    if (((ThreadPoolExecutor) executor).remove(task)) {
+                        queued.decrementAndGet();
+                        reject(socket, "No free thread in " + queueWait + " ms");
+                    }
+                }
+            }, queueWait, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Tells a client that the server is busy and closes its connection.
+     *
+     * @param socket the connection of the client
+     * @param reason the reason, shown in the log
+     */
+    private void reject(Socket socket, String reason) {
+        rejected.incrementAndGet();
+        ServerLog.log(reason + ", connection from " + socket.getInetAddress().getHostName()
+                + " refused (" + getStatistics() + ").\n");
+        try {
+            WireProtocol.reject(socket.getOutputStream());
+        } catch (IOException e) {
+            // the client is disconnected anyway
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            ServerLog.log("Error: " + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Returns the description of the mode used to serve the clients.
+     *
+     * @return a description for the log
+     */
+    String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the number of connections accepted since the start of the server,
+     * including the rejected ones.
+     *
+     * @return the accepted connections
+     */
+    long getAccepted() {
+        return accepted.get();
+    }
+
+    /**
+     * Returns the number of connections rejected since the start of the server.
+     *
+     * @return the rejected connections
+     */
+    long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Returns the number of clients currently served.
+     *
+     * @return the active connections
+     */
+    int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Returns the number of clients waiting for a thread.
+     *
+     * @return the queued connections
+     */
+    int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * Returns the counters of the connections, formatted for the log.
+     *
+     * @return the current values of the counters
+     */
+    String getStatistics() {
+        return "accepted " + getAccepted() + ", active " + getActive() + ", queued "
+                + getQueued() + ", rejected " + getRejected();
+    }
+
+    /**
+     * Creates the daemon threads which serve the clients.
+     */
+    private static class ClientThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger createdThreads = new AtomicInteger();
+        /** the prefix of the names of the threads */
+        private final String prefix;
+
+        ClientThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + createdThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.mapgroup.classificator.boundary;
+
+import com.mapgroup.classificator.utility.ServerLog;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import java.util.List;
+
+/**
+ * This class shows the messages of the server in the log panel of the graphical
+ * interface. The panel is updated by the event dispatch thread and keeps only the
+ * last {@link #MAX_CHARACTERS} characters, so it doesn't grow while the server is running.
+ */
+class LogPanelListener implements ServerLog.Listener {
+
+    /** Greatest number of characters shown in the panel */
+    private static final int MAX_CHARACTERS = 200000;
+
+    /** the log panel */
+    private final JTextArea logArea;
+
+    /**
+     * Creates the listener of a log panel.
+     *
+     * @param logArea the log panel
+     */
+    LogPanelListener(JTextArea logArea) {
+        this.logArea = logArea;
+    }
+
+    public void messagesLogged(List<ServerLog.Message> messages) {
+        final StringBuilder text = new StringBuilder();
+        for (ServerLog.Message message : messages)
+            text.append(message.getText());
+
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                logArea.append(text.toString());
+                int excess = logArea.getDocument().getLength() - MAX_CHARACTERS;
+                if (excess > 0)
+                    logArea.replaceRange("", 0, excess);
+            }
+        });
+    }
+}
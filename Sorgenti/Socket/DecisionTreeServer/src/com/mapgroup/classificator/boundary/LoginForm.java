@@ -5,6 +5,7 @@ import com.mapgroup.classificator.database.IncorrectLoginException;
 import com.mapgroup.classificator.database.SupportedDBMS;
 import com.mapgroup.classificator.database.dao.DbAccess;
 import com.mapgroup.classificator.database.dao.DbAccessFactory;
+import com.mapgroup.classificator.utility.Utility;
 
 import java.awt.Dimension;
 import java.awt.GridLayout;
@@ -40,6 +41,14 @@ import javax.swing.JTextField;
  * </p>
  */
 class LoginForm {
+    /** Name of the system property which defines the DBMS used without graphical interface */
+    static final String DBMS_PROPERTY = "decisiontree.db.dbms";
+    /** Name of the system property which defines the DBMS user used without graphical interface */
+    static final String USER_PROPERTY = "decisiontree.db.user";
+    /** Name of the system property which defines the DBMS password used without graphical interface */
+    static final String PASSWORD_PROPERTY = "decisiontree.db.password";
+    /** Name of the environment variable which defines the DBMS password, if the property is missing */
+    static final String PASSWORD_VARIABLE = "DECISIONTREE_DB_PASSWORD";
     /**
      * Text box in which the user was able to insert his username
      */
@@ -76,13 +85,48 @@ class LoginForm {
             {
                 System.err
                         .println("Invalid port specified. Default port will be used instead.");
-                new LoginForm(port);
             } else
-                new LoginForm(userPort);
+                port = userPort;
+        }
+
+        if (Utility.isHeadless()) {
+            // without graphical interface the credentials are read from the system properties
+            if (!connectDatabase())
+                System.exit(1);
+            new MultiServer(port);
         } else
             new LoginForm(port);
     }
 
+    /**
+     * Connects to the DBMS defined by the system properties, when the server has no
+     * graphical interface. Without {@link #USER_PROPERTY} the server runs without database.
+     *
+     * @return <code>true</code> if the server can start, <code>false</code> if the credentials are wrong
+     */
+    private static boolean connectDatabase() {
+        String userName = System.getProperty(USER_PROPERTY);
+        if (userName == null) {
+            System.out.println("No database user specified: the database tables won't be available.");
+            return true;
+        }
+
+        String dbms = System.getProperty(DBMS_PROPERTY, SupportedDBMS.getSupportedDBMSName()[0]);
+        String passText = System.getProperty(PASSWORD_PROPERTY, System.getenv(PASSWORD_VARIABLE));
+        try {
+            DbAccess databaseConn = DbAccessFactory.createDbAccess(dbms);
+            databaseConn.initConnection(userName, passText == null ? "" : passText);
+            return true;
+        } catch (DataException e) {
+            System.err.println("Unable to connect to the database.\n" + e.getMessage());
+        } catch (IncorrectLoginException e) {
+            System.err.println("Unable to connect to the database.\nWrong combination of username and password.");
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unsupported DBMS: " + dbms);
+        }
+        return false;
+    }
+
     /**
      * Initializes all the graphical interface of the login panel.
      * @param port the port on which the server will be started
@@ -11,16 +11,25 @@ import com.mapgroup.classificator.mail.MailSender;
 import com.mapgroup.classificator.tree.DecisionTree;
 import com.mapgroup.classificator.tree.UnknownValueException;
 import com.mapgroup.classificator.tree.NoTreeExists;
+import com.mapgroup.classificator.tree.Predictor;
 import com.mapgroup.classificator.tree.SplitNode;
 import com.mapgroup.classificator.tree.LeafNode;
+import com.mapgroup.classificator.utility.BatchPrediction;
 import com.mapgroup.classificator.utility.FileReceiver;
 import com.mapgroup.classificator.utility.FileSender;
 import com.mapgroup.classificator.utility.PdfCreator;
+import com.mapgroup.classificator.utility.RollingLogFile;
+import com.mapgroup.classificator.utility.ServerLog;
 import com.mapgroup.classificator.utility.SupportedExtensions;
+import com.mapgroup.classificator.utility.TrainingQueue;
 import com.mapgroup.classificator.utility.Utility;
+import com.mapgroup.to.BinaryObjectInputStream;
+import com.mapgroup.to.BinaryObjectOutputStream;
 import com.mapgroup.to.InvalidMailAddressException;
 import com.mapgroup.to.MailDataTO;
 import com.mapgroup.to.ServerCommand;
+import com.mapgroup.to.TrainingJobTO;
+import com.mapgroup.to.WireProtocol;
 
 import javax.mail.internet.AddressException;
 import javax.swing.BorderFactory;
@@ -41,6 +50,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
 
 import java.awt.Container;
 import java.awt.FlowLayout;
@@ -49,8 +59,13 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.util.EnumSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * This class represents all the main server capabilities.&nbsp;
@@ -88,14 +103,31 @@ class MultiServer implements Runnable {
     private JTextArea logArea;
     /** the main server socket */
     private ServerSocket serverSocket = null;
+    /** the commands which don't depend on the others, whose responses can be sent out of order */
+    private static final EnumSet<ServerCommand> PIPELINED_COMMANDS = EnumSet.of(ServerCommand.SUPPORTED_EXTENSIONS,
+            ServerCommand.AVAILABLE_DAT_FILES, ServerCommand.VALIDATE_EMAIL, ServerCommand.PREDICT_VECTOR);
     /** the port on which the server is started */
     private static int serverPort;
     /** the client socket that needs to be closed */
     private Socket closingSocket = null;
+    /** the threads which serve the connected clients */
+    private final ConnectionDispatcher dispatcher = new ConnectionDispatcher();
+    /** the transport based on a selector, <code>null</code> if every client is served by its own thread */
+    private NioTransport nioTransport;
+    /** the trainings of the decision trees submitted by the clients */
+    private final TrainingQueue trainings = new TrainingQueue();
+
+    /**
+     * Name of the system property which selects the transport: <code>BLOCKING</code> (default)
+     * serves each client with its own thread, <code>NIO</code> with the threads of a {@link NioTransport}
+     */
+    static final String TRANSPORT_PROPERTY = "decisiontree.transport";
 
     /**
      * MultiServer constructor which loads the server on the
-     * specified <code>port</code> and create its graphical interface.
+     * specified <code>port</code> and create its graphical interface,
+     * unless the server runs without it ({@link Utility#isHeadless()}).
+     * The messages of the server are written in the log files in any case.
      *
      * */
     public MultiServer(int port){
@@ -104,10 +136,28 @@ class MultiServer implements Runnable {
         Utility.cleanFolder("download");
         Utility.cleanFolder("report");
         Utility.cleanFolder("conversion");
+        startLogFile();
+        ServerLog.log("Trainings: " + trainings + "\n");
         Thread thread = new Thread(this);
         thread.start();
     }
 
+    /**
+     * Starts writing the messages of the server in the log files.
+     */
+    private static void startLogFile() {
+        try {
+            RollingLogFile logFile = new RollingLogFile();
+            ServerLog.addListener(logFile);
+            ServerLog.log("Log written in " + logFile.getPath() + "\n");
+            // without the log panel, the console tells where the log can be read
+            if (Utility.isHeadless())
+                System.out.println("Log written in " + logFile.getPath());
+        } catch (IOException e) {
+            System.err.println("Unable to open the log file: " + e.getMessage());
+        }
+    }
+
     /**
      * Initializes and creates the graphical interface for the
      * main panel of the server on which will be displayed all the
@@ -179,7 +229,7 @@ class MultiServer implements Runnable {
                                 listModel.removeElement(rem);
                                 clientArea.setModel(listModel);
                             } else
-                                logArea.append("Unable to retrieve the socket to be closed.\n");
+                                ServerLog.log("Unable to retrieve the socket to be closed.\n");
                         }
                     }
                 }
@@ -232,6 +282,8 @@ class MultiServer implements Runnable {
         logPanel.add(scrollLog);
 
         frame.setVisible(true);
+
+        ServerLog.addListener(new LogPanelListener(logArea));
     }
 
     /**
@@ -242,11 +294,11 @@ class MultiServer implements Runnable {
 
         try {
             closingSocket.close();
-            logArea.append("Client "
+            ServerLog.log("Client "
                     + closingSocket.getInetAddress().getHostName()
                     + " was killed.\n");
         } catch (IOException e) {
-            logArea.append("Unable to close socket: " + e.getMessage());
+            ServerLog.log("Unable to close socket: " + e.getMessage());
         }
         closingSocket = null;
     }
@@ -259,8 +311,15 @@ class MultiServer implements Runnable {
      * @param s the new connected client
      * */
     private void addClient(Socket s) {
-        listModel.addElement(getSocketInfo(s));
-        clientArea.setModel(listModel);
+        if (listModel == null)
+            return;
+
+        final String socketInfo = getSocketInfo(s);
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                listModel.addElement(socketInfo);
+            }
+        });
     }
 
     /**
@@ -280,8 +339,15 @@ class MultiServer implements Runnable {
      * @param s the client that will be removed
      * */
     private void removeClient(Socket s) {
-        listModel.removeElement(getSocketInfo(s));
-        clientArea.setModel(listModel);
+        if (listModel == null)
+            return;
+
+        final String socketInfo = getSocketInfo(s);
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                listModel.removeElement(socketInfo);
+            }
+        });
     }
 
     /**
@@ -292,36 +358,72 @@ class MultiServer implements Runnable {
     public void run() {
 
         try {
+            if (System.getProperty(TRANSPORT_PROPERTY, "BLOCKING").equalsIgnoreCase("NIO")) {
+                runNioTransport();
+                return;
+            }
+
             serverSocket = new ServerSocket(serverPort);
 
-            initAndShowGUI();
+            if (!Utility.isHeadless())
+                initAndShowGUI();
 
-            logArea.setText("Server is waiting for connection...\n");
+            ServerLog.log("Server is waiting for connection...\n");
+            ServerLog.log("Clients served with " + dispatcher.getDescription() + ".\n");
 
             while (true) {
                 Socket s = serverSocket.accept();
-                try {
-                    new ServeOneClient(s);
-
-                } catch (IOException e) {
-                    if (s != null) {
-                        s.close();
-                    }
-                }
+                dispatcher.dispatch(new ServeOneClient(s), s);
 
             }
         } catch (IOException e) {
+            if (Utility.isHeadless()) {
+                System.err.println("Server is already running...");
+                System.exit(1);
+            }
             JOptionPane.showMessageDialog(null, "Server is already running...",
                     "ERROR", JOptionPane.ERROR_MESSAGE);
         }
 
     }
 
+    /**
+     * Serves the clients with a {@link NioTransport} until the server socket is closed.
+     *
+     * @throws IOException if the server socket can't be opened or was closed
+     */
+    private void runNioTransport() throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(serverPort));
+        serverSocket = serverChannel.socket();
+        nioTransport = new NioTransport(new NioTransport.HandlerFactory() {
+            public NioTransport.Handler createHandler(Socket socket) {
+                return new ServeOneClient(socket);
+            }
+        });
+
+        if (!Utility.isHeadless())
+            initAndShowGUI();
+
+        ServerLog.log("Server is waiting for connection...\n");
+        ServerLog.log("Clients served with " + nioTransport.getDescription() + ".\n");
+        nioTransport.serve(serverChannel);
+    }
+
+    /**
+     * Returns the counters of the connections of the transport in use, formatted for the log.
+     *
+     * @return the current values of the counters
+     */
+    private String getConnectionStatistics() {
+        return nioTransport != null ? nioTransport.getStatistics() : dispatcher.getStatistics();
+    }
+
     /**
      * This class contains all the functionality to manage the
      * request of a single client
      * */
-    private class ServeOneClient extends Thread {
+    private class ServeOneClient implements Runnable, NioTransport.Handler {
         /** a reference to the client socket */
         private final Socket socket;
         /** the communication stream used to receive information from the client */
@@ -330,21 +432,28 @@ class MultiServer implements Runnable {
         private ObjectOutputStream out;
         /** the generated decision tree*/
         private DecisionTree tree;
+        /** the dataset from which <code>tree</code> was generated */
+        private Data trainingSet;
+        /** the listener which selects this client in the <code>clientArea</code> */
+        private MouseAdapter selectionListener;
+        /** computes the responses sent out of order, <code>null</code> if the client doesn't support them */
+        private CommandPipeline pipeline;
+        /** the predictor of the decision tree, built on the first vector prediction */
+        private Predictor predictor;
+        /** the decision tree from which <code>predictor</code> was built */
+        private DecisionTree predictorTree;
 
         /**
          * The constructor of this class which uses the
          * specified socket object in order to initialize the connection
-         * with the specific client.
+         * with the specific client. The streams are opened by the thread
+         * which serves the client, so that a slow client doesn't stop the
+         * acceptance of the other ones.
          *
          * @param s new connected client
-         * @throws IOException an error in the creation of the stream occurs
          * */
-        public ServeOneClient(Socket s) throws IOException {
+        public ServeOneClient(Socket s) {
             socket = s;
-            in = new ObjectInputStream(s.getInputStream());
-            out = new ObjectOutputStream(s.getOutputStream());
-
-            start();
         }
 
         /**
@@ -353,180 +462,334 @@ class MultiServer implements Runnable {
          * some errors occurred while the connection is started.
          * */
         public void run() {
-            clientArea.addMouseListener(new MouseAdapter() {
-                public void mousePressed(MouseEvent e) {
-                    if (SwingUtilities.isRightMouseButton(e)) {
-                        if (getSocketInfo(ServeOneClient.this.socket).equals(
-                                clientArea.getSelectedValue()))
-                            closingSocket = ServeOneClient.this.socket;
+            if (!open())
+                return;
 
-                    }
+            try {
+                while (serveCommand()) ;
+            } finally {
+                close();
+            }
+        }
+
+        /**
+         * Opens the communication streams and adds the client to the <code>clientArea</code>.
+         *
+         * @return <code>true</code> if the client can be served, <code>false</code> if
+         * the streams can't be opened and the socket was closed
+         */
+        public boolean open() {
+            try {
+                PushbackInputStream input = new PushbackInputStream(socket.getInputStream(),
+                        WireProtocol.getGreetingLength());
+                int version = WireProtocol.accept(input, socket.getOutputStream());
+                if (version > 0) {
+                    BinaryObjectInputStream requests = new BinaryObjectInputStream(input);
+                    BinaryObjectOutputStream responses = new BinaryObjectOutputStream(socket.getOutputStream(), requests);
+                    in = requests;
+                    out = responses;
+                    if (version >= WireProtocol.PIPELINING_VERSION)
+                        pipeline = new CommandPipeline(responses);
+                } else {
+                    // the client uses the Java serialization
+                    in = new ObjectInputStream(input);
+                    out = new ObjectOutputStream(socket.getOutputStream());
+                }
+            } catch (IOException e) {
+                ServerLog.log("Error: " + e.getMessage() + "\n");
+                try {
+                    socket.close();
+                } catch (IOException e1) {
+                    ServerLog.log("Error: " + e1.getMessage() + "\n");
                 }
-            });
+                return false;
+            }
+
+            if (clientArea != null) {
+                selectionListener = new MouseAdapter() {
+                    public void mousePressed(MouseEvent e) {
+                        if (SwingUtilities.isRightMouseButton(e)) {
+                            if (getSocketInfo(ServeOneClient.this.socket).equals(
+                                    clientArea.getSelectedValue()))
+                                closingSocket = ServeOneClient.this.socket;
+
+                        }
+                    }
+                };
+                clientArea.addMouseListener(selectionListener);
+            }
 
-            logArea.append("New client connected: "
-                    + socket.getInetAddress().getHostName() + "\n");
+            ServerLog.log("New client connected: "
+                    + socket.getInetAddress().getHostName() + " ("
+                    + getConnectionStatistics() + ")\n");
             addClient(socket);
+            return true;
+        }
 
-            Data trainingSet = null;
+        /**
+         * Reads a command of the client and executes it.
+         *
+         * @return <code>true</code> if the client can send other commands, <code>false</code>
+         * if it has closed the connection or some errors occurred
+         */
+        public boolean serveCommand() {
             boolean flag = true;
             try {
-                while (flag) {
-                    try {
-                        ServerCommand command = ((ServerCommand) in.readObject());
-                        switch (command) {
-                            // Build a decision tree from a database table
-                            case BUILD_TREE_FROM_DB:
-                                try {
-                                    String table = (String) in.readObject();
-                                    trainingSet = new Data(table);
-                                    tree = new DecisionTree(trainingSet);
-                                    out.writeObject(tree.toString());
-                                    logArea.append("Correctly loaded the database table "
-                                            + table + "\n");
-
-                                } catch (DataException e) {
-                                    System.err.println(e.getMessage());
-                                    out.writeObject(new Exception(e.getMessage()));
-                                }
-
-                                break;
-                            /*
-                            * Serializes the current decision tree on file with
-                            * extension ".dat"
-                            *
-                            * */
-                            case SERIALIZE_TREE:
-                                String fileName = (String) in.readObject();
-                                try {
-                                    if (tree == null) {
-                                        logArea.append("Unable to save "
-                                                + fileName
-                                                + ".\nNo decision tree currently loaded in memory.\n");
-
-                                        out.writeObject(new NullPointerException());
-
-                                    } else {
-                                        String serialPath = System
-                                                .getProperty("user.dir")
-                                                + File.separator + "dataset";
-
-                                        Utility.checkDirectory(serialPath);
-
-                                        String filePath = Utility
-                                                .getAvailableName(serialPath
-                                                        + File.separator + fileName);
-                                        tree.saveTree(filePath);
-                                        String msg = "The tree was correctly saved in "
-                                                + filePath
-                                                .substring(
-                                                        filePath.lastIndexOf(File.separator) + 1,
-                                                        filePath.length())
-                                                + "\n";
-                                        logArea.append(msg);
-                                        out.writeObject(msg);
-                                    }
-
-                                } catch (IOException e) {
-                                    System.err.println(e.getMessage());
-                                    out.writeObject(e);
-
-                                }
-                                break;
-                            /*
-                            * Loads a decision tree from a specific file with
-                            * extension ".dat" available on the server
-                            * */
-                            case LOAD_SERIALIZED_TREE:
-                                fileName = (String) in.readObject();
-                                try {
-                                    String filePath = System
-                                            .getProperty("user.dir")
-                                            + File.separator
-                                            + "dataset"
-                                            + File.separator + fileName;
+                ServerCommand command = ((ServerCommand) in.readObject());
+                // the other commands are executed after all the previous ones
+                if (pipeline != null && !PIPELINED_COMMANDS.contains(command))
+                    pipeline.awaitResponses();
+
+                switch (command) {
+                    // Build a decision tree from a database table
+                    case BUILD_TREE_FROM_DB:
+                        try {
+                            String table = (String) in.readObject();
+                            // the tree is learnt by the training queue, which limits the trainings running together
+                            TrainingQueue.Job tableJob = trainings.submitTable(ServeOneClient.this, table,
+                                    TrainingQueue.WAITING_PRIORITY);
+                            tree = tableJob.awaitTree();
+                            trainingSet = tableJob.getTrainingSet();
+                            out.writeObject(tree.toString());
+                            ServerLog.log("Correctly loaded the database table "
+                                    + table + "\n");
+
+                        } catch (DataException e) {
+                            System.err.println(e.getMessage());
+                            out.writeObject(new Exception(e.getMessage()));
+                        } catch (RejectedExecutionException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        }
 
-                                    tree = DecisionTree.loadTree(filePath);
-                                    logArea.append("The file " + fileName
-                                            + " was correctly loaded.\n");
-                                    out.writeObject(tree.toString());
-                                } catch (IOException e) {
+                        break;
+                    /*
+                    * Serializes the current decision tree on file with
+                    * extension ".dat"
+                    *
+                    * */
+                    case SERIALIZE_TREE:
+                        String fileName = (String) in.readObject();
+                        try {
+                            if (tree == null) {
+                                ServerLog.log("Unable to save "
+                                        + fileName
+                                        + ".\nNo decision tree currently loaded in memory.\n");
+
+                                out.writeObject(new NullPointerException());
+
+                            } else {
+                                String serialPath = System
+                                        .getProperty("user.dir")
+                                        + File.separator + "dataset";
+
+                                Utility.checkDirectory(serialPath);
+
+                                String filePath = Utility
+                                        .getAvailableName(serialPath
+                                                + File.separator + fileName);
+                                tree.saveTree(filePath);
+                                String msg = "The tree was correctly saved in "
+                                        + filePath
+                                        .substring(
+                                                filePath.lastIndexOf(File.separator) + 1,
+                                                filePath.length())
+                                        + "\n";
+                                ServerLog.log(msg);
+                                out.writeObject(msg);
+                            }
+
+                        } catch (IOException e) {
+                            System.err.println(e.getMessage());
+                            out.writeObject(e);
 
-                                    logArea.append(e.getMessage() + "\n");
-                                    out.writeObject(e);
+                        }
+                        break;
+                    /*
+                    * Loads a decision tree from a specific file with
+                    * extension ".dat" available on the server
+                    * */
+                    case LOAD_SERIALIZED_TREE:
+                        fileName = (String) in.readObject();
+                        try {
+                            String filePath = System
+                                    .getProperty("user.dir")
+                                    + File.separator
+                                    + "dataset"
+                                    + File.separator + fileName;
+
+                            tree = DecisionTree.loadTree(filePath);
+                            ServerLog.log("The file " + fileName
+                                    + " was correctly loaded.\n");
+                            out.writeObject(tree.toString());
+                        } catch (IOException e) {
+
+                            ServerLog.log(e.getMessage() + "\n");
+                            out.writeObject(e);
 
-                                } catch (ClassNotFoundException e) {
-                                    logArea.append(e.getMessage() + "\n");
+                        } catch (ClassNotFoundException e) {
+                            ServerLog.log(e.getMessage() + "\n");
 
-                                    out.writeObject(e);
+                            out.writeObject(e);
 
-                                }
-                                break;
-                            // Uses the current decision tree to make a prediction
-                            case START_PREDICTION:
-                                boolean successFlag = true;
-                                while (successFlag) {
+                        }
+                        break;
+                    // Uses the current decision tree to make a prediction
+                    case START_PREDICTION:
+                        boolean successFlag = true;
+                        while (successFlag) {
+                            try {
+                                String classValue = predictClass(tree);
+                                out.writeObject("Transmitting class ...");
+                                out.writeObject(classValue);
+                                successFlag = false;
+                            } catch (NoTreeExists e) {
+
+                                ServerLog.log("Impossible to predict the value of the dependet attribute.\n"
+                                        + e.getMessage() + "\n");
+
+                                out.writeObject(new Exception(
+                                        "No tree was loaded"));
+                            } catch (UnknownValueException e) {
+                                ServerLog.log("Incorrect choice inserted.\n");
+
+                                out.writeObject(new Exception(
+                                        "An incorrect choice was been selected."));
+                            }
+                        }
+                        break;
+                    /*
+                    * Predicts the class of a single example whose values are all
+                    * sent at once, instead of walking the tree with the client
+                    * */
+                    case PREDICT_VECTOR:
+                        final Object[] example = (Object[]) in.readObject();
+                        try {
+                            // the tree is the current one even if the prediction is made later
+                            final Predictor predictor = getPredictor();
+                            respond(new Callable<Object>() {
+                                public Object call() {
                                     try {
-                                        String classValue = predictClass(tree);
-                                        out.writeObject("Transmitting class ...");
-                                        out.writeObject(classValue);
-                                        successFlag = false;
-                                    } catch (NoTreeExists e) {
-
-                                        logArea.append("Impossible to predict the value of the dependet attribute.\n"
-                                                + e.getMessage() + "\n");
-
-                                        out.writeObject(new Exception(
-                                                "No tree was loaded"));
+                                        return predictor.predict(example);
                                     } catch (UnknownValueException e) {
-                                        logArea.append("Incorrect choice inserted.\n");
-
-                                        out.writeObject(new Exception(
-                                                "An incorrect choice was been selected."));
+                                        return new Exception(e.getMessage());
+                                    } catch (ArrayIndexOutOfBoundsException e) {
+                                        return new Exception("The example hasn't all the attributes of the tree.");
                                     }
                                 }
-                                break;
-                            // The client has asked to the server to close the connection
-                            case CLOSE_CONNECTION:
-                                flag = false;
-                                logArea.append("Client "
-                                        + socket.getInetAddress().getHostName()
-                                        + " has disconnected.\n");
-                                removeClient(socket);
-                                break;
-                            // Sends to the client the supported dataset file format extensions
-                            case SUPPORTED_EXTENSIONS:
+                            });
+                        } catch (NoTreeExists e) {
+                            ServerLog.log("Impossible to predict the value of the dependet attribute.\n"
+                                    + e.getMessage() + "\n");
+                            out.writeObject(new Exception("No tree was loaded"));
+                        }
+                        break;
+                    // The client has asked to the server to close the connection
+                    case CLOSE_CONNECTION:
+                        flag = false;
+                        ServerLog.log("Client "
+                                + socket.getInetAddress().getHostName()
+                                + " has disconnected.\n");
+                        removeClient(socket);
+                        break;
+                    // Sends to the client the supported dataset file format extensions
+                    case SUPPORTED_EXTENSIONS:
+                        respond(new Callable<Object>() {
+                            public Object call() {
                                 SupportedExtensions filter = new SupportedExtensions();
-                                out.writeObject(filter.getSupportedExtension());
+                                return filter.getSupportedExtension();
+                            }
+                        });
 
-                                break;
-                            // Generates a decision tree from a dataset uploaded by the client
-                            case UPLOAD_FILE:
-                                try {
-                                    String downDir = System.getProperty("user.dir")
-                                            + File.separator + "download"
-                                            + File.separator;
-                                    String extension = (String) in.readObject();
-                                    Utility.checkDirectory(downDir);
-                                    String fileSaved = FileReceiver.downloadFile(
-                                            socket, downDir, extension);
-                                    logArea.append("Download of " + fileSaved
-                                            + " completed.\n");
-
-                                    trainingSet = new Data(fileSaved);
-                                    tree = new DecisionTree(trainingSet);
-                                    out.writeObject(tree.toString());
-                                } catch (IOException e) {
-                                    out.writeObject(e);
-									logArea.append("Error: " + e.getMessage()+ "\n");
-                                }
-                                break;
-                            // Sends the list of all the ".dat" files available on the server for the client
-                            case AVAILABLE_DAT_FILES:
+                        break;
+                    // Generates a decision tree from a dataset uploaded by the client
+                    case UPLOAD_FILE:
+                        try {
+                            String downDir = System.getProperty("user.dir")
+                                    + File.separator + "download"
+                                    + File.separator;
+                            String extension = (String) in.readObject();
+                            Utility.checkDirectory(downDir);
+                            String fileSaved = FileReceiver.downloadFile(
+                                    socket, downDir, extension);
+                            ServerLog.log("Download of " + fileSaved
+                                    + " completed.\n");
+
+                            TrainingQueue.Job fileJob = trainings.submitFile(ServeOneClient.this, fileSaved,
+                                    TrainingQueue.WAITING_PRIORITY);
+                            tree = fileJob.awaitTree();
+                            trainingSet = fileJob.getTrainingSet();
+                            out.writeObject(tree.toString());
+                        } catch (IOException e) {
+                            out.writeObject(e);
+									ServerLog.log("Error: " + e.getMessage()+ "\n");
+                        } catch (RejectedExecutionException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        }
+                        break;
+                    // Submits the training of a tree from a database table and sends the id of the job
+                    case SUBMIT_DB_TRAINING:
+                        try {
+                            String table = (String) in.readObject();
+                            out.writeObject(trainings.submitTable(ServeOneClient.this, table,
+                                    TrainingQueue.BACKGROUND_PRIORITY).getId());
+                        } catch (RejectedExecutionException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        }
+                        break;
+                    // Receives a dataset, submits the training of its tree and sends the id of the job
+                    case SUBMIT_UPLOAD_TRAINING:
+                        try {
+                            String downDir = System.getProperty("user.dir")
+                                    + File.separator + "download"
+                                    + File.separator;
+                            String extension = (String) in.readObject();
+                            Utility.checkDirectory(downDir);
+                            String fileSaved = FileReceiver.downloadFile(
+                                    socket, downDir, extension);
+                            ServerLog.log("Download of " + fileSaved
+                                    + " completed.\n");
+
+                            out.writeObject(trainings.submitFile(ServeOneClient.this, fileSaved,
+                                    TrainingQueue.BACKGROUND_PRIORITY).getId());
+                        } catch (IOException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        } catch (RejectedExecutionException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        }
+                        break;
+                    /*
+                    * Sends the status of a training job, waiting for its end at most for the
+                    * milliseconds asked by the client. The tree of a completed job becomes
+                    * the current tree of the client.
+                    * */
+                    case TRAINING_STATUS:
+                        long jobId = (Long) in.readObject(), wait = (Long) in.readObject();
+                        TrainingQueue.Job job = trainings.getJob(ServeOneClient.this, jobId);
+                        if (job == null) {
+                            out.writeObject(new Exception("Unknown training job " + jobId + "."));
+                            break;
+                        }
+
+                        TrainingJobTO status = job.getStatus(wait);
+                        if (status.getState() == TrainingJobTO.State.COMPLETED) {
+                            tree = job.getTree();
+                            trainingSet = job.getTrainingSet();
+                        }
+                        out.writeObject(status);
+                        break;
+                    // Sends the list of all the ".dat" files available on the server for the client
+                    case AVAILABLE_DAT_FILES:
+                        respond(new Callable<Object>() {
+                            public Object call() {
                                 File currDir = new File(
                                         System.getProperty("user.dir")
                                                 + File.separator + "dataset");
-                                out.writeObject(currDir.list(new FilenameFilter() {
+                                return currDir.list(new FilenameFilter() {
                                     public boolean accept(File dir, String s) {
                                         File currFile = new File(s);
                                         if (currFile.isDirectory())
@@ -538,152 +801,261 @@ class MultiServer implements Runnable {
                                         return (extension.equals("dat"));
                                     }
 
-                                }));
+                                });
+                            }
+                        });
 
-                                break;
-                            // Sends an email with the current user session result
-                            case SEND_EMAIL:
-                                MailDataTO mailData = (MailDataTO) in.readObject();
-                                try {
-                                    String reportPath = System
-                                            .getProperty("user.dir")
-                                            + File.separator + "report";
-
-                                    Utility.checkDirectory(reportPath);
-
-                                    String encryptedName = "report_" + Utility.encryptIP(socket.getInetAddress()
-                                            .getHostAddress() + "("
-                                            + socket.getPort() + ")") + "." + "pdf";
-                                    String pdfFileName = reportPath
-                                            + File.separator
-                                            + encryptedName;
-
-                                    PdfCreator.createReport(
-                                            mailData.getSessionTO(), pdfFileName);
-                                    MailSender.sendEmail(mailData, pdfFileName);
-
-                                    String msg;
-                                    if (mailData.isAttached())
-                                        msg = "email with attachment\n"
-                                                + encryptedName + "\nwas sent to\n"
-                                                + mailData.getAddressees()
-                                                + " correctly.";
-                                    else
-                                        msg = "email was sent to"
-                                                + mailData.getAddressees()
-                                                + " correctly.";
-
-                                    logArea.append(msg + "\n");
-                                    out.writeObject("email correctly sent");
-                                } catch (IllegalArgumentException e) {
-                                    logArea.append("Unsupported sender provider\n");
-                                    out.writeObject(e);
-                                } catch (Exception e) {
-                                    logArea.append(e.getMessage() + "\n");
-                                    out.writeObject(new Exception(e.getMessage()));
-                                }
+                        break;
+                    // Sends an email with the current user session result
+                    case SEND_EMAIL:
+                        MailDataTO mailData = (MailDataTO) in.readObject();
+                        try {
+                            String reportPath = System
+                                    .getProperty("user.dir")
+                                    + File.separator + "report";
+
+                            Utility.checkDirectory(reportPath);
+
+                            String encryptedName = "report_" + Utility.encryptIP(socket.getInetAddress()
+                                    .getHostAddress() + "("
+                                    + socket.getPort() + ")") + "." + "pdf";
+                            String pdfFileName = reportPath
+                                    + File.separator
+                                    + encryptedName;
+
+                            PdfCreator.createReport(
+                                    mailData.getSessionTO(), pdfFileName);
+                            MailSender.sendEmail(mailData, pdfFileName);
+
+                            String msg;
+                            if (mailData.isAttached())
+                                msg = "email with attachment\n"
+                                        + encryptedName + "\nwas sent to\n"
+                                        + mailData.getAddressees()
+                                        + " correctly.";
+                            else
+                                msg = "email was sent to"
+                                        + mailData.getAddressees()
+                                        + " correctly.";
+
+                            ServerLog.log(msg + "\n");
+                            out.writeObject("email correctly sent");
+                        } catch (IllegalArgumentException e) {
+                            ServerLog.log("Unsupported sender provider\n");
+                            out.writeObject(e);
+                        } catch (Exception e) {
+                            ServerLog.log(e.getMessage() + "\n");
+                            out.writeObject(new Exception(e.getMessage()));
+                        }
 
-                                break;
-                            // Checks the email address validity
-                            case VALIDATE_EMAIL:
-                                String mailAddr = (String) in.readObject();
+                        break;
+                    // Checks the email address validity
+                    case VALIDATE_EMAIL:
+                        final String mailAddr = (String) in.readObject();
+                        respond(new Callable<Object>() {
+                            public Object call() {
                                 try {
                                     MailAddressValidator.validate(mailAddr);
-                                    out.writeObject("Correct mail address.");
+                                    return "Correct mail address.";
                                 } catch (AddressException e) {
-                                    out.writeObject(new InvalidMailAddressException(
-                                            e.getMessage()));
-                                }
-                                break;
-                            // Converts a dataset in a specific format requested by the client
-                            case CONVERT_DATASET:
-                                // reads the filename and extension
-                                String[] data = (String[]) in.readObject();
-                                // now convert the current dataset in the extension
-                                // selected.
-                                IDataWriter datasetWriter = DataWriterFactory
-                                        .createDataWriter(data[1]);
-                                String convDir = System.getProperty("user.dir")
-                                        + File.separator + "conversion";
-
-                                Utility.checkDirectory(convDir);
-
-                                String completeFileName = convDir + File.separator
-                                        + socket.getInetAddress().getHostAddress()
-                                        + "(" + socket.getPort() + ")" + "."
-                                        + data[1];
-                                datasetWriter.write(new RequestStruct(
-                                        completeFileName, trainingSet, data[0]));
-                                try {
-                                    new FileSender(socket, completeFileName,
-                                            logArea);
-                                    Object response = in.readObject();
-                                    if (response instanceof String)
-                                        logArea.append("The file "
-                                                + completeFileName
-                                                + " was correctly converted.\n");
-                                    else
-                                        logArea.append("Error in converting file.\n"
-                                                + ((Exception) response).getCause()
-                                                + " "
-                                                + ((Exception) response)
-                                                .getMessage() + "\n");
-                                } catch (Exception e) {
-                                    logArea.append("Error in sending file: "
-                                            + e.getCause() + " " + e.getMessage()
-                                            + "\n");
-                                    out.writeObject(e);
+                                    return new InvalidMailAddressException(
+                                            e.getMessage());
                                 }
+                            }
+                        });
+                        break;
+                    // Converts a dataset in a specific format requested by the client
+                    case CONVERT_DATASET:
+                        // reads the filename and extension
+                        String[] data = (String[]) in.readObject();
+                        // now convert the current dataset in the extension
+                        // selected.
+                        IDataWriter datasetWriter = DataWriterFactory
+                                .createDataWriter(data[1]);
+                        String convDir = System.getProperty("user.dir")
+                                + File.separator + "conversion";
+
+                        Utility.checkDirectory(convDir);
+
+                        String completeFileName = convDir + File.separator
+                                + socket.getInetAddress().getHostAddress()
+                                + "(" + socket.getPort() + ")" + "."
+                                + data[1];
+                        datasetWriter.write(new RequestStruct(
+                                completeFileName, trainingSet, data[0]));
+                        try {
+                            // without graphical interface the file is sent without showing the progress
+                            if (Utility.isHeadless())
+                                FileSender.sendFile(socket, completeFileName);
+                            else
+                                new FileSender(socket, completeFileName);
+                            Object response = in.readObject();
+                            if (response instanceof String)
+                                ServerLog.log("The file "
+                                        + completeFileName
+                                        + " was correctly converted.\n");
+                            else
+                                ServerLog.log("Error in converting file.\n"
+                                        + ((Exception) response).getCause()
+                                        + " "
+                                        + ((Exception) response)
+                                        .getMessage() + "\n");
+                        } catch (Exception e) {
+                            ServerLog.log("Error in sending file: "
+                                    + e.getCause() + " " + e.getMessage()
+                                    + "\n");
+                            out.writeObject(e);
+                        }
+
+                        break;
+                    /*
+                    * Predicts the class of every example of a dataset uploaded by the client
+                    * or read from a database table. The number of examples is sent first,
+                    * then the predicted values in chunks and at last the result message.
+                    * */
+                    case BATCH_PREDICTION:
+                        try {
+                            String extension = (String) in.readObject();
+                            String source;
+                            if (extension.equals("db")) {
+                                source = in.readObject() + ".db";
+                            } else {
+                                String downDir = System.getProperty("user.dir")
+                                        + File.separator + "download"
+                                        + File.separator;
+                                Utility.checkDirectory(downDir);
+                                source = FileReceiver.downloadFile(
+                                        socket, downDir, extension);
+                            }
+
+                            BatchPrediction prediction = new BatchPrediction(tree, source);
+                            out.writeObject(prediction.getNumberOfExamples());
+                            while (prediction.hasNext()) {
+                                out.writeObject(prediction.next());
+                                // the stream forgets the sent chunks, so they can be collected
+                                out.reset();
+                            }
+                            String msg = "Predicted the class of "
+                                    + prediction.getNumberOfExamples() + " examples of " + source
+                                    + " (" + prediction.getNumberOfUnknownExamples() + " with unknown values).\n";
+                            ServerLog.log(msg);
+                            out.writeObject(msg);
+                        } catch (NoTreeExists e) {
+                            ServerLog.log("Impossible to predict the value of the dependet attribute.\n"
+                                    + e.getMessage() + "\n");
+                            out.writeObject(new Exception("No tree was loaded"));
+                        } catch (DataException e) {
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                            out.writeObject(new Exception(e.getMessage()));
+                        } catch (IOException e) {
+                            out.writeObject(e);
+                            ServerLog.log("Error: " + e.getMessage() + "\n");
+                        }
+                        break;
+
+                    default:
+                        ServerLog.log("Incorrect command.\n");
+                        out.writeObject("Incorrect command.\n");
+
+                }// END SWITCH
+            } catch (ClassCastException e) {
+        	ServerLog.log("Error in communicating with client.\n");
+            } catch (IOException e) {
+
+        	if (e.getMessage() == null) {
+        	    ServerLog.log("Error: connection with client is closed.\n");
+        	    removeClient(socket);
+        	} else if (e.getMessage().equals("socket closed")) {
+                    removeClient(socket);
+                }
+                else{
+                ServerLog.log("Error: " + e.getMessage() + "\n");
+                removeClient(socket);
+            }
+        	
+                flag = false;
+            } catch (ClassNotFoundException e) {
 
-                                break;
+                ServerLog.log("Error: " + e.getMessage() + "\n");
 
-                            default:
-                                logArea.append("Incorrect command.\n");
-                                out.writeObject("Incorrect command.\n");
+                flag = false;
+            } catch (DataException e) {
 
-                        }// END SWITCH
-                    } catch (ClassCastException e) {
-                	logArea.append("Error in communicating with client.\n");
-                    } catch (IOException e) {
+                ServerLog.log("Error: " + e.getMessage() + "\n");
 
-                	if (e.getMessage() == null) {
-                	    logArea.append("Error: connection with client is closed.\n");
-                	    removeClient(socket);
-                	} else if (e.getMessage().equals("socket closed")) {
-                            removeClient(socket);
-                        }
-                        else{
-                        logArea.append("Error: " + e.getMessage() + "\n");
-                        removeClient(socket);
-                    }
-                	
-                        flag = false;
-                    } catch (ClassNotFoundException e) {
+                try {
+                    out.writeObject(e);
+                } catch (IOException e1) {
 
-                        logArea.append("Error: " + e.getMessage() + "\n");
+                    ServerLog.log("Error: " + e.getMessage() + "\n");
+                }
+            } 
+            return flag;
+        }
 
-                        flag = false;
-                    } catch (DataException e) {
+        /**
+         * Sends the response to the last command read. If the client supports the responses
+         * out of order, the response is computed by another thread while the following
+         * commands are read.
+         *
+         * @param response computes the response
+         * @throws IOException if the response can't be sent
+         */
+        private void respond(Callable<Object> response) throws IOException {
+            if (pipeline != null) {
+                pipeline.submit(((BinaryObjectInputStream) in).getRequestId(), response);
+                return;
+            }
 
-                        logArea.append("Error: " + e.getMessage() + "\n");
+            Object value;
+            try {
+                value = response.call();
+            } catch (Exception e) {
+                value = e;
+            }
+            out.writeObject(value);
+        }
 
-                        try {
-                            out.writeObject(e);
-                        } catch (IOException e1) {
+        /**
+         * Tells if the client uses the binary protocol, whose commands are sent as frames.
+         *
+         * @return <code>true</code> if the client uses the binary protocol
+         */
+        public boolean isFramed() {
+            return in instanceof BinaryObjectInputStream;
+        }
 
-                            logArea.append("Error: " + e.getMessage() + "\n");
-                        }
-                    } 
-                }
+        /**
+         * Removes the listeners of the client and closes its socket.
+         */
+        public void close() {
+            trainings.cancel(this);
+            if (selectionListener != null)
+                clientArea.removeMouseListener(selectionListener);
+            try {
+                if (socket != null && !socket.isClosed())
+                    socket.close();
+            } catch (IOException e) {
+                ServerLog.log("Error: " + e.getMessage() + "\n");
+            }
+        }
 
-            } finally {
-                try {
-                    if (socket != null && !socket.isClosed())
-                        socket.close();
-                } catch (IOException e) {
-                    logArea.append("Error: " + e.getMessage() + "\n");
-                }
+        /**
+         * Returns the predictor of the current decision tree, building it
+         * again only when the tree has changed.
+         *
+         * @return the predictor of the current tree
+         * @throws NoTreeExists if no available tree was present
+         */
+        private Predictor getPredictor() throws NoTreeExists {
+            if (tree == null)
+                throw new NoTreeExists();
+
+            if (predictorTree != tree) {
+                predictor = tree.toPredictor();
+                predictorTree = tree;
             }
+            return predictor;
         }
 
         /**
@@ -0,0 +1,711 @@
+package com.mapgroup.classificator.boundary;
+
+import com.mapgroup.to.WireProtocol;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class serves the clients with a few threads which wait on a
+ * {@link Selector} for the data of all the connections, instead of a
+ * thread blocked on each connection.
+ * <p>
+ * The bytes received from a client are kept in memory until they can be read without
+ * waiting: for the clients of the binary protocol, until the whole frame of the next
+ * command has been received ({@link WireProtocol#getFrameLength(byte[])}); for the clients
+ * of the object streams, which can't be split in commands, until some bytes have been received.
+ * The command is then executed by a thread of a pool of {@link #WORKERS_PROPERTY} threads
+ * (default 16), which reads and writes the usual object streams. So a client waiting between
+ * a command and the next one doesn't hold any thread, while the commands are the same of the
+ * blocking transport. The connections are shared among {@link #SELECTORS_PROPERTY} selector
+ * threads (default 2).
+ * </p>
+ * <p>
+ * A thread which reads the rest of a command, e.g. its arguments or an uploaded file, waits at
+ * most {@link #READ_TIMEOUT_PROPERTY} milliseconds (default 30000) for the next bytes, then the
+ * client is disconnected. A thread which waits for the answer of the user to a question of the
+ * server, or for the end of a training, is replaced by another thread of the pool while it waits,
+ * so the clients which keep a thread busy for a long time don't stop the others.
+ * </p>
+ * <p>
+ * The reading from a client stops while more than {@link #MAX_BUFFERED_BYTES} received bytes
+ * wait to be read, and the threads which write to a client wait while more than
+ * {@link #MAX_BUFFERED_BYTES} bytes wait to be sent, so a slow client can't fill the memory.
+ * </p>
+ */
+class NioTransport {
+
+    /** Name of the system property which defines the number of selector threads */
+    static final String SELECTORS_PROPERTY = "decisiontree.nio.selectors";
+    /** Name of the system property which defines the number of threads executing the commands */
+    static final String WORKERS_PROPERTY = "decisiontree.nio.workers";
+    /** Name of the system property which defines the milliseconds a client can take to send the rest of a command */
+    static final String READ_TIMEOUT_PROPERTY = "decisiontree.nio.read.timeout";
+
+    /** Greatest number of bytes received or to be sent kept for a client */
+    private static final int MAX_BUFFERED_BYTES = 1 << 20;
+    /** Size of the buffer used to read from the connections */
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The object which serves the commands of a client.
+     */
+    interface Handler {
+
+        /**
+         * Starts the communication with the client.
+         *
+         * @return <code>false</code> if the client can't be served
+         */
+        boolean open();
+
+        /**
+         * Reads and executes a command of the client.
+         *
+         * @return <code>false</code> if the client can't send other commands
+         */
+        boolean serveCommand();
+
+        /**
+         * Ends the communication with the client.
+         */
+        void close();
+
+        /**
+         * Tells if the client sends the commands as frames of the binary protocol,
+         * so that a command can be received completely before it is read.
+         *
+         * @return <code>true</code> for the binary protocol, <code>false</code> for the object streams
+         */
+        boolean isFramed();
+    }
+
+    /**
+     * Creates the object which serves a client.
+     */
+    interface HandlerFactory {
+
+        /**
+         * Creates the object which serves a new client.
+         *
+         * @param socket the socket of the client, whose streams never block the selector threads
+         * @return the object which serves the client
+         */
+        Handler createHandler(Socket socket);
+    }
+
+    /** creates the objects which serve the clients */
+    private final HandlerFactory factory;
+    /** the threads which wait for the data of the clients */
+    private final EventLoop[] eventLoops;
+    /** the threads which execute the commands */
+    private final ExecutorService workers;
+    /** number of threads of <code>workers</code> */
+    private final int workerCount;
+    /** milliseconds a client can take to send the rest of a command */
+    private final long readTimeout;
+
+    /** number of connections accepted since the start of the server */
+    private final AtomicLong accepted = new AtomicLong();
+    /** number of connections currently open */
+    private final AtomicInteger connected = new AtomicInteger();
+    /** number of commands currently executed */
+    private final AtomicInteger executing = new AtomicInteger();
+
+    /**
+     * Creates the threads of the transport, as defined by the system properties.
+     *
+     * @param factory creates the objects which serve the clients
+     * @throws IOException if a selector can't be opened
+     */
+    NioTransport(HandlerFactory factory) throws IOException {
+        this.factory = factory;
+        eventLoops = new EventLoop[Math.max(1, Integer.getInteger(SELECTORS_PROPERTY, 2))];
+        for (int i = 0; i < eventLoops.length; i++) {
+            eventLoops[i] = new EventLoop();
+            Thread thread = new Thread(eventLoops[i], "selector-" + (i + 1));
+            thread.setDaemon(true);
+            thread.start();
+        }
+        workerCount = Math.max(1, Integer.getInteger(WORKERS_PROPERTY, 16));
+        readTimeout = Math.max(1, Long.getLong(READ_TIMEOUT_PROPERTY, 30000));
+        // the threads blocked with ForkJoinPool.managedBlock are replaced while they wait
+        workers = new ForkJoinPool(workerCount,
+                new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+                    private final AtomicInteger createdThreads = new AtomicInteger();
+
+                    public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                        thread.setName("worker-" + createdThreads.incrementAndGet());
+                        return thread;
+                    }
+                }, null, true);
+    }
+
+    /**
+     * Accepts the clients until the server channel is closed.
+     *
+     * @param serverChannel the channel of the server, in blocking mode
+     * @throws IOException if the server channel was closed or can't accept connections
+     */
+    void serve(ServerSocketChannel serverChannel) throws IOException {
+        for (int next = 0; ; next = (next + 1) % eventLoops.length) {
+            SocketChannel channel = serverChannel.accept();
+            accepted.incrementAndGet();
+            try {
+                channel.configureBlocking(false);
+                connected.incrementAndGet();
+                eventLoops[next].register(new Connection(channel, eventLoops[next]));
+            } catch (IOException e) {
+                connected.decrementAndGet();
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Returns a description of the transport, shown in the log.
+     *
+     * @return the number of selector and worker threads
+     */
+    String getDescription() {
+        return eventLoops.length + " selector threads and " + workerCount + " threads executing the commands, "
+                + readTimeout + " ms to receive the rest of a command";
+    }
+
+    /**
+     * Returns the counters of the connections, formatted for the log.
+     *
+     * @return the current values of the counters
+     */
+    String getStatistics() {
+        return "accepted " + accepted.get() + ", connected " + connected.get()
+                + ", executing " + executing.get();
+    }
+
+    /**
+     * A thread which waits for the data of its connections.
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        /** operations that must be executed by this thread, which owns the selection keys */
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+
+        EventLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        /**
+         * Executes an operation in this thread.
+         *
+         * @param task the operation
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        /**
+         * Starts waiting for the data of a new connection.
+         *
+         * @param connection the new connection
+         */
+        void register(final Connection connection) {
+            execute(new Runnable() {
+                public void run() {
+                    try {
+                        connection.key = connection.channel.register(selector, SelectionKey.OP_READ, connection);
+                    } catch (ClosedChannelException e) {
+                        // the worker reads the end of the stream and ends the communication
+                        connection.input.finish();
+                        connection.schedule();
+                    }
+                }
+            });
+        }
+
+        public void run() {
+            while (selector.isOpen()) {
+                try {
+                    selector.select();
+                } catch (IOException e) {
+                    return;
+                }
+
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable())
+                        connection.read(readBuffer);
+                    if (key.isValid() && key.isWritable())
+                        connection.output.flushPending();
+                }
+                selector.selectedKeys().clear();
+            }
+        }
+    }
+
+    /**
+     * The state of a connected client.
+     */
+    private class Connection implements Runnable {
+
+        final SocketChannel channel;
+        final EventLoop eventLoop;
+        final ChannelInputStream input = new ChannelInputStream();
+        final ChannelOutputStream output = new ChannelOutputStream();
+        final Handler handler;
+        /** selection key of the channel, used only by the thread of <code>eventLoop</code> */
+        SelectionKey key;
+
+        /** <code>true</code> while a worker is serving the client */
+        private boolean busy;
+        /** <code>true</code> when the handler was opened, read also by the selector thread */
+        private volatile boolean opened;
+        /** <code>true</code> when the server has written to the client since it last read from it */
+        private volatile boolean replyExpected;
+        /** <code>true</code> when the client has been served for the last time */
+        private boolean finished;
+
+        Connection(SocketChannel channel, EventLoop eventLoop) {
+            this.channel = channel;
+            this.eventLoop = eventLoop;
+            handler = factory.createHandler(new ChannelSocket(channel.socket()));
+        }
+
+        /**
+         * Reads the available bytes of the client, called by the selector thread.
+         *
+         * @param buffer buffer of the selector thread
+         */
+        void read(ByteBuffer buffer) {
+            int n;
+            do {
+                buffer.clear();
+                try {
+                    n = channel.read(buffer);
+                } catch (IOException e) {
+                    n = -1;
+                }
+                if (n > 0) {
+                    byte[] data = new byte[n];
+                    buffer.flip();
+                    buffer.get(data);
+                    input.feed(data);
+                }
+            } while (n > 0 && input.available() <= MAX_BUFFERED_BYTES);
+
+            if (n < 0) {
+                key.cancel();
+                input.finish();
+            } else if (input.available() > MAX_BUFFERED_BYTES) {
+                // the reading starts again when the worker has consumed the data
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+                input.paused = true;
+            }
+            schedule();
+        }
+
+        /**
+         * Asks a worker to serve the client, if no worker is already serving it
+         * and the worker can read the next command without waiting.
+         */
+        synchronized void schedule() {
+            if (!busy && !finished && isReady()) {
+                busy = true;
+                workers.execute(this);
+            }
+        }
+
+        /**
+         * Checks if the received bytes can be read without waiting for the client.
+         *
+         * @return <code>true</code> if the greeting or the next command has been received,
+         * if the client closed the connection or if no more bytes can be kept for the client
+         */
+        private boolean isReady() {
+            int available = input.available();
+            if (input.isFinished() || available >= MAX_BUFFERED_BYTES)
+                return true;
+
+            if (!opened) {
+                // the greeting of the binary protocol, or the header of an object stream
+                byte[] greeting = new byte[WireProtocol.getGreetingLength() + 1];
+                int n = input.peek(greeting);
+                return n == greeting.length
+                        || (n == WireProtocol.getGreetingLength() && !WireProtocol.isGreeting(greeting));
+            }
+            if (!handler.isFramed())
+                return available > 0;
+
+            byte[] header = new byte[WireProtocol.FRAME_HEADER_LENGTH];
+            return input.peek(header) == header.length && available >= WireProtocol.getFrameLength(header);
+        }
+
+        /**
+         * Serves the commands of the client until all the received data have been read.
+         */
+        public void run() {
+            executing.incrementAndGet();
+            boolean waiting = false;
+            try {
+                if (!opened) {
+                    if (!handler.open())
+                        return;
+                    opened = true;
+                }
+
+                do {
+                    synchronized (this) {
+                        if (!isReady()) {
+                            // the client hasn't sent its next command yet
+                            busy = false;
+                            waiting = true;
+                            return;
+                        }
+                    }
+                } while (handler.serveCommand());
+            } finally {
+                if (!waiting) {
+                    if (opened)
+                        handler.close();
+                    finish();
+                }
+                executing.decrementAndGet();
+            }
+        }
+
+        private synchronized void finish() {
+            if (finished)
+                return;
+            finished = true;
+            connected.decrementAndGet();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // the connection is closed anyway
+            }
+        }
+
+        /**
+         * Closes the channel and wakes up the worker, so that the handler
+         * can read the end of the stream and end the communication.
+         *
+         * @throws IOException if the channel can't be closed
+         */
+        void closeChannel() throws IOException {
+            channel.close();
+            input.finish();
+            synchronized (output) {
+                output.notifyAll();
+            }
+            schedule();
+        }
+
+        /**
+         * Starts reading from the client again, after the worker has consumed the received data.
+         */
+        void resumeReading() {
+            eventLoop.execute(new Runnable() {
+                public void run() {
+                    if (key != null && key.isValid())
+                        key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                }
+            });
+        }
+
+        /**
+         * Asks the selector thread to send the bytes which the client couldn't receive at once.
+         */
+        void requestWrite() {
+            eventLoop.execute(new Runnable() {
+                public void run() {
+                    if (key != null && key.isValid())
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            });
+        }
+
+        /**
+         * Receives the bytes read by the selector thread and gives them to the worker.
+         */
+        private class ChannelInputStream extends InputStream {
+
+            private final Queue<byte[]> chunks = new ArrayDeque<byte[]>();
+            /** bytes of the first chunk already read */
+            private int position;
+            private int available;
+            /** <code>true</code> when the client won't send other bytes */
+            private boolean finished;
+            /** <code>true</code> when the selector thread has stopped reading from the client */
+            volatile boolean paused;
+
+            synchronized void feed(byte[] data) {
+                chunks.add(data);
+                available += data.length;
+                notifyAll();
+            }
+
+            synchronized void finish() {
+                finished = true;
+                notifyAll();
+            }
+
+            synchronized boolean isFinished() {
+                return finished;
+            }
+
+            public synchronized int available() {
+                return available;
+            }
+
+            /**
+             * Copies the first received bytes, without reading them.
+             *
+             * @param b the destination of the bytes
+             * @return the number of bytes copied, less than the length of <code>b</code>
+             * if fewer bytes have been received
+             */
+            synchronized int peek(byte[] b) {
+                int n = 0;
+                int offset = position;
+                for (byte[] chunk : chunks) {
+                    int count = Math.min(b.length - n, chunk.length - offset);
+                    System.arraycopy(chunk, offset, b, n, count);
+                    n += count;
+                    offset = 0;
+                    if (n == b.length)
+                        break;
+                }
+                return n;
+            }
+
+            public int read() throws IOException {
+                byte[] b = new byte[1];
+                return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+            }
+
+            public synchronized int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0)
+                    return 0;
+                if (available == 0 && !finished)
+                    awaitBytes();
+                if (available == 0)
+                    return -1;
+
+                int n = 0;
+                while (n < len && !chunks.isEmpty()) {
+                    byte[] chunk = chunks.peek();
+                    int count = Math.min(len - n, chunk.length - position);
+                    System.arraycopy(chunk, position, b, off + n, count);
+                    n += count;
+                    position += count;
+                    if (position == chunk.length) {
+                        chunks.remove();
+                        position = 0;
+                    }
+                }
+                available -= n;
+                replyExpected = false;
+
+                if (paused && available < MAX_BUFFERED_BYTES / 2) {
+                    paused = false;
+                    resumeReading();
+                }
+                return n;
+            }
+
+            public void close() throws IOException {
+                closeChannel();
+            }
+
+            /**
+             * Waits for the next bytes of the client, called while holding the lock of this stream.
+             * The worker is replaced by another thread of the pool while it waits.
+             *
+             * @throws IOException if the client doesn't send the rest of a command in time,
+             *                     or if the thread has been interrupted
+             */
+            private void awaitBytes() throws IOException {
+                // the answer to a question of the server depends on the user, so it has no deadline
+                final long deadline = replyExpected ? Long.MAX_VALUE : System.currentTimeMillis() + readTimeout;
+                try {
+                    ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                        public boolean block() throws InterruptedException {
+                            synchronized (ChannelInputStream.this) {
+                                long remaining;
+                                while (available == 0 && !finished
+                                        && (remaining = deadline - System.currentTimeMillis()) > 0)
+                                    ChannelInputStream.this.wait(remaining);
+                            }
+                            return true;
+                        }
+
+                        public boolean isReleasable() {
+                            synchronized (ChannelInputStream.this) {
+                                return available > 0 || finished || System.currentTimeMillis() >= deadline;
+                            }
+                        }
+                    });
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while reading from the client");
+                }
+                if (available == 0 && !finished)
+                    throw new SocketTimeoutException("The client didn't send the rest of its command in "
+                            + readTimeout + " ms");
+            }
+        }
+
+        /**
+         * Sends the bytes written by the worker, keeping those which the client
+         * can't receive at once until the selector thread sends them.
+         */
+        private class ChannelOutputStream extends OutputStream {
+
+            private final Queue<ByteBuffer> pending = new ArrayDeque<ByteBuffer>();
+            private int pendingBytes;
+
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            public synchronized void write(byte[] b, int off, int len) throws IOException {
+                ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                replyExpected = true;
+
+                if (pending.isEmpty())
+                    channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    // the caller can reuse its array, so the bytes not yet sent are copied
+                    ByteBuffer copy = ByteBuffer.allocate(buffer.remaining());
+                    copy.put(buffer).flip();
+                    pending.add(copy);
+                    pendingBytes += copy.remaining();
+                    if (pending.size() == 1)
+                        requestWrite();
+                }
+
+                try {
+                    while (pendingBytes > MAX_BUFFERED_BYTES && channel.isOpen())
+                        wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing to the client");
+                }
+                if (!channel.isOpen())
+                    throw new SocketException("socket closed");
+            }
+
+            /**
+             * Sends the pending bytes, called by the selector thread when the client can receive them.
+             */
+            synchronized void flushPending() {
+                try {
+                    while (!pending.isEmpty()) {
+                        ByteBuffer buffer = pending.peek();
+                        pendingBytes -= channel.write(buffer);
+                        if (buffer.hasRemaining())
+                            break;
+                        pending.remove();
+                    }
+                } catch (IOException e) {
+                    pending.clear();
+                    pendingBytes = 0;
+                    key.cancel();
+                }
+                if (pending.isEmpty() && key.isValid())
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                notifyAll();
+            }
+
+            public void close() throws IOException {
+                closeChannel();
+            }
+        }
+
+        /**
+         * The socket given to the handler: its streams are those of the connection,
+         * while the addresses are those of the channel, kept also after it is closed.
+         */
+        private class ChannelSocket extends Socket {
+
+            private final InetAddress address;
+            private final int port;
+            private final InetAddress localAddress;
+            private final int localPort;
+
+            ChannelSocket(Socket channelSocket) {
+                address = channelSocket.getInetAddress();
+                port = channelSocket.getPort();
+                localAddress = channelSocket.getLocalAddress();
+                localPort = channelSocket.getLocalPort();
+            }
+
+            public InputStream getInputStream() {
+                return input;
+            }
+
+            public OutputStream getOutputStream() {
+                return output;
+            }
+
+            public InetAddress getInetAddress() {
+                return address;
+            }
+
+            public int getPort() {
+                return port;
+            }
+
+            public InetAddress getLocalAddress() {
+                return localAddress;
+            }
+
+            public int getLocalPort() {
+                return localPort;
+            }
+
+            public boolean isConnected() {
+                return channel.isConnected();
+            }
+
+            public boolean isClosed() {
+                return !channel.isOpen();
+            }
+
+            public void close() throws IOException {
+                closeChannel();
+            }
+
+            public String toString() {
+                return "Socket[addr=" + address + ",port=" + port + ",localport=" + localPort + "]";
+            }
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.mapgroup.classificator.filemanager.reader;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
@@ -32,6 +34,11 @@ public abstract class DataReader {
     protected final List<String> attributeNames = new LinkedList<String>();
     /** list of all the supported and valid attribute's type */
     protected static final String[] legalTypes = new String[]{"Float", "String"};
+    /**
+     * Distinct values read for each column. The readers share a single <code>String</code>
+     * instance among all the cells of a column with the same value
+     */
+    private final List<HashMap<String, String>> dictionaries = new ArrayList<HashMap<String, String>>();
 
     /**
      * Initializes all the main instruments needed to this class in order to start the
@@ -68,11 +75,7 @@ public abstract class DataReader {
      * @return the discrete class attribute
      */
     public final DiscreteAttribute retrieveClassValue(Object[][] data) {
-        TreeSet<String> values = new TreeSet<String>();
-
-        for (Object[] aData : data) {
-            values.add((String) aData[data[0].length - 1]);
-        }
+        TreeSet<String> values = retrieveDistinctValues(data, data[0].length - 1);
 
         return new DiscreteAttribute(
                 attributeNames.get(attributeNames.size() - 1),
@@ -95,15 +98,26 @@ public abstract class DataReader {
      */
     public void retrieveIndependentAttribute(Object[][] data,
                                              List<Attribute> explanatorySet) {
+        retrieveIndependentAttribute(data, explanatorySet, data[0].length - 1);
+    }
+
+    /**
+     * Retrieves the independent attributes of the first <code>numberOfAttributes</code>
+     * columns of the structured dataset, as {@link #retrieveIndependentAttribute(Object[][], List)}
+     * does for all the columns but the class one.
+     *
+     * @param data               the structured dataset
+     * @param explanatorySet     list of all the independent attributes
+     * @param numberOfAttributes number of columns read as independent attributes
+     */
+    public void retrieveIndependentAttribute(Object[][] data,
+                                             List<Attribute> explanatorySet, int numberOfAttributes) {
 
         // foreach attribute in the dataset.
-        for (int col = 0; col < data[0].length - 1; col++) {
+        for (int col = 0; col < numberOfAttributes; col++) {
             if (isDiscreteType(typeList.get(col))) {
-                TreeSet<String> values = new TreeSet<String>();
+                TreeSet<String> values = retrieveDistinctValues(data, col);
 
-                for (Object[] aData : data) {
-                    values.add((String) aData[col]);
-                }
                 explanatorySet.add(new DiscreteAttribute(attributeNames
                         .get(col), col, values.toArray(new String[values.size()])));
 
@@ -114,6 +128,55 @@ public abstract class DataReader {
         }
     }
 
+    /**
+     * Returns the single instance shared by all the cells of the column <code>col</code>
+     * which contain the specified value.
+     * <p>
+     * The readers call this method for each string cell while the dataset is read, so that
+     * the matrix holds one <code>String</code> for each distinct value of a column.
+     * </p>
+     *
+     * @param col   column of the read cell
+     * @param value value read from the dataset
+     * @return the shared instance of the value
+     */
+    protected final String intern(int col, String value) {
+        while (dictionaries.size() <= col) {
+            dictionaries.add(new HashMap<String, String>());
+        }
+
+        HashMap<String, String> dictionary = dictionaries.get(col);
+        String shared = dictionary.get(value);
+        if (shared == null) {
+            dictionary.put(value, value);
+            shared = value;
+        }
+        return shared;
+    }
+
+    /**
+     * Returns the sorted distinct values of the column <code>col</code>.
+     * <p>
+     * When the column was interned while reading, the values are taken from its dictionary
+     * without scanning the dataset again.
+     * </p>
+     *
+     * @param data structured dataset
+     * @param col  column of a discrete attribute
+     * @return the distinct values of the column in their natural order
+     */
+    private TreeSet<String> retrieveDistinctValues(Object[][] data, int col) {
+        if (col < dictionaries.size() && !dictionaries.get(col).isEmpty()) {
+            return new TreeSet<String>(dictionaries.get(col).keySet());
+        }
+
+        TreeSet<String> values = new TreeSet<String>();
+        for (Object[] aData : data) {
+            values.add((String) aData[col]);
+        }
+        return values;
+    }
+
     /**
      * Controls if the specified attribute type,<code>typeName</code>
      * is a discrete attribute type or not.
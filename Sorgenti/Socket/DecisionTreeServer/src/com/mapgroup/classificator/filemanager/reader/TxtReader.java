@@ -90,7 +90,7 @@ class TxtReader extends DataReader {
             String[] thisLine = lines.get(i).split(",");
             for (int j = 0; j < thisLine.length; j++) {
                 if (typeList.get(j).equals("String")) {
-                    data[i][j] = thisLine[j];
+                    data[i][j] = intern(j, thisLine[j]);
                 } else {
                     data[i][j] = Float.parseFloat(thisLine[j]);
                 }
@@ -108,7 +108,7 @@ class XlsReader extends DataReader {
 
                 switch (currCell.getCellType()) {
                     case HSSFCell.CELL_TYPE_STRING:
-                        data[row - 2][col] = currCell.getStringCellValue();
+                        data[row - 2][col] = intern(col, currCell.getStringCellValue());
                         break;
                     case HSSFCell.CELL_TYPE_NUMERIC:
                         data[row - 2][col] = (float) currCell.getNumericCellValue();
@@ -0,0 +1,112 @@
+package com.mapgroup.classificator.tree;
+
+/**
+ * Absolute frequencies of the class values for each value of an explanatory
+ * attribute in a training subset.
+ * <p>
+ * The rows are the codes of a discrete attribute or the bins of a continuous one;
+ * the columns are the class codes.
+ * </p>
+ */
+final class AttributeHistogram {
+
+    /**
+     * Absolute frequency of each class value, for each row
+     */
+    private final int[][] frequencies;
+    /**
+     * Greatest value of each bin, <code>null</code> for discrete attributes
+     */
+    private final float[] upperBounds;
+
+    /**
+     * Constructs an empty histogram.
+     *
+     * @param numberOfRows    number of codes or bins of the attribute
+     * @param numberOfClasses number of distinct class values
+     * @param upperBounds     greatest value of each bin, <code>null</code> for discrete attributes
+     */
+    AttributeHistogram(int numberOfRows, int numberOfClasses, float[] upperBounds) {
+        frequencies = new int[numberOfRows][numberOfClasses];
+        this.upperBounds = upperBounds;
+    }
+
+    /**
+     * Counts an example.
+     *
+     * @param row       code or bin of the example
+     * @param classCode class code of the example
+     */
+    void add(int row, int classCode) {
+        frequencies[row][classCode]++;
+    }
+
+    /**
+     * Removes the examples counted by another histogram of the same attribute.
+     *
+     * @param other histogram of a subset of the examples counted by this one
+     */
+    void subtract(AttributeHistogram other) {
+        for (int row = 0; row < frequencies.length; row++) {
+            for (int c = 0; c < frequencies[row].length; c++) {
+                frequencies[row][c] -= other.frequencies[row][c];
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this histogram.
+     *
+     * @return histogram with the same frequencies
+     */
+    AttributeHistogram copy() {
+        AttributeHistogram copy = new AttributeHistogram(frequencies.length, 0, upperBounds);
+        for (int row = 0; row < frequencies.length; row++) {
+            copy.frequencies[row] = frequencies[row].clone();
+        }
+        return copy;
+    }
+
+    /**
+     * Returns the number of rows of this histogram.
+     *
+     * @return number of codes or bins
+     */
+    int getNumberOfRows() {
+        return frequencies.length;
+    }
+
+    /**
+     * Returns the class frequencies of a row. The returned array must not be modified.
+     *
+     * @param row code or bin
+     * @return absolute frequencies indexed by class code
+     */
+    int[] getFrequencies(int row) {
+        return frequencies[row];
+    }
+
+    /**
+     * Returns the number of examples counted in a row.
+     *
+     * @param row code or bin
+     * @return number of examples
+     */
+    int getRowSize(int row) {
+        int size = 0;
+        for (int frequency : frequencies[row]) {
+            size += frequency;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the greatest training value which falls in a bin.
+     *
+     * @param bin bin of a continuous attribute
+     * @return upper bound of the bin
+     */
+    float getUpperBound(int bin) {
+        return upperBounds[bin];
+    }
+}
@@ -0,0 +1,62 @@
+package com.mapgroup.classificator.tree;
+
+/**
+ * Superclass of the predictors generated by {@link PredictorCompiler}.
+ * <p>
+ * The generated subclass only implements {@link #classify(float[])}; the class values
+ * and the codes of the discrete values are taken from the model the subclass was generated from.
+ * </p>
+ */
+public abstract class CompiledPredictor implements Predictor {
+
+    private final InferenceModel model;
+    /**
+     * Tells, for each position, if a continuous attribute is tested by the tree
+     */
+    private final boolean[] continuous;
+
+    /**
+     * Constructs the predictor of a model.
+     *
+     * @param model model the subclass was generated from
+     */
+    protected CompiledPredictor(InferenceModel model) {
+        this.model = model;
+        continuous = new boolean[model.getNumberOfAttributes()];
+        for (int node = 0; node < model.getNumberOfNodes(); node++) {
+            if (!model.isLeaf(node) && !model.isDiscrete(model.getAttributeIndex(node)))
+                continuous[model.getAttributeIndex(node)] = true;
+        }
+    }
+
+    /**
+     * Follows the tree with the values of an example.
+     *
+     * @param example value of each explanatory attribute, the code for the discrete ones
+     * @return position of the predicted class value in the model, <code>-1</code> if a code can't be followed
+     */
+    protected abstract int classify(float[] example);
+
+    public String predict(float[] example) throws UnknownValueException {
+        int classIndex = classify(example);
+
+        if (classIndex == -1)
+            throw new UnknownValueException();
+        return model.getClassValue(classIndex);
+    }
+
+    public String predict(Object[] example) throws UnknownValueException {
+        float[] values = new float[model.getNumberOfAttributes()];
+
+        for (int i = 0; i < values.length; i++) {
+            if (model.isDiscrete(i)) {
+                values[i] = example[i] == null ? -1 : model.encode(i, example[i].toString());
+            } else if (continuous[i]) {
+                if (!(example[i] instanceof Number))
+                    throw new UnknownValueException();
+                values[i] = ((Number) example[i]).floatValue();
+            }
+        }
+        return predict(values);
+    }
+}
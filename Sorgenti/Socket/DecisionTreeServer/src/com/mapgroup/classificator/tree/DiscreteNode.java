@@ -10,18 +10,38 @@ import com.mapgroup.classificator.data.DiscreteAttribute;
 
 class DiscreteNode extends SplitNode {
 
+    private static final long serialVersionUID = -7958101852571957362L;
+
     /**
      * Instances an object with the superclass constructor with parameter <code>attribute</code>
      *
      * @param trainingSet current training set
+     * @param examples    permutation of the example indexes over the training set
+     * @param beginExampleIndex first extreme of the training subset
+     * @param endExampleIndex last extreme of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
+     * @param attribute independent attribute on which the split value is defined
+     */
+
+    DiscreteNode(Data trainingSet, int[] examples, int beginExampleIndex,
+	    int endExampleIndex, int[] classFrequencies, DiscreteAttribute attribute) {
+	super(trainingSet, examples, beginExampleIndex, endExampleIndex, classFrequencies, attribute);
+    }
+
+    /**
+     * Instances an object from the histogram of the attribute codes in the training subset
+     *
+     * @param trainingSet current training set
+     * @param histogram class frequencies for each code of <code>attribute</code>
      * @param beginExampleIndex first extreme of the training subset
      * @param endExampleIndex last extreme of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
      * @param attribute independent attribute on which the split value is defined
      */
 
-    DiscreteNode(Data trainingSet, int beginExampleIndex,
-	    int endExampleIndex, DiscreteAttribute attribute) {
-	super(trainingSet, beginExampleIndex, endExampleIndex, attribute);
+    DiscreteNode(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex,
+	    int endExampleIndex, int[] classFrequencies, DiscreteAttribute attribute) {
+	super(trainingSet, histogram, beginExampleIndex, endExampleIndex, classFrequencies, attribute);
     }
 
     /**
@@ -29,40 +49,77 @@ class DiscreteNode extends SplitNode {
      * to a training subset where the split is defined
      *
      * @param trainingSet current training set
+     * @param examples    permutation of the example indexes over the training set
      * @param beginExampleIndex first extreme of the training subset
      * @param endExampleIndex last extreme of the training subset
      * @param attribute independent attribute on which the split value is defined
      */
 
-    protected void setSplitInfo(Data trainingSet, int beginExampleIndex,
+    protected void setSplitInfo(Data trainingSet, int[] examples, int beginExampleIndex,
 	    int endExampleIndex, Attribute attribute) {
 
-	Object currentSplitValue, nextSplitValue = null;
+	DiscreteAttribute discreteAttribute = (DiscreteAttribute) attribute;
+	int currentCode, nextCode = trainingSet.getDiscreteCode(examples[beginExampleIndex],
+		attribute.getIndex());
 
 	int beginSplit = beginExampleIndex;
 	int child = 0;
-	// determina quando varia il valore in 'attribute'
+	// determina quando varia il codice del valore in 'attribute'
 
 	for (int i = beginExampleIndex; i < endExampleIndex; i++) {
 
-	    currentSplitValue = trainingSet.getExplanatoryValue(i,
-		    attribute.getIndex());
-	    nextSplitValue = trainingSet.getExplanatoryValue(i + 1,
+	    currentCode = nextCode;
+	    nextCode = trainingSet.getDiscreteCode(examples[i + 1],
 		    attribute.getIndex());
 
-	    if (!currentSplitValue.equals(nextSplitValue)) {
-		mapSplit.add(new SplitInfo(currentSplitValue, beginSplit, i,
-			child));
+	    if (currentCode != nextCode) {
+		mapSplit.add(new SplitInfo(discreteAttribute.getValue(currentCode),
+			beginSplit, i, child));
 		beginSplit = i + 1;
 		child++;
 	    }
 	}
 
-	mapSplit.add(new SplitInfo(nextSplitValue, beginSplit, endExampleIndex,
-		child));
+	mapSplit.add(new SplitInfo(discreteAttribute.getValue(nextCode), beginSplit,
+		endExampleIndex, child));
 	//child++;
     }
 
+    /**
+     * Instances a <code>SlitInfo</code> object for each code which is present in the
+     * training subset, reading the sizes of the children from the histogram
+     *
+     * @param trainingSet current training set
+     * @param histogram class frequencies for each code of <code>attribute</code>
+     * @param beginExampleIndex first extreme of the training subset
+     * @param endExampleIndex last extreme of the training subset
+     * @param attribute independent attribute on which the split value is defined
+     */
+
+    protected void setSplitInfo(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex,
+	    int endExampleIndex, Attribute attribute) {
+
+	DiscreteAttribute discreteAttribute = (DiscreteAttribute) attribute;
+	int[][] frequencies = new int[histogram.getNumberOfRows()][];
+	int beginSplit = beginExampleIndex;
+	int child = 0;
+
+	// i codici sono in ordine, come i valori dopo l'ordinamento
+	for (int code = 0; code < histogram.getNumberOfRows(); code++) {
+	    int size = histogram.getRowSize(code);
+	    if (size != 0) {
+		mapSplit.add(new SplitInfo(discreteAttribute.getValue(code), beginSplit,
+			beginSplit + size - 1, child));
+		frequencies[child] = histogram.getFrequencies(code).clone();
+		beginSplit += size;
+		child++;
+	    }
+	}
+
+	childClassFrequencies = new int[child][];
+	System.arraycopy(frequencies, 0, childClassFrequencies, 0, child);
+    }
+
     /**
      * Controls the input value with the all split in <code>mapSplit</code> and returns the value which passes the test
      *
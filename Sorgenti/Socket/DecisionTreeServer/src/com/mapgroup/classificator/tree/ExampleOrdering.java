@@ -0,0 +1,534 @@
+package com.mapgroup.classificator.tree;
+
+import com.mapgroup.classificator.data.Attribute;
+import com.mapgroup.classificator.data.ContinuousAttribute;
+import com.mapgroup.classificator.data.Data;
+import com.mapgroup.classificator.data.DiscreteAttribute;
+
+import java.util.Arrays;
+
+/**
+ * Provides the permutations of the example indexes used during the induction
+ * of a decision tree.
+ * <p>
+ * Every node owns the same range [<code>begin</code>][<code>end</code>] in all the
+ * permutations, so the examples of a node can be read from any of them.
+ * </p>
+ */
+abstract class ExampleOrdering {
+
+    /**
+     * Training set on which the tree is learnt
+     */
+    final Data trainingSet;
+
+    /**
+     * Creates the ordering required by the specified induction mode.
+     *
+     * @param trainingSet whole training set
+     * @param mode        induction mode
+     * @return the ordering of the examples of <code>trainingSet</code>
+     */
+    static ExampleOrdering newInstance(Data trainingSet, InductionMode mode) {
+        if (mode == InductionMode.PRESORTED) {
+            return new Presorted(trainingSet);
+        } else if (mode == InductionMode.HISTOGRAM) {
+            return new Binned(trainingSet);
+        }
+        return new Resorting(trainingSet);
+    }
+
+    ExampleOrdering(Data trainingSet) {
+        this.trainingSet = trainingSet;
+    }
+
+    /**
+     * Returns a permutation that holds in [<code>begin</code>][<code>end</code>]
+     * the examples of the node, in no particular order.
+     *
+     * @return permutation of the example indexes
+     */
+    abstract int[] getExamples();
+
+    /**
+     * Tells if {@link #newSplitNode(Attribute, int, int, int[])} can be invoked at the same time
+     * for different attributes of the same training subset.
+     *
+     * @return <code>true</code> if the evaluations of different attributes are independent
+     */
+    abstract boolean isConcurrent();
+
+    /**
+     * Evaluates the split of the training subset on the specified attribute.
+     *
+     * @param attribute        independent attribute
+     * @param begin            starter index of the training subset
+     * @param end              last index of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
+     * @return the split node defined on the attribute
+     */
+    abstract SplitNode newSplitNode(Attribute attribute, int begin, int end, int[] classFrequencies);
+
+    /**
+     * Returns the split node chosen for the training subset with the ranges of its children
+     * in the permutation returned by {@link #getExamples()}, as needed by {@link #split(SplitNode, int, int)}.
+     *
+     * @param splitNode        split node chosen among the ones returned by {@link #newSplitNode(Attribute, int, int, int[])}
+     * @param begin            starter index of the training subset
+     * @param end              last index of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
+     * @return the split node to be used in the tree
+     */
+    SplitNode arrange(SplitNode splitNode, int begin, int end, int[] classFrequencies) {
+        return splitNode;
+    }
+
+    /**
+     * Rearranges the range [<code>begin</code>][<code>end</code>] so that the examples
+     * of each child of <code>splitNode</code> lie in the range recorded in its split information.
+     *
+     * @param splitNode split node chosen for the training subset
+     * @param begin     starter index of the training subset
+     * @param end       last index of the training subset
+     * @return the ordering to be used for each child
+     */
+    abstract ExampleOrdering[] split(SplitNode splitNode, int begin, int end);
+
+    /**
+     * Constructs the split node of an attribute on examples already ordered on it.
+     *
+     * @param examples         permutation ordered on <code>attribute</code> in the training subset
+     * @param attribute        independent attribute
+     * @param begin            starter index of the training subset
+     * @param end              last index of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
+     * @return the split node defined on the attribute
+     */
+    SplitNode newSortedSplitNode(int[] examples, Attribute attribute, int begin, int end, int[] classFrequencies) {
+        if (attribute instanceof DiscreteAttribute) {
+            return new DiscreteNode(trainingSet, examples, begin, end, classFrequencies, (DiscreteAttribute) attribute);
+        } else {
+            return new ContinuousNode(trainingSet, examples, begin, end, classFrequencies, (ContinuousAttribute) attribute);
+        }
+    }
+
+    /**
+     * Returns an array which gives this same ordering to every child of the split node.
+     *
+     * @param splitNode split node chosen for the training subset
+     * @return the ordering to be used for each child
+     */
+    ExampleOrdering[] forEachChild(SplitNode splitNode) {
+        ExampleOrdering[] orderings = new ExampleOrdering[splitNode.getNumberOfChildren()];
+        Arrays.fill(orderings, this);
+        return orderings;
+    }
+
+    /**
+     * Sorts the examples on the values of a continuous attribute.
+     * <p>
+     * Each value is mapped on an integer with the same order and packed with the
+     * example index in a <code>long</code>, so a primitive sort can be used.
+     * </p>
+     *
+     * @param attribute continuous attribute
+     * @return example indexes ordered on the attribute
+     */
+    int[] sortByValue(Attribute attribute) {
+        int numberOfExamples = trainingSet.getNumberOfExamples();
+        long[] keys = new long[numberOfExamples];
+
+        for (int i = 0; i < numberOfExamples; i++) {
+            int bits = Float.floatToIntBits(trainingSet.getContinuousValue(i, attribute.getIndex()));
+            bits ^= (bits >> 31) & 0x7fffffff; // negative values in reverse order
+            keys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys);
+
+        int[] sorted = new int[numberOfExamples];
+        for (int i = 0; i < numberOfExamples; i++)
+            sorted[i] = (int) keys[i];
+        return sorted;
+    }
+
+    /**
+     * Sorts a single permutation again on each requested attribute.
+     * <p>
+     * Each attribute is evaluated on its own copy of the training subset, so the attributes
+     * can be evaluated together. The attribute chosen is then sorted on the shared permutation.
+     * </p>
+     */
+    private static class Resorting extends ExampleOrdering {
+
+        private final int[] examples;
+
+        Resorting(Data trainingSet) {
+            super(trainingSet);
+            examples = new int[trainingSet.getNumberOfExamples()];
+            for (int i = 0; i < examples.length; i++)
+                examples[i] = i;
+        }
+
+        int[] getExamples() {
+            return examples;
+        }
+
+        boolean isConcurrent() {
+            return true;
+        }
+
+        SplitNode newSplitNode(Attribute attribute, int begin, int end, int[] classFrequencies) {
+            // the ranges of the node start from 0, arrange() gives them their place in the permutation
+            int[] subset = Arrays.copyOfRange(examples, begin, end + 1);
+            trainingSet.sort(attribute, subset, 0, subset.length - 1);
+            return newSortedSplitNode(subset, attribute, 0, subset.length - 1, classFrequencies);
+        }
+
+        SplitNode arrange(SplitNode splitNode, int begin, int end, int[] classFrequencies) {
+            trainingSet.sort(splitNode.getAttribute(), examples, begin, end);
+            return newSortedSplitNode(examples, splitNode.getAttribute(), begin, end, classFrequencies);
+        }
+
+        ExampleOrdering[] split(SplitNode splitNode, int begin, int end) {
+            // the range has already been sorted on the attribute of the node by arrange()
+            return forEachChild(splitNode);
+        }
+    }
+
+    /**
+     * Keeps one permutation per attribute, sorted when the induction starts.
+     * <p>
+     * A split partitions every permutation in a stable way, so the range of each
+     * child stays sorted and no example has to be compared again.
+     * </p>
+     */
+    private static class Presorted extends ExampleOrdering {
+
+        /**
+         * Permutations of the example indexes, one for each explanatory attribute
+         */
+        private final int[][] sortedExamples;
+        /**
+         * Child of the current split which receives each example
+         */
+        private final int[] childOf;
+        /**
+         * Support array used by the partitioning
+         */
+        private final int[] buffer;
+
+        Presorted(Data trainingSet) {
+            super(trainingSet);
+            int numberOfExamples = trainingSet.getNumberOfExamples();
+            int numberOfAttributes = trainingSet.getNumberOfExplanatoryAttributes();
+
+            sortedExamples = new int[Math.max(numberOfAttributes, 1)][];
+            for (int i = 0; i < numberOfAttributes; i++) {
+                Attribute attribute = trainingSet.getExplanatoryAttribute(i);
+                if (attribute instanceof DiscreteAttribute) {
+                    sortedExamples[i] = sortByCode((DiscreteAttribute) attribute);
+                } else {
+                    sortedExamples[i] = sortByValue(attribute);
+                }
+            }
+            if (numberOfAttributes == 0) {
+                sortedExamples[0] = new int[numberOfExamples];
+                for (int i = 0; i < numberOfExamples; i++)
+                    sortedExamples[0][i] = i;
+            }
+
+            childOf = new int[numberOfExamples];
+            buffer = new int[numberOfExamples];
+        }
+
+        /**
+         * Counting sort of the examples on the codes of a discrete attribute.
+         *
+         * @param attribute discrete attribute
+         * @return example indexes ordered on the attribute
+         */
+        private int[] sortByCode(DiscreteAttribute attribute) {
+            int numberOfExamples = trainingSet.getNumberOfExamples();
+            int[] next = new int[attribute.getNumOfDistinctValues() + 1];
+
+            for (int i = 0; i < numberOfExamples; i++)
+                next[trainingSet.getDiscreteCode(i, attribute.getIndex()) + 1]++;
+            for (int c = 1; c < next.length; c++)
+                next[c] += next[c - 1];
+
+            int[] sorted = new int[numberOfExamples];
+            for (int i = 0; i < numberOfExamples; i++)
+                sorted[next[trainingSet.getDiscreteCode(i, attribute.getIndex())]++] = i;
+            return sorted;
+        }
+
+        int[] getExamples() {
+            return sortedExamples[0];
+        }
+
+        boolean isConcurrent() {
+            return true;
+        }
+
+        SplitNode newSplitNode(Attribute attribute, int begin, int end, int[] classFrequencies) {
+            return newSortedSplitNode(sortedExamples[attribute.getIndex()], attribute, begin, end, classFrequencies);
+        }
+
+        ExampleOrdering[] split(SplitNode splitNode, int begin, int end) {
+            int splitAttribute = splitNode.getAttribute().getIndex();
+            int[] splitExamples = sortedExamples[splitAttribute];
+            int numberOfChildren = splitNode.getNumberOfChildren();
+
+            for (int child = 0; child < numberOfChildren; child++) {
+                SplitNode.SplitInfo info = splitNode.getSplitInfo(child);
+                for (int i = info.getBeginIndex(); i <= info.getEndIndex(); i++)
+                    childOf[splitExamples[i]] = child;
+            }
+
+            int[] next = new int[numberOfChildren];
+            for (int a = 0; a < sortedExamples.length; a++) {
+                if (a == splitAttribute)
+                    continue;
+
+                for (int child = 0; child < numberOfChildren; child++)
+                    next[child] = splitNode.getSplitInfo(child).getBeginIndex();
+
+                int[] examples = sortedExamples[a];
+                for (int i = begin; i <= end; i++)
+                    buffer[next[childOf[examples[i]]]++] = examples[i];
+                System.arraycopy(buffer, begin, examples, begin, end - begin + 1);
+            }
+            return forEachChild(splitNode);
+        }
+    }
+
+    /**
+     * Replaces the values of the continuous attributes with at most {@link #MAX_BINS} bins,
+     * computed once when the induction starts, and evaluates the splits on the
+     * histograms of the bins and of the discrete codes.
+     * <p>
+     * The examples are kept in a single permutation which is partitioned at each split,
+     * never sorted. Every child gets its own view on the shared arrays with the histograms
+     * of its training subset: the histograms of the largest child are obtained subtracting
+     * the ones of its siblings from the histograms of the parent, so only the smaller
+     * children have to be counted.
+     * </p>
+     */
+    private static class Binned extends ExampleOrdering {
+
+        /**
+         * Name of the system property which defines the maximum number of bins per attribute
+         */
+        static final String BINS_PROPERTY = "decisiontree.histogram.bins";
+        /**
+         * Greatest number of bins, so that a bin fits in a byte
+         */
+        static final int MAX_BINS = 256;
+
+        private final int[] examples;
+        /**
+         * Bin of each example, for each continuous attribute (<code>null</code> for the discrete ones)
+         */
+        private final byte[][] bins;
+        /**
+         * Greatest value of each bin, for each continuous attribute
+         */
+        private final float[][] upperBounds;
+        /**
+         * Support array used by the partitioning
+         */
+        private final int[] buffer;
+        /**
+         * Histograms of the explanatory attributes in the training subset of this view
+         */
+        private final AttributeHistogram[] histograms;
+
+        Binned(Data trainingSet) {
+            super(trainingSet);
+            int numberOfExamples = trainingSet.getNumberOfExamples();
+            int numberOfAttributes = trainingSet.getNumberOfExplanatoryAttributes();
+            int maxBins = Math.max(2, Math.min(MAX_BINS, Integer.getInteger(BINS_PROPERTY, MAX_BINS)));
+
+            bins = new byte[numberOfAttributes][];
+            upperBounds = new float[numberOfAttributes][];
+            for (int i = 0; i < numberOfAttributes; i++) {
+                Attribute attribute = trainingSet.getExplanatoryAttribute(i);
+                if (attribute instanceof ContinuousAttribute) {
+                    quantize(attribute, maxBins);
+                }
+            }
+
+            examples = new int[numberOfExamples];
+            for (int i = 0; i < numberOfExamples; i++)
+                examples[i] = i;
+            buffer = new int[numberOfExamples];
+            histograms = count(0, numberOfExamples - 1);
+        }
+
+        /**
+         * Constructs the view of a child, which shares the arrays of its parent.
+         *
+         * @param parent     view of the parent node
+         * @param histograms histograms of the training subset of the child
+         */
+        private Binned(Binned parent, AttributeHistogram[] histograms) {
+            super(parent.trainingSet);
+            examples = parent.examples;
+            bins = parent.bins;
+            upperBounds = parent.upperBounds;
+            buffer = parent.buffer;
+            this.histograms = histograms;
+        }
+
+        /**
+         * Assigns the bins of a continuous attribute.
+         * <p>
+         * If the attribute has no more distinct values than bins each value gets its own bin,
+         * otherwise the bins hold about the same number of examples. The examples with the
+         * same value always fall in the same bin.
+         * </p>
+         *
+         * @param attribute continuous attribute
+         * @param maxBins   maximum number of bins
+         */
+        private void quantize(Attribute attribute, int maxBins) {
+            int numberOfExamples = trainingSet.getNumberOfExamples();
+            int[] sorted = sortByValue(attribute);
+
+            int distinctValues = 0;
+            for (int i = 0; i < numberOfExamples; i++) {
+                if (i == 0 || value(sorted[i], attribute) != value(sorted[i - 1], attribute))
+                    distinctValues++;
+            }
+            int minBinSize = distinctValues <= maxBins ? 0 : (numberOfExamples + maxBins - 1) / maxBins;
+
+            byte[] binOf = new byte[numberOfExamples];
+            float[] bounds = new float[maxBins];
+            int bin = 0;
+            int binSize = 0;
+            for (int i = 0; i < numberOfExamples; i++) {
+                float value = value(sorted[i], attribute);
+                if (i > 0 && value != bounds[bin] && binSize >= minBinSize && bin < maxBins - 1) {
+                    bin++;
+                    binSize = 0;
+                }
+                binOf[sorted[i]] = (byte) bin;
+                bounds[bin] = value;
+                binSize++;
+            }
+
+            bins[attribute.getIndex()] = binOf;
+            upperBounds[attribute.getIndex()] = Arrays.copyOf(bounds, bin + 1);
+        }
+
+        private float value(int example, Attribute attribute) {
+            return trainingSet.getContinuousValue(example, attribute.getIndex());
+        }
+
+        /**
+         * Returns the histogram row of an example: its bin for a continuous attribute,
+         * its code for a discrete one.
+         *
+         * @param example        example index
+         * @param attributeIndex position of the explanatory attribute
+         * @return row of the example
+         */
+        private int rowOf(int example, int attributeIndex) {
+            if (bins[attributeIndex] != null) {
+                return bins[attributeIndex][example] & 0xff;
+            }
+            return trainingSet.getDiscreteCode(example, attributeIndex);
+        }
+
+        /**
+         * Counts the histograms of all the explanatory attributes in a training subset.
+         *
+         * @param begin starter index of the training subset
+         * @param end   last index of the training subset
+         * @return a histogram for each explanatory attribute
+         */
+        private AttributeHistogram[] count(int begin, int end) {
+            int numberOfClasses = trainingSet.getClassAttribute().getNumOfDistinctValues();
+            AttributeHistogram[] counted = new AttributeHistogram[bins.length];
+
+            for (int a = 0; a < counted.length; a++) {
+                int numberOfRows = bins[a] != null ? upperBounds[a].length
+                        : ((DiscreteAttribute) trainingSet.getExplanatoryAttribute(a)).getNumOfDistinctValues();
+                counted[a] = new AttributeHistogram(numberOfRows, numberOfClasses, upperBounds[a]);
+                for (int i = begin; i <= end; i++) {
+                    counted[a].add(rowOf(examples[i], a), trainingSet.getClassCode(examples[i]));
+                }
+            }
+            return counted;
+        }
+
+        int[] getExamples() {
+            return examples;
+        }
+
+        boolean isConcurrent() {
+            return true;
+        }
+
+        SplitNode newSplitNode(Attribute attribute, int begin, int end, int[] classFrequencies) {
+            AttributeHistogram histogram = histograms[attribute.getIndex()];
+
+            if (attribute instanceof DiscreteAttribute) {
+                return new DiscreteNode(trainingSet, histogram, begin, end, classFrequencies, (DiscreteAttribute) attribute);
+            } else {
+                return new ContinuousNode(trainingSet, histogram, begin, end, classFrequencies, (ContinuousAttribute) attribute);
+            }
+        }
+
+        ExampleOrdering[] split(SplitNode splitNode, int begin, int end) {
+            Attribute attribute = splitNode.getAttribute();
+            int a = attribute.getIndex();
+            int numberOfChildren = splitNode.getNumberOfChildren();
+
+            // child which receives the examples of each row
+            int[] childOfRow = new int[histograms[a].getNumberOfRows()];
+            if (attribute instanceof DiscreteAttribute) {
+                for (int child = 0; child < numberOfChildren; child++) {
+                    childOfRow[((DiscreteAttribute) attribute).getCode((String) splitNode.getSplitInfo(child).getSplitValue())] = child;
+                }
+            } else {
+                float threshold = (Float) splitNode.getSplitInfo(0).getSplitValue();
+                for (int row = 0; row < childOfRow.length; row++) {
+                    childOfRow[row] = histograms[a].getUpperBound(row) <= threshold ? 0 : 1;
+                }
+            }
+
+            int[] next = new int[numberOfChildren];
+            int largest = 0;
+            for (int child = 0; child < numberOfChildren; child++) {
+                SplitNode.SplitInfo info = splitNode.getSplitInfo(child);
+                next[child] = info.getBeginIndex();
+                if (info.getEndIndex() - info.getBeginIndex() > splitNode.getSplitInfo(largest).getEndIndex() - splitNode.getSplitInfo(largest).getBeginIndex())
+                    largest = child;
+            }
+            for (int i = begin; i <= end; i++)
+                buffer[next[childOfRow[rowOf(examples[i], a)]]++] = examples[i];
+            System.arraycopy(buffer, begin, examples, begin, end - begin + 1);
+
+            // only the smaller children are counted, the largest one gets what is left
+            AttributeHistogram[][] childHistograms = new AttributeHistogram[numberOfChildren][];
+            AttributeHistogram[] rest = new AttributeHistogram[histograms.length];
+            for (int i = 0; i < rest.length; i++)
+                rest[i] = histograms[i].copy();
+            for (int child = 0; child < numberOfChildren; child++) {
+                if (child != largest) {
+                    SplitNode.SplitInfo info = splitNode.getSplitInfo(child);
+                    childHistograms[child] = count(info.getBeginIndex(), info.getEndIndex());
+                    for (int i = 0; i < rest.length; i++)
+                        rest[i].subtract(childHistograms[child][i]);
+                }
+            }
+            childHistograms[largest] = rest;
+
+            ExampleOrdering[] orderings = new ExampleOrdering[numberOfChildren];
+            for (int child = 0; child < numberOfChildren; child++)
+                orderings[child] = new Binned(this, childHistograms[child]);
+            return orderings;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.mapgroup.classificator.tree;
+
+/**
+ * Strategies which can be used to order the training examples while a
+ * decision tree is learnt. {@link #SORT} and {@link #PRESORTED} generate the same tree;
+ * {@link #HISTOGRAM} generates it too as long as no continuous attribute has more
+ * distinct values than bins.
+ */
+public enum InductionMode {
+    /**
+     * Sorts the examples of a node again for every candidate attribute
+     */
+    SORT,
+
+    /**
+     * Sorts the examples on each attribute only once, when the induction starts,
+     * and splits the sorted lists between the children of each split node
+     */
+    PRESORTED,
+
+    /**
+     * Groups the values of each continuous attribute in a limited number of bins,
+     * once when the induction starts, and chooses the splits from the class
+     * histograms of the bins
+     */
+    HISTOGRAM;
+
+    /**
+     * Name of the system property which can be used to choose the mode used by default
+     */
+    public static final String PROPERTY = "decisiontree.induction";
+
+    /**
+     * Returns the mode specified by the system property {@link #PROPERTY} or
+     * {@link #SORT} if the property is missing or doesn't name a mode: the other modes
+     * keep more memory for the whole induction, so they must be chosen explicitly.
+     *
+     * @return the default induction mode
+     */
+    public static InductionMode getDefault() {
+        String name = System.getProperty(PROPERTY);
+
+        if (name != null) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                // unknown mode, the default one is used
+            }
+        }
+        return SORT;
+    }
+}
@@ -9,6 +9,8 @@ import com.mapgroup.classificator.data.DiscreteAttribute;
 
 public class LeafNode extends Node {
 
+    private static final long serialVersionUID = -8971944295316781548L;
+
     /**
      * Class attribute value expressed in the leaf node
      */
@@ -20,10 +22,11 @@ public class LeafNode extends Node {
      * @param trainingSet current training set
      * @param beginExampleIndex first extreme of the training subset
      * @param endExampleIndex last extreme of the training subset
+     * @param classFrequencies absolute frequency of each class value in the training subset
      */
 
-    LeafNode(Data trainingSet, int beginExampleIndex, int endExampleIndex) {
-        super(trainingSet, beginExampleIndex, endExampleIndex);
+    LeafNode(Data trainingSet, int beginExampleIndex, int endExampleIndex, int[] classFrequencies) {
+        super(beginExampleIndex, endExampleIndex, classFrequencies);
         predictedClassValue = determineMostFrequentClass(trainingSet);
     }
 
@@ -47,22 +50,17 @@ public class LeafNode extends Node {
 
     private String determineMostFrequentClass(Data trainingSet) {
         DiscreteAttribute classAttr = trainingSet.getClassAttribute();
-        String maxValue = null;
+        int maxCode = -1;
         int currMax = 0;
-        String currString;
-        int currFrequency;
-
-        for (int i = 0; i < classAttr.getNumOfDistinctValues(); i++) {
-            currString = classAttr.getValue(i);
-            currFrequency = classValueAbsoluteFrequency.get(currString);
 
-            if (currMax < currFrequency) {
-                currMax = currFrequency;
-                maxValue = currString;
+        for (int i = 0; i < classFrequencies.length; i++) {
+            if (currMax < classFrequencies[i]) {
+                currMax = classFrequencies[i];
+                maxCode = i;
             }
         }
 
-        return maxValue;
+        return maxCode == -1 ? null : classAttr.getValue(maxCode);
     }
 
     /**
@@ -3,7 +3,6 @@ package com.mapgroup.classificator.tree;
 import com.mapgroup.classificator.data.Data;
 
 import java.io.Serializable;
-import java.util.HashMap;
 
 /**
  * This class represents a generic node in a decision tree
@@ -11,6 +10,10 @@ import java.util.HashMap;
 
 public abstract class Node implements Serializable {
 
+    // kept equal to the one of the earlier releases, so that the saved trees can still be loaded
+    private static final long serialVersionUID = -4545186145980519919L;
+
+
     /**
      * Counter of the node generated by the tree
      */
@@ -21,6 +24,11 @@ public abstract class Node implements Serializable {
      */
     //private int idNode;
 
+    /**
+     * Natural logarithm of 2, used to compute the entropy in bits
+     */
+    private static final double LN_2 = Math.log(2);
+
     /**
      * Index of the decision tree's array which represents the first example of the current node
      */
@@ -30,52 +38,72 @@ public abstract class Node implements Serializable {
      */
     private final int endExampleIndex;
     /**
-     * This controls the absolute frequency values for each class value.
+     * Absolute frequency of each class value in the training subset, indexed by class code.
      */
-    protected final HashMap<String, Integer> classValueAbsoluteFrequency;
+    protected final int[] classFrequencies;
     /**
      * Value of the calculate entropy, respect to the current node, in the training subset of the node
      */
     protected float entropy;
 
     /**
-     * Supports the primitive attributes of class,
-     * instantiates and populates the modeled structure classValueAbsoluteFrequency object and
-     * uses this to calculate the entropy with respect to the attribute class
+     * Supports the primitive attributes of class and
+     * uses the absolute frequencies of the class values, counted by the parent node,
+     * to calculate the entropy with respect to the attribute class
      * in the subset of training covered by the node
      *
-     * @param trainingSet       current training set
      * @param beginExampleIndex index that represents the first extreme of the training subset
      * @param endExampleIndex   index that represents the last extreme of the training subset
+     * @param classFrequencies  absolute frequency of each class value in the training subset
      */
 
-    Node(Data trainingSet, int beginExampleIndex, int endExampleIndex) {
+    Node(int beginExampleIndex, int endExampleIndex, int[] classFrequencies) {
 
         //idNode = idNodeCount++;
-        classValueAbsoluteFrequency = new HashMap<String, Integer>();
 
         this.beginExampleIndex = beginExampleIndex;
         this.endExampleIndex = endExampleIndex;
+        this.classFrequencies = classFrequencies;
 
-        for (int i = 0; i < trainingSet.getClassAttribute().getNumOfDistinctValues(); i++) {
-            classValueAbsoluteFrequency.put(trainingSet.getClassAttribute().getValue(i), 0);
-        }
+        entropy = computeEntropy(classFrequencies, endExampleIndex - beginExampleIndex + 1);
+    }
+
+    /**
+     * Counts the absolute frequency of each class value in a training subset.
+     *
+     * @param trainingSet       current training set
+     * @param examples          permutation of the example indexes over the training set
+     * @param beginExampleIndex index that represents the first extreme of the training subset
+     * @param endExampleIndex   index that represents the last extreme of the training subset
+     * @return absolute frequencies indexed by class code
+     */
 
+    static int[] countClasses(Data trainingSet, int[] examples, int beginExampleIndex, int endExampleIndex) {
+        int[] frequencies = new int[trainingSet.getClassAttribute().getNumOfDistinctValues()];
         for (int i = beginExampleIndex; i <= endExampleIndex; i++) {
-            String classValue = trainingSet.getClassValue(i);
-            classValueAbsoluteFrequency.put(classValue, classValueAbsoluteFrequency.get(classValue) + 1);
+            frequencies[trainingSet.getClassCode(examples[i])]++;
         }
+        return frequencies;
+    }
 
-        entropy = 0;
+    /**
+     * Computes the entropy of a training subset from the absolute frequencies of its class values.
+     *
+     * @param frequencies      absolute frequency of each class value, indexed by class code
+     * @param numberOfExamples number of examples in the training subset
+     * @return entropy of the training subset
+     */
 
-        int numberOfExamples = endExampleIndex - beginExampleIndex + 1;
-        for (Integer v : classValueAbsoluteFrequency.values()) {
+    static float computeEntropy(int[] frequencies, int numberOfExamples) {
+        float entropy = 0;
 
+        for (int v : frequencies) {
             if (v != 0) {
                 float p = ((float) v) / numberOfExamples;
-                entropy += (-p * Math.log10(p) / Math.log10(2));
+                entropy += (-p * Math.log(p) / LN_2);
             }
         }
+        return entropy;
     }
 
     /**
@@ -0,0 +1,32 @@
+package com.mapgroup.classificator.tree;
+
+/**
+ * Predicts the class values of the examples with a learnt decision tree.
+ * <p>
+ * The examples are arrays indexed by the position of the explanatory attributes in the training set.
+ * </p>
+ *
+ * @see DecisionTree#toPredictor()
+ */
+public interface Predictor {
+
+    /**
+     * Predicts the class value of an example whose discrete values are given
+     * as the codes of the training attributes.
+     *
+     * @param example value of each explanatory attribute, the code for the discrete ones
+     * @return predicted class value
+     * @throws UnknownValueException if a discrete code can't be followed in the tree
+     */
+    String predict(float[] example) throws UnknownValueException;
+
+    /**
+     * Predicts the class value of an example whose values are given as objects:
+     * a <code>String</code> for the discrete attributes, a <code>Number</code> for the continuous ones.
+     *
+     * @param example value of each explanatory attribute
+     * @return predicted class value
+     * @throws UnknownValueException if a value can't be followed in the tree
+     */
+    String predict(Object[] example) throws UnknownValueException;
+}
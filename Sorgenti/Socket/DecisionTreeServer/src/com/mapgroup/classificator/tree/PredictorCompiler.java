@@ -0,0 +1,311 @@
+package com.mapgroup.classificator.tree;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Turns an {@link InferenceModel} in a class whose code is the tree itself: a nested
+ * <code>if</code> for each continuous node and a <code>switch</code> on the codes for each
+ * discrete node. The source is compiled in memory by the compiler of the JDK and loaded
+ * by a class loader of its own, so the class can be unloaded with its predictor.
+ * <p>
+ * The subtrees with more than {@link #MAX_INLINED_NODES} nodes are moved in methods of their own,
+ * so that no method exceeds the limits of the class file format.
+ * </p>
+ * <p>
+ * When the server runs on a JRE, which has no compiler, or the compilation fails,
+ * the model itself is used as predictor.
+ * </p>
+ */
+public final class PredictorCompiler {
+
+    /**
+     * Name of the system property which enables the compilation of the predictors
+     *
+     * @see DecisionTree#toPredictor()
+     */
+    public static final String PROPERTY = "decisiontree.predictor.compile";
+
+    /**
+     * Greatest number of nodes generated in the same method
+     */
+    private static final int MAX_INLINED_NODES = 256;
+
+    private static final String PACKAGE = PredictorCompiler.class.getPackage().getName();
+
+    /**
+     * Number of the last generated class
+     */
+    private static final AtomicInteger generatedClasses = new AtomicInteger();
+
+    private PredictorCompiler() {
+    }
+
+    /**
+     * Returns the predictor to be used for a model: the compiled one when the system
+     * property {@link #PROPERTY} is <code>true</code>, the model itself otherwise.
+     *
+     * @param model inference model of a decision tree
+     * @return the predictor of the model
+     */
+    public static Predictor getPredictor(InferenceModel model) {
+        if (Boolean.getBoolean(PROPERTY)) {
+            return compile(model);
+        }
+        return model;
+    }
+
+    /**
+     * Compiles the predictor of a model.
+     *
+     * @param model inference model of a decision tree
+     * @return the compiled predictor, or <code>model</code> if it can't be compiled
+     */
+    public static Predictor compile(InferenceModel model) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return model;
+        }
+
+        String simpleName = "GeneratedPredictor" + generatedClasses.incrementAndGet();
+        String className = PACKAGE + "." + simpleName;
+        final String source = generateSource(model, simpleName);
+
+        StandardJavaFileManager standardManager = compiler.getStandardFileManager(null, null, null);
+        ClassFileManager fileManager = new ClassFileManager(standardManager);
+        JavaFileObject sourceFile = new SimpleJavaFileObject(toUri(className, JavaFileObject.Kind.SOURCE), JavaFileObject.Kind.SOURCE) {
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+
+        List<String> options = new ArrayList<String>();
+        options.add("-classpath");
+        options.add(getClassPath());
+        Boolean compiled = compiler.getTask(null, fileManager, null, options, null, Collections.singletonList(sourceFile)).call();
+        try {
+            standardManager.close();
+        } catch (IOException e) {
+            // nothing was written on disk
+        }
+        if (compiled == null || !compiled) {
+            return model;
+        }
+
+        try {
+            Class<?> predictorClass = new GeneratedClassLoader(fileManager.classes).loadClass(className);
+            return (Predictor) predictorClass.getConstructor(InferenceModel.class).newInstance(model);
+        } catch (ReflectiveOperationException e) {
+            return model;
+        }
+    }
+
+    /**
+     * Generates the source of the predictor of a model.
+     *
+     * @param model      inference model of a decision tree
+     * @param simpleName name of the generated class
+     * @return the Java source of the class
+     */
+    static String generateSource(InferenceModel model, String simpleName) {
+        StringBuilder source = new StringBuilder();
+        List<Integer> methods = new ArrayList<Integer>();
+        int[] subtreeSizes = new int[model.getNumberOfNodes()];
+        countNodes(model, 0, subtreeSizes);
+
+        source.append("package ").append(PACKAGE).append(";\n\n");
+        source.append("public final class ").append(simpleName).append(" extends CompiledPredictor {\n\n");
+        source.append("    public ").append(simpleName).append("(InferenceModel model) {\n");
+        source.append("        super(model);\n");
+        source.append("    }\n\n");
+        source.append("    protected int classify(float[] x) {\n");
+        source.append("        return node0(x);\n");
+        source.append("    }\n");
+
+        // every method can ask for new ones, generated after it
+        methods.add(0);
+        for (int i = 0; i < methods.size(); i++) {
+            int node = methods.get(i);
+            source.append("\n    private static int node").append(node).append("(float[] x) {\n");
+            appendNode(model, node, subtreeSizes, methods, source, 2);
+            source.append("    }\n");
+        }
+        source.append("}\n");
+        return source.toString();
+    }
+
+    /**
+     * Computes the number of nodes of each subtree.
+     *
+     * @param model        inference model
+     * @param node         root of the subtree
+     * @param subtreeSizes number of nodes of each subtree, filled by the method
+     * @return number of nodes of the subtree
+     */
+    private static int countNodes(InferenceModel model, int node, int[] subtreeSizes) {
+        int size = 1;
+
+        if (!model.isLeaf(node)) {
+            for (int branch = 0; branch < model.getNumberOfBranches(node); branch++) {
+                int child = model.getChild(node, branch);
+                if (child != -1)
+                    size += countNodes(model, child, subtreeSizes);
+            }
+        }
+        subtreeSizes[node] = size;
+        return size;
+    }
+
+    /**
+     * Appends the statements which return the class predicted by a subtree.
+     *
+     * @param model        inference model
+     * @param node         root of the subtree
+     * @param subtreeSizes number of nodes of each subtree
+     * @param methods      roots of the subtrees generated in methods of their own
+     * @param source       generated source
+     * @param depth        indentation level
+     */
+    private static void appendNode(InferenceModel model, int node, int[] subtreeSizes, List<Integer> methods,
+                                   StringBuilder source, int depth) {
+        String indent = indent(depth);
+
+        if (model.isLeaf(node)) {
+            source.append(indent).append("return ").append(model.getClassIndex(node)).append(";\n");
+            return;
+        }
+
+        int attributeIndex = model.getAttributeIndex(node);
+        if (model.isDiscrete(attributeIndex)) {
+            source.append(indent).append("switch ((int) x[").append(attributeIndex).append("]) {\n");
+            for (int code = 0; code < model.getNumberOfBranches(node); code++) {
+                int child = model.getChild(node, code);
+                if (child != -1) {
+                    source.append(indent).append("    case ").append(code).append(":\n");
+                    appendChild(model, child, subtreeSizes, methods, source, depth + 2);
+                }
+            }
+            source.append(indent).append("    default:\n");
+            source.append(indent).append("        return -1;\n");
+            source.append(indent).append("}\n");
+        } else {
+            source.append(indent).append("if (x[").append(attributeIndex).append("] <= ")
+                    .append(toLiteral(model.getThreshold(node))).append(") {\n");
+            appendChild(model, model.getChild(node, 0), subtreeSizes, methods, source, depth + 1);
+            source.append(indent).append("} else {\n");
+            appendChild(model, model.getChild(node, 1), subtreeSizes, methods, source, depth + 1);
+            source.append(indent).append("}\n");
+        }
+    }
+
+    private static void appendChild(InferenceModel model, int child, int[] subtreeSizes, List<Integer> methods,
+                                    StringBuilder source, int depth) {
+        if (subtreeSizes[child] > MAX_INLINED_NODES) {
+            methods.add(child);
+            source.append(indent(depth)).append("return node").append(child).append("(x);\n");
+        } else {
+            appendNode(model, child, subtreeSizes, methods, source, depth);
+        }
+    }
+
+    private static String indent(int depth) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            indent.append("    ");
+        return indent.toString();
+    }
+
+    /**
+     * Returns a Java expression with exactly the value of a threshold.
+     *
+     * @param value threshold
+     * @return a <code>float</code> literal, or a conversion from its bits if the value isn't finite
+     */
+    private static String toLiteral(float value) {
+        if (Float.isNaN(value) || Float.isInfinite(value))
+            return "Float.intBitsToFloat(" + Float.floatToIntBits(value) + ")";
+        return Float.toString(value) + "f";
+    }
+
+    private static URI toUri(String className, JavaFileObject.Kind kind) {
+        return URI.create("memory:///" + className.replace('.', '/') + kind.extension);
+    }
+
+    /**
+     * Returns the class path used to compile the predictors, which must contain this package.
+     *
+     * @return the class path of the server
+     */
+    private static String getClassPath() {
+        String classPath = System.getProperty("java.class.path");
+        try {
+            String location = new File(PredictorCompiler.class.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+            return location + File.pathSeparator + classPath;
+        } catch (Exception e) {
+            // the code source is unknown, the class path of the JVM is used alone
+            return classPath;
+        }
+    }
+
+    /**
+     * File manager which keeps the compiled classes in memory.
+     */
+    private static class ClassFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+        final Map<String, ByteArrayOutputStream> classes = new HashMap<String, ByteArrayOutputStream>();
+
+        ClassFileManager(JavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        public JavaFileObject getJavaFileForOutput(Location location, final String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            return new SimpleJavaFileObject(toUri(className, kind), kind) {
+                public OutputStream openOutputStream() {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    classes.put(className, bytes);
+                    return bytes;
+                }
+            };
+        }
+    }
+
+    /**
+     * Loads the classes compiled in memory.
+     */
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        private final Map<String, ByteArrayOutputStream> classes;
+
+        GeneratedClassLoader(Map<String, ByteArrayOutputStream> classes) {
+            super(PredictorCompiler.class.getClassLoader());
+            this.classes = classes;
+        }
+
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ByteArrayOutputStream bytes = classes.get(name);
+            if (bytes == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytecode = bytes.toByteArray();
+            return defineClass(name, bytecode, 0, bytecode.length);
+        }
+    }
+}
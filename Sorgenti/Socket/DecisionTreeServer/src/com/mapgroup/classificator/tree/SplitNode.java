@@ -14,6 +14,8 @@ import java.util.ArrayList;
  */
 public abstract class SplitNode extends Node implements Comparable<SplitNode> {
 
+    private static final long serialVersionUID = -6786796935868440098L;
+
     /**
      * Defines an order relationship on the split nodes based
      * upon the information gain that they had.
@@ -36,6 +38,9 @@ public abstract class SplitNode extends Node implements Comparable<SplitNode> {
      */
 
     class SplitInfo implements Serializable {
+
+        private static final long serialVersionUID = 5100220566370993216L;
+
         /**
          * Independent attribute value which defines a split
          */
@@ -119,7 +124,7 @@ public abstract class SplitNode extends Node implements Comparable<SplitNode> {
          *
          * @return split node's value
          */
-        private Object getSplitValue() {
+        Object getSplitValue() {
             return splitValue;
         }
 
@@ -157,17 +162,36 @@ public abstract class SplitNode extends Node implements Comparable<SplitNode> {
      * attribute's information gain
      */
     protected float infoGain;
+    /**
+     * Absolute frequencies of the class values in the training subset of each child.
+     * They are needed only while the tree is learnt, so they aren't saved.
+     */
+    protected transient int[][] childClassFrequencies;
 
     /**
      * Abstract method which is used in order to generate the information
      * needed for each candidate split node.
      *
      * @param trainingSet       the whole training set
+     * @param examples          permutation of the example indexes over the training set
+     * @param beginExampleIndex starter index of the training subset
+     * @param endExampleIndex   last index of the training subset
+     * @param attribute         independent attribute on which the split is defined
+     */
+    protected abstract void setSplitInfo(Data trainingSet, int[] examples, int beginExampleIndex, int endExampleIndex, Attribute attribute);
+
+    /**
+     * Abstract method which generates the information needed for the candidate
+     * split node from the histogram of the attribute values in the training subset.
+     * Besides <code>mapSplit</code> it has to set <code>childClassFrequencies</code>.
+     *
+     * @param trainingSet       the whole training set
+     * @param histogram         class frequencies for each code or bin of <code>attribute</code> in the training subset
      * @param beginExampleIndex starter index of the training subset
      * @param endExampleIndex   last index of the training subset
      * @param attribute         independent attribute on which the split is defined
      */
-    protected abstract void setSplitInfo(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute);
+    protected abstract void setSplitInfo(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex, int endExampleIndex, Attribute attribute);
 
     
     /**
@@ -183,34 +207,77 @@ public abstract class SplitNode extends Node implements Comparable<SplitNode> {
     /**
      * Constructs a split node with the specified information
      * <p>
-     * Invokes the superclass' constructor, orders the input attribute values for the
-     * examples contained in the training subset identified by <code>beginExampleIndex</code>
-     * and <code>endExampleIndex</code> and uses this order in order to determine
+     * Invokes the superclass' constructor and, since the examples contained in the training
+     * subset identified by <code>beginExampleIndex</code> and <code>endExampleIndex</code>
+     * are already ordered on the input attribute, uses this order in order to determine
      * the possible split value and populate <code>mapSplit</code>, computes the attribute's
      * entropy and determines its information gain.
      * </p>
      *
      * @param trainingSet       the whole training set
+     * @param examples          permutation of the example indexes over the training set
      * @param beginExampleIndex starter index of the training subset
      * @param endExampleIndex   last index of the training subset
+     * @param classFrequencies  absolute frequency of each class value in the training subset
      * @param attribute         independent attribute on which the split is defined
      */
-    SplitNode(Data trainingSet, int beginExampleIndex, int endExampleIndex, Attribute attribute) {
-        super(trainingSet, beginExampleIndex, endExampleIndex);
+    SplitNode(Data trainingSet, int[] examples, int beginExampleIndex, int endExampleIndex, int[] classFrequencies, Attribute attribute) {
+        super(beginExampleIndex, endExampleIndex, classFrequencies);
         this.attribute = attribute;
-        trainingSet.sort(attribute, beginExampleIndex, endExampleIndex); // order
 
         mapSplit = new ArrayList<SplitInfo>();
 
         // constructs mapSplit attribute
-        setSplitInfo(trainingSet, beginExampleIndex, endExampleIndex, attribute);
+        setSplitInfo(trainingSet, examples, beginExampleIndex, endExampleIndex, attribute);
 
+        if (mapSplit != null) {
+            childClassFrequencies = new int[mapSplit.size()][];
+            for (int child = 0; child < mapSplit.size(); child++) {
+                childClassFrequencies[child] = countChildClasses(trainingSet, examples, child);
+            }
+        }
+
+        computeInformationGain();
+    }
+
+    /**
+     * Constructs a split node from the histogram of the attribute values
+     * in the training subset, without looking at the single examples.
+     * <p>
+     * The subclass populates both <code>mapSplit</code> and <code>childClassFrequencies</code>,
+     * then the information gain is computed as for the other constructor.
+     * </p>
+     *
+     * @param trainingSet       the whole training set
+     * @param histogram         class frequencies for each code or bin of <code>attribute</code> in the training subset
+     * @param beginExampleIndex starter index of the training subset
+     * @param endExampleIndex   last index of the training subset
+     * @param classFrequencies  absolute frequency of each class value in the training subset
+     * @param attribute         independent attribute on which the split is defined
+     */
+    SplitNode(Data trainingSet, AttributeHistogram histogram, int beginExampleIndex, int endExampleIndex, int[] classFrequencies, Attribute attribute) {
+        super(beginExampleIndex, endExampleIndex, classFrequencies);
+        this.attribute = attribute;
+
+        mapSplit = new ArrayList<SplitInfo>();
+
+        // constructs mapSplit and childClassFrequencies
+        setSplitInfo(trainingSet, histogram, beginExampleIndex, endExampleIndex, attribute);
+
+        computeInformationGain();
+    }
+
+    /**
+     * Computes the information gain of the split from the class frequencies of its children.
+     */
+    private void computeInformationGain() {
         if (mapSplit != null) {
             // compute entropy=sum_i{pi*E(i)} i=1..m ;m = number of classes
             float splitEntropy = 0;
-            for (SplitInfo s : mapSplit) {
-                float p = ((float) (s.getEndIndex() - s.getBeginIndex() + 1)) / (endExampleIndex - beginExampleIndex + 1);
-                float localEntropy = new LeafNode(trainingSet, s.getBeginIndex(), s.getEndIndex()).getEntropy();
+            for (int child = 0; child < mapSplit.size(); child++) {
+                SplitInfo s = mapSplit.get(child);
+                float p = ((float) (s.getEndIndex() - s.getBeginIndex() + 1)) / (getEndExampleIndex() - getBeginExampleIndex() + 1);
+                float localEntropy = computeEntropy(childClassFrequencies[child], s.getEndIndex() - s.getBeginIndex() + 1);
                 splitEntropy += (p * localEntropy);
             }
 
@@ -221,6 +288,45 @@ public abstract class SplitNode extends Node implements Comparable<SplitNode> {
         }
     }
 
+    /**
+     * Counts the class values in the training subset of a child.
+     * <p>
+     * When the child closes the training subset of this node its frequencies are obtained
+     * subtracting the ones of the previous children from the frequencies of this node.
+     * </p>
+     *
+     * @param trainingSet the whole training set
+     * @param examples    permutation of the example indexes over the training set
+     * @param child       identifier for the split
+     * @return absolute frequencies indexed by class code
+     */
+    private int[] countChildClasses(Data trainingSet, int[] examples, int child) {
+        SplitInfo s = mapSplit.get(child);
+
+        if (child < mapSplit.size() - 1 || s.getEndIndex() != getEndExampleIndex()) {
+            return countClasses(trainingSet, examples, s.getBeginIndex(), s.getEndIndex());
+        }
+
+        int[] frequencies = classFrequencies.clone();
+        for (int i = 0; i < child; i++) {
+            for (int c = 0; c < frequencies.length; c++) {
+                frequencies[c] -= childClassFrequencies[i][c];
+            }
+        }
+        return frequencies;
+    }
+
+    /**
+     * Returns the absolute frequencies of the class values in the training
+     * subset of the specified child, as counted during the induction.
+     *
+     * @param child identifier for the split
+     * @return absolute frequencies indexed by class code
+     */
+    int[] getChildClassFrequencies(int child) {
+        return childClassFrequencies[child];
+    }
+
     /**
      * Returns the attribute used in the split operation.
      *
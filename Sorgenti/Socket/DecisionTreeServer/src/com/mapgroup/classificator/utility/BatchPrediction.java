@@ -0,0 +1,136 @@
+package com.mapgroup.classificator.utility;
+
+import com.mapgroup.classificator.data.Data;
+import com.mapgroup.classificator.database.DataException;
+import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.tree.InferenceModel;
+import com.mapgroup.classificator.tree.NoTreeExists;
+import com.mapgroup.classificator.tree.Predictor;
+import com.mapgroup.classificator.tree.PredictorCompiler;
+import com.mapgroup.classificator.tree.UnknownValueException;
+
+/**
+ * Predicts the class value of every example of a dataset, read from a file or
+ * from a database table, with a decision tree.
+ * <p>
+ * The dataset must begin with the explanatory attributes of the training set of the tree,
+ * in the same order. It needn't have the class column: only the columns of the attributes
+ * tested by the tree are read in the dataset, so the class column and any other column
+ * after them are ignored. The predictions are produced in chunks of {@link #CHUNK_SIZE} values, so that
+ * each chunk can be sent to the client while the next one is computed, or a page at a time
+ * with {@link #predict(int, int)}.
+ * </p>
+ */
+public class BatchPrediction {
+
+    /**
+     * Greatest number of predictions returned by {@link #next()} and {@link #predict(int, int)}
+     */
+    public static final int CHUNK_SIZE = 10000;
+
+    /** the predictor of the decision tree */
+    private final Predictor predictor;
+    /** the examples whose class values are predicted */
+    private final Data dataset;
+    /** values of the current example, reused for every prediction */
+    private final Object[] example;
+    /** index of the first example not yet predicted */
+    private int nextExample;
+    /** number of examples whose values aren't known by the tree */
+    private int unknownExamples;
+
+    /**
+     * Prepares the prediction of the examples of a dataset.
+     *
+     * @param tree   the current decision tree
+     * @param source file path of the dataset, or name of the database table followed by ".db"
+     * @throws NoTreeExists  if no tree was loaded
+     * @throws DataException if the dataset can't be read or hasn't the attributes tested by the tree
+     */
+    public BatchPrediction(DecisionTree tree, String source) throws NoTreeExists, DataException {
+        if (tree == null)
+            throw new NoTreeExists();
+
+        InferenceModel model = tree.toInferenceModel();
+        // unlike a training set, the last column isn't taken as the class
+        dataset = new Data(source, model.getNumberOfAttributes());
+
+        predictor = PredictorCompiler.getPredictor(model);
+        example = new Object[model.getNumberOfAttributes()];
+    }
+
+    /**
+     * Returns the number of examples of the dataset.
+     *
+     * @return number of predictions
+     */
+    public int getNumberOfExamples() {
+        return dataset.getNumberOfExamples();
+    }
+
+    /**
+     * Returns the number of examples predicted so far by {@link #next()} whose values can't be
+     * followed in the tree.
+     *
+     * @return number of predictions which are <code>null</code>
+     */
+    public int getNumberOfUnknownExamples() {
+        return unknownExamples;
+    }
+
+    /**
+     * Checks if some examples haven't been predicted yet.
+     *
+     * @return <code>true</code> if {@link #next()} returns other predictions
+     */
+    public boolean hasNext() {
+        return nextExample < dataset.getNumberOfExamples();
+    }
+
+    /**
+     * Predicts the class values of the next chunk of examples.
+     *
+     * @return the predicted class values, in the order of the examples; <code>null</code>
+     * for the examples with values unknown by the tree
+     */
+    public String[] next() {
+        String[] predictions = predict(nextExample, CHUNK_SIZE);
+        nextExample += predictions.length;
+
+        for (String prediction : predictions) {
+            if (prediction == null)
+                unknownExamples++;
+        }
+        return predictions;
+    }
+
+    /**
+     * Predicts the class values of a page of examples, independently of {@link #next()}.
+     *
+     * @param offset index of the first example of the page
+     * @param limit  greatest number of examples of the page, at most {@link #CHUNK_SIZE}
+     * @return the predicted class values, as in {@link #next()}; an empty array when
+     * <code>offset</code> is past the last example
+     * @throws IllegalArgumentException if <code>offset</code> or <code>limit</code> is negative
+     */
+    public String[] predict(int offset, int limit) {
+        if (offset < 0 || limit < 0)
+            throw new IllegalArgumentException("Invalid page of predictions: offset " + offset + ", limit " + limit + ".");
+
+        int begin = Math.min(offset, dataset.getNumberOfExamples());
+        int end = begin + Math.min(Math.min(limit, CHUNK_SIZE), dataset.getNumberOfExamples() - begin);
+        String[] predictions = new String[end - begin];
+
+        for (int i = 0; i < predictions.length; i++) {
+            for (int j = 0; j < example.length; j++) {
+                example[j] = dataset.getExplanatoryValue(begin + i, j);
+            }
+            try {
+                predictions[i] = predictor.predict(example);
+            } catch (UnknownValueException e) {
+                // the prediction stays null
+            }
+        }
+        return predictions;
+    }
+}
@@ -28,6 +28,11 @@ public class FileReceiver {
      * The file format will be:
      * #CLIENT-IP(#CLIENT-PORT).#FILE-EXTENSION
      * </p>
+     * <p>
+     * Each file gets an available name (see {@link Utility#getAvailableName(String)}), so a
+     * later upload of the same client doesn't overwrite a file which a training job still
+     * has to read.
+     * </p>
      * </p>
      *
      * @param s the client's socket of the client which is sending the file
@@ -38,8 +43,8 @@ public class FileReceiver {
      */
 	public static String downloadFile(Socket s, String downDir, String extension) throws IOException {
 	
-	    String fileName = downDir + s.getInetAddress().getHostAddress() + "("
-			+ s.getPort() + ")" + "." + extension; 
+	    String fileName = Utility.getAvailableName(downDir + s.getInetAddress().getHostAddress() + "("
+			+ s.getPort() + ")" + "." + extension);
 
 		DataInputStream in = new DataInputStream(s.getInputStream());
         // first read the file size.
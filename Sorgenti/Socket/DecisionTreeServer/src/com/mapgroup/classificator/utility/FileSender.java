@@ -9,13 +9,13 @@ import java.beans.PropertyChangeListener;
 import javax.swing.JDialog;
 import javax.swing.JLabel;
 import javax.swing.JProgressBar;
-import javax.swing.JTextArea;
 import javax.swing.SwingWorker;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.net.Socket;
 import java.util.concurrent.ExecutionException;
 
@@ -33,8 +33,6 @@ public class FileSender extends JDialog implements  Runnable,PropertyChangeListe
     private final JProgressBar progressMonitor;
     /** A background task that was executed in order to send the file*/
     private Task task;
-    /** The server logArea on which will be printed the operation information */
-    private final JTextArea logArea;
     /** exception that maybe be generated in the file sending*/
     private Exception currException;
 
@@ -45,13 +43,11 @@ public class FileSender extends JDialog implements  Runnable,PropertyChangeListe
      *
      * @param s the client socket that will receive the file
      * @param fileName the filename of the file that will be sent
-     * @param logArea server application log panel
      * @throws Exception if some errors occurred in the file sending process
      */
-    public FileSender(Socket s,String fileName, JTextArea logArea) throws Exception{
+    public FileSender(Socket s,String fileName) throws Exception{
         setTitle("Upload progress");
         setModal(true);
-        this.logArea = logArea;
         this.fileName = fileName;
         this.s = s;
         progressMonitor = new JProgressBar(0, 100);
@@ -84,6 +80,31 @@ public class FileSender extends JDialog implements  Runnable,PropertyChangeListe
 
     }
 
+    /**
+     * Sends a file to the client without showing the progress, for the
+     * server without graphical interface.
+     *
+     * @param s the client socket that will receive the file
+     * @param fileName the filename of the file that will be sent
+     * @throws IOException if the file can't be read or sent
+     */
+    public static void sendFile(Socket s, String fileName) throws IOException {
+        DataInputStream input = new DataInputStream(new FileInputStream(fileName));
+        try {
+            DataOutputStream output = new DataOutputStream(s.getOutputStream());
+            output.writeInt((int) new File(fileName).length()); // send to the client the fileSize
+
+            byte[] buffer = new byte[1024 * 4];
+            int n;
+            while ((n = input.read(buffer)) != -1)
+                output.write(buffer, 0, n);
+            output.flush();
+        } finally {
+            input.close();
+        }
+        ServerLog.log("File " + fileName + " correctly uploaded.\n");
+    }
+
     /**
      * Secondary thread which starts a background operation
      * which grants to send the file.
@@ -106,18 +127,18 @@ public class FileSender extends JDialog implements  Runnable,PropertyChangeListe
 
         } else if (evt.getPropertyName().equals("done-exception")) {
             task.cancel(true);
-            logArea.append("Unexpected errors in the comunication with the client.\n"
+            ServerLog.log("Unexpected errors in the comunication with the client.\n"
                     + ((Exception) evt.getNewValue()).getMessage());
             currException = (Exception)evt.getNewValue();
 
             dispose();
         } else if (evt.getPropertyName().equals("closing")) {
             task.cancel(true);
-            logArea.append("File " + fileName + " not uploaded.\n");
+            ServerLog.log("File " + fileName + " not uploaded.\n");
             dispose();
 
         } else if (evt.getPropertyName().equals("completed")) {
-            logArea.append("File " + fileName + " correctly uploaded.\n");
+            ServerLog.log("File " + fileName + " correctly uploaded.\n");
             dispose();
 
         }
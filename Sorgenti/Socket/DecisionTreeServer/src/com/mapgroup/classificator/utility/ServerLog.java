@@ -0,0 +1,178 @@
+package com.mapgroup.classificator.utility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class collects the messages of the server and delivers them to its
+ * listeners, such as the log files and the log panel, with a thread of its own:
+ * the threads which serve the clients never wait for the listeners.
+ * <p>
+ * The messages wait in a buffer of {@link #BUFFER_PROPERTY} messages (default 4096).
+ * If the listeners can't keep up, the oldest messages are discarded and the number
+ * of the discarded messages is logged instead.
+ * </p>
+ */
+public class ServerLog {
+
+    /** Name of the system property which defines the number of messages waiting for the listeners */
+    static final String BUFFER_PROPERTY = "decisiontree.log.buffer";
+
+    /** Greatest number of messages delivered to the listeners at once */
+    private static final int MAX_BATCH = 512;
+
+    /** the messages not yet delivered */
+    private static final BlockingQueue<Message> buffer = new ArrayBlockingQueue<Message>(
+            Math.max(1, Integer.getInteger(BUFFER_PROPERTY, 4096)));
+    /** the listeners of the messages */
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    /** number of messages discarded since the last delivery */
+    private static final AtomicLong discarded = new AtomicLong();
+    /** lock held while the messages are delivered */
+    private static final Object deliveryLock = new Object();
+
+    static {
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        List<Message> messages = new ArrayList<Message>();
+                        messages.add(buffer.take());
+                        buffer.drainTo(messages, MAX_BATCH - 1);
+                        deliver(messages);
+                    }
+                } catch (InterruptedException e) {
+                    // the server is shutting down
+                }
+            }
+        }, "server-log");
+        thread.setDaemon(true);
+        thread.start();
+
+        // the messages still in the buffer are written before the server exits
+        Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+            public void run() {
+                List<Message> messages = new ArrayList<Message>();
+                buffer.drainTo(messages);
+                deliver(messages);
+            }
+        }, "server-log-flush"));
+    }
+
+    private ServerLog() {
+    }
+
+    /**
+     * Adds a message to the log. The method never blocks: if the buffer is
+     * full, the oldest message is discarded.
+     *
+     * @param text the message
+     */
+    public static void log(String text) {
+        Message message = new Message(System.currentTimeMillis(), String.valueOf(text));
+        while (!buffer.offer(message)) {
+            if (buffer.poll() != null)
+                discarded.incrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a listener which receives the messages logged from now on.
+     *
+     * @param listener the listener
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of the messages.
+     *
+     * @param listener the listener
+     */
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Delivers some messages to all the listeners, preceded by the number
+     * of messages discarded before them.
+     *
+     * @param messages the messages
+     */
+    private static void deliver(List<Message> messages) {
+        synchronized (deliveryLock) {
+            long lost = discarded.getAndSet(0);
+            if (lost > 0)
+                messages.add(0, new Message(System.currentTimeMillis(), lost + " log messages were discarded.\n"));
+            if (messages.isEmpty())
+                return;
+
+            for (Listener listener : listeners) {
+                try {
+                    listener.messagesLogged(messages);
+                } catch (RuntimeException e) {
+                    System.err.println("Error: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * A listener of the messages of the server. It is always called by the
+     * same thread, never by the threads which serve the clients.
+     */
+    public interface Listener {
+
+        /**
+         * Receives some messages, in the order in which they were logged.
+         *
+         * @param messages the messages
+         */
+        void messagesLogged(List<Message> messages);
+    }
+
+    /**
+     * A message of the log with the time in which it was logged.
+     */
+    public static class Message {
+
+        /** the time of the message, in milliseconds */
+        private final long time;
+        /** the text of the message */
+        private final String text;
+
+        /**
+         * Creates a message.
+         *
+         * @param time the time of the message, in milliseconds
+         * @param text the text of the message
+         */
+        Message(long time, String text) {
+            this.time = time;
+            this.text = text;
+        }
+
+        /**
+         * Returns the time in which the message was logged.
+         *
+         * @return the time, in milliseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * Returns the text of the message.
+         *
+         * @return the text
+         */
+        public String getText() {
+            return text;
+        }
+    }
+}
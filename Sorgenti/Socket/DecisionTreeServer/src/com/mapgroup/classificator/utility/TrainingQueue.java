@@ -0,0 +1,613 @@
+package com.mapgroup.classificator.utility;
+
+import com.mapgroup.classificator.data.Data;
+import com.mapgroup.classificator.database.DataException;
+import com.mapgroup.classificator.tree.DecisionTree;
+import com.mapgroup.classificator.tree.InductionMode;
+import com.mapgroup.classificator.tree.TrainingProgress;
+import com.mapgroup.to.TrainingJobTO;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class learns the decision trees with threads of its own, so that a long
+ * training doesn't keep busy the thread which serves the client: the client receives
+ * the id of the job as soon as it is submitted and asks for its status until it is finished.
+ * <p>
+ * At most {@link #THREADS_PROPERTY} trainings (default 2) run at the same time and at most
+ * {@link #QUEUE_PROPERTY} jobs (default 16) wait for a free worker: the jobs submitted when
+ * the queue is full are rejected. The waiting jobs start in order of priority and then in
+ * order of submission, so the jobs of the clients blocked in their request
+ * ({@link #WAITING_PRIORITY}) start before the jobs submitted in background.
+ * </p>
+ * <p>
+ * The result of a finished job is kept until its client reads it, at most for
+ * {@link #RETENTION_PROPERTY} minutes (default 10).
+ * </p>
+ * <p>
+ * The jobs which ask for the same dataset while its tree is being learnt share a single
+ * training, so the dataset is read and its tree learnt only once: a database table is
+ * identified by its name, an uploaded file by the digest of its content. The tree and
+ * its dataset aren't modified after the training, so all the clients use the same objects.
+ * A training ends before the next request for the same dataset starts a new one, which
+ * reads the dataset again and sees its changes.
+ * </p>
+ * <p>
+ * A client blocked in its request waits for the tree at most {@link #TIMEOUT_PROPERTY}
+ * minutes (default 30). A training submitted longer ago fails, when its status is read
+ * or the jobs are purged, and isn't shared anymore: the next request for its dataset
+ * starts a new training.
+ * </p>
+ */
+public class TrainingQueue {
+
+    /** Name of the system property which defines the number of trainings running at the same time */
+    static final String THREADS_PROPERTY = "decisiontree.training.threads";
+    /** Name of the system property which defines the number of jobs waiting for a worker */
+    static final String QUEUE_PROPERTY = "decisiontree.training.queue";
+    /** Name of the system property which defines the minutes for which a finished job is kept */
+    static final String RETENTION_PROPERTY = "decisiontree.training.retention";
+    /** Name of the system property which defines the minutes after which a training which hasn't ended fails */
+    static final String TIMEOUT_PROPERTY = "decisiontree.training.timeout";
+
+    /** Priority of the jobs whose client waits for the tree in the same request */
+    public static final int WAITING_PRIORITY = 1;
+    /** Priority of the jobs submitted in background */
+    public static final int BACKGROUND_PRIORITY = 0;
+    /** Greatest time, in milliseconds, for which a status request waits for the end of a job */
+    public static final long MAX_STATUS_WAIT = 2000;
+
+    /** the workers which learn the trees */
+    private final ThreadPoolExecutor executor;
+    /** the jobs not yet read by their clients, by id */
+    private final ConcurrentMap<Long, Job> jobs = new ConcurrentHashMap<Long, Job>();
+    /** the trainings waiting or running, by identity of their dataset */
+    private final ConcurrentMap<String, Training> trainings = new ConcurrentHashMap<String, Training>();
+    /** the last id given to a job */
+    private final AtomicLong lastId = new AtomicLong();
+    /** number of trainings running at the same time */
+    private final int threads;
+    /** greatest number of jobs waiting for a worker */
+    private final int maxQueued;
+    /** milliseconds for which a finished job is kept */
+    private final long retention;
+    /** milliseconds after which a training which hasn't ended fails */
+    private final long timeout;
+
+    /**
+     * Creates the workers defined by the system properties.
+     */
+    public TrainingQueue() {
+        threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, 2));
+        maxQueued = Math.max(1, Integer.getInteger(QUEUE_PROPERTY, 16));
+        retention = Math.max(1, Long.getLong(RETENTION_PROPERTY, 10)) * 60 * 1000;
+        timeout = Math.max(1, Long.getLong(TIMEOUT_PROPERTY, 30)) * 60 * 1000;
+
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "training-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Returns the description of the limits of the queue, shown in the log.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString() {
+        return threads + " trainings at a time, " + maxQueued + " waiting";
+    }
+
+    /**
+     * Submits the training of the decision tree of a database table.
+     *
+     * @param owner    the client which submits the job; only this client can read it
+     * @param table    the name of the table
+     * @param priority {@link #WAITING_PRIORITY} or {@link #BACKGROUND_PRIORITY}
+     * @return the job
+     * @throws RejectedExecutionException if too many jobs are waiting
+     */
+    public Job submitTable(Object owner, String table, int priority) {
+        return submit(owner, table, "table:" + table, "database table " + table, priority);
+    }
+
+    /**
+     * Submits the training of the decision tree of a file uploaded by a client.
+     *
+     * @param owner    the client which submits the job; only this client can read it
+     * @param fileName the complete pathname of the file
+     * @param priority {@link #WAITING_PRIORITY} or {@link #BACKGROUND_PRIORITY}
+     * @return the job
+     * @throws IOException                if the file can't be read
+     * @throws RejectedExecutionException if too many jobs are waiting
+     */
+    public Job submitFile(Object owner, String fileName, int priority) throws IOException {
+        // the extension chooses the reader, so the same bytes with another extension are another dataset
+        String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+        return submit(owner, fileName, "file:" + extension + ":" + digest(fileName),
+                "file " + fileName, priority);
+    }
+
+    /**
+     * Submits the training of a decision tree. If the same dataset is already waiting or
+     * being learnt, the job shares that training, which starts with the highest priority
+     * of its jobs.
+     *
+     * @param owner       the client which submits the job
+     * @param dataset     the name of the dataset, a file or a database table, as accepted by {@link Data#Data(String)}
+     * @param source      the identity of the dataset
+     * @param description the description of the dataset, shown in the log and in the status of the completed job
+     * @param priority    the priority of the job
+     * @return the job
+     * @throws RejectedExecutionException if a new training is needed and too many jobs are waiting
+     */
+    private synchronized Job submit(Object owner, String dataset, String source, String description, int priority) {
+        purgeFinishedJobs();
+        long id = lastId.incrementAndGet();
+        Training training = trainings.get(source);
+        if (training != null && System.currentTimeMillis() - training.submitTime > timeout) {
+            // a training which lasts too long may be stuck: its dataset is learnt again
+            trainings.remove(source, training);
+            ServerLog.log("Training job " + training.id + " is taking too long, it won't be shared.\n");
+            training = null;
+        }
+        if (training != null) {
+            training.subscribers++;
+            // a queued training is moved before the jobs with lower priority
+            if (priority > training.priority && executor.remove(training)) {
+                training.priority = priority;
+                executor.execute(training);
+            }
+            ServerLog.log("Training job " + id + " shares the training of job " + training.id
+                    + ": " + description + "\n");
+        } else {
+            if (executor.getQueue().size() >= maxQueued)
+                throw new RejectedExecutionException("Too many trainings are waiting, please retry later.");
+
+            training = new Training(id, source, dataset, priority);
+            trainings.put(source, training);
+            executor.execute(training);
+            ServerLog.log("Training job " + id + " submitted: " + description + "\n");
+        }
+
+        Job job = new Job(id, owner, training, description);
+        jobs.put(id, job);
+        return job;
+    }
+
+    /**
+     * Returns a job submitted by a client.
+     *
+     * @param owner the client
+     * @param id    the id of the job
+     * @return the job, <code>null</code> if the client has no job with that id or if it has already been read
+     */
+    public Job getJob(Object owner, long id) {
+        purgeFinishedJobs();
+        Job job = jobs.get(id);
+        return job != null && job.owner.equals(owner) ? job : null;
+    }
+
+    /**
+     * Discards the jobs of a client which is disconnected. The waiting trainings which
+     * aren't shared with other jobs won't start; the running ones complete, but their
+     * results are discarded.
+     *
+     * @param owner the client
+     */
+    public synchronized void cancel(Object owner) {
+        for (Job job : jobs.values()) {
+            if (job.owner.equals(owner) && jobs.remove(job.getId(), job)) {
+                Training training = job.training;
+                if (--training.subscribers == 0 && executor.remove(training))
+                    training.finish(null, null, "The training has been cancelled.");
+            }
+        }
+    }
+
+    /**
+     * Discards the finished jobs kept for longer than {@link #RETENTION_PROPERTY}, and fails
+     * the trainings which haven't ended in {@link #TIMEOUT_PROPERTY} minutes.
+     */
+    private void purgeFinishedJobs() {
+        long now = System.currentTimeMillis();
+        for (Job job : jobs.values()) {
+            job.training.checkTimeout(now);
+            if (job.isExpired(now))
+                jobs.remove(job.getId(), job);
+        }
+    }
+
+    /**
+     * Returns the number of waiting trainings which will start before a training.
+     *
+     * @param training the training
+     * @return the number of trainings
+     */
+    private int getQueuePosition(Training training) {
+        int position = 0;
+        for (Runnable queued : executor.getQueue()) {
+            if (((Training) queued).compareTo(training) < 0)
+                position++;
+        }
+        return position;
+    }
+
+    /**
+     * Computes the digest of the content of a file.
+     *
+     * @param fileName the complete pathname of the file
+     * @return the digest, in hexadecimal
+     * @throws IOException if the file can't be read
+     */
+    private static String digest(String fileName) throws IOException {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+
+        InputStream in = new FileInputStream(fileName);
+        try {
+            byte[] buffer = new byte[1024 * 8];
+            int n;
+            while ((n = in.read(buffer)) != -1)
+                md.update(buffer, 0, n);
+        } finally {
+            in.close();
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : md.digest())
+            hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /**
+     * A request of a client for the tree of a dataset. It is answered by a training
+     * which may be shared with the jobs of other clients.
+     */
+    public class Job {
+
+        /** the id of the job */
+        private final long id;
+        /** the client which submitted the job */
+        private final Object owner;
+        /** the training shared with the other jobs of the same dataset */
+        private final Training training;
+        /** the description of the dataset */
+        private final String description;
+
+        /**
+         * Creates a job.
+         *
+         * @param id          the id of the job
+         * @param owner       the client which submits the job
+         * @param training    the training of the dataset
+         * @param description the description of the dataset
+         */
+        private Job(long id, Object owner, Training training, String description) {
+            this.id = id;
+            this.owner = owner;
+            this.training = training;
+            this.description = description;
+        }
+
+        /**
+         * Returns the id of the job.
+         *
+         * @return the id
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Checks if the job has been kept for longer than {@link #RETENTION_PROPERTY}.
+         *
+         * @param now the current time, in milliseconds
+         * @return <code>true</code> if the job can be discarded
+         */
+        private boolean isExpired(long now) {
+            return training.isExpired(now);
+        }
+
+        /**
+         * Returns the status of the job, waiting for its end at most for the specified time.
+         * A completed job is discarded once its status has been read: the caller must take its
+         * tree with {@link #getTree()} and {@link #getTrainingSet()}. A training which hasn't
+         * ended in {@link #TIMEOUT_PROPERTY} minutes fails, so the client stops asking.
+         *
+         * @param wait milliseconds to wait for the end of the job, at most {@link #MAX_STATUS_WAIT}
+         * @return the status of the job
+         */
+        public TrainingJobTO getStatus(long wait) {
+            synchronized (training) {
+                long deadline = System.currentTimeMillis() + Math.min(Math.max(0, wait), MAX_STATUS_WAIT);
+                try {
+                    long remaining;
+                    while (!training.isFinished() && (remaining = deadline - System.currentTimeMillis()) > 0)
+                        training.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                training.checkTimeout(System.currentTimeMillis());
+
+                int position = 0;
+                String message;
+                switch (training.state) {
+                    case QUEUED:
+                        position = getQueuePosition(training);
+                        message = position == 0 ? "Waiting for a free worker"
+                                : "Waiting, " + position + " trainings will start before it";
+                        break;
+                    case RUNNING:
+                        message = training.loaded ? "Learning the tree" : "Reading the dataset";
+                        break;
+                    case COMPLETED:
+                        message = "Learnt the tree of the " + description;
+                        jobs.remove(id, this);
+                        break;
+                    default:
+                        message = training.error;
+                        jobs.remove(id, this);
+                }
+                int percentage = training.state == TrainingJobTO.State.COMPLETED
+                        ? 100 : training.progress.getPercentage();
+                return new TrainingJobTO(id, training.state, position, percentage, message, training.treeText);
+            }
+        }
+
+        /**
+         * Waits for the end of the job, at most for {@link #TIMEOUT_PROPERTY} minutes.
+         * The job is then discarded. A thread of a {@link ForkJoinPool} is replaced by
+         * another thread of its pool while it waits.
+         *
+         * @return the learnt tree
+         * @throws DataException if the job failed or didn't end in time, or if the thread has been interrupted
+         */
+        public DecisionTree awaitTree() throws DataException {
+            final long deadline = System.currentTimeMillis() + timeout;
+            try {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    public boolean block() throws InterruptedException {
+                        synchronized (training) {
+                            long remaining;
+                            while (!training.isFinished() && (remaining = deadline - System.currentTimeMillis()) > 0)
+                                training.wait(remaining);
+                        }
+                        return true;
+                    }
+
+                    public boolean isReleasable() {
+                        synchronized (training) {
+                            return training.isFinished() || System.currentTimeMillis() >= deadline;
+                        }
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataException("The training has been interrupted.");
+            }
+
+            synchronized (training) {
+                jobs.remove(id, this);
+                if (!training.isFinished())
+                    throw new DataException("The tree hasn't been learnt in " + timeout / 60000
+                            + " minutes, please retry later.");
+                if (training.state == TrainingJobTO.State.FAILED)
+                    throw new DataException(training.error);
+                return training.tree;
+            }
+        }
+
+        /**
+         * Returns the learnt tree, shared with the other jobs of the same training.
+         *
+         * @return the tree, <code>null</code> if the job isn't completed
+         */
+        public DecisionTree getTree() {
+            synchronized (training) {
+                return training.tree;
+            }
+        }
+
+        /**
+         * Returns the dataset of the learnt tree, shared with the other jobs of the same training.
+         *
+         * @return the dataset, <code>null</code> if the job isn't completed
+         */
+        public Data getTrainingSet() {
+            synchronized (training) {
+                return training.trainingSet;
+            }
+        }
+    }
+
+    /**
+     * The training of a dataset, shared by all the jobs which ask for it while
+     * it is waiting or running. It is executed by a worker.
+     */
+    private class Training implements Runnable, Comparable<Training> {
+
+        /** the id of the job which started the training, which also orders the trainings with the same priority */
+        private final long id;
+        /** the identity of the dataset */
+        private final String source;
+        /** the name of the dataset */
+        private final String dataset;
+        /** the progress of the induction */
+        private final TrainingProgress progress = new TrainingProgress();
+        /** the time at which the training was submitted, in milliseconds */
+        private final long submitTime = System.currentTimeMillis();
+
+        /** the highest priority of the jobs, changed only while the training isn't in the queue */
+        private int priority;
+        /** the number of jobs which weren't cancelled, guarded by the queue */
+        private int subscribers = 1;
+
+        /** the state of the training */
+        private TrainingJobTO.State state = TrainingJobTO.State.QUEUED;
+        /** <code>true</code> when the dataset has been read */
+        private boolean loaded;
+        /** the learnt tree, <code>null</code> until the training is completed */
+        private DecisionTree tree;
+        /** the dataset of the tree */
+        private Data trainingSet;
+        /** the string representation of the learnt tree */
+        private String treeText;
+        /** the error, if the training failed */
+        private String error;
+        /** the time at which the training finished, in milliseconds */
+        private long finishTime;
+
+        /**
+         * Creates a training waiting for a worker.
+         *
+         * @param id       the id of the job which starts the training
+         * @param source   the identity of the dataset
+         * @param dataset  the name of the dataset
+         * @param priority the priority of the job
+         */
+        private Training(long id, String source, String dataset, int priority) {
+            this.id = id;
+            this.source = source;
+            this.dataset = dataset;
+            this.priority = priority;
+        }
+
+        /**
+         * Reads the dataset and learns its tree.
+         */
+        public void run() {
+            synchronized (this) {
+                if (state != TrainingJobTO.State.QUEUED)
+                    return;
+                state = TrainingJobTO.State.RUNNING;
+            }
+
+            try {
+                Data data = new Data(dataset);
+                synchronized (this) {
+                    loaded = true;
+                }
+                DecisionTree learnt = new DecisionTree(data, InductionMode.getDefault(), progress);
+                if (finish(learnt, data, null))
+                    ServerLog.log("Training job " + id + " completed.\n");
+            } catch (DataException e) {
+                fail(e.getMessage());
+            } catch (RuntimeException e) {
+                fail("Unable to learn the tree: " + e.getMessage());
+            } catch (OutOfMemoryError e) {
+                fail("The dataset is too large to learn its tree.");
+            } finally {
+                // any other error, e.g. a stack overflow in a deep tree, fails the training
+                // instead of leaving its jobs waiting for ever
+                synchronized (this) {
+                    if (!isFinished())
+                        fail("Unable to learn the tree: unexpected error.");
+                }
+            }
+        }
+
+        /**
+         * Records that the training failed.
+         *
+         * @param message the error
+         */
+        private void fail(String message) {
+            if (finish(null, null, message))
+                ServerLog.log("Training job " + id + " failed: " + message + "\n");
+        }
+
+        /**
+         * Fails the training if it hasn't ended in {@link #TIMEOUT_PROPERTY} minutes, e.g. because
+         * its worker is stuck. If the worker ends later, its result is discarded.
+         *
+         * @param now the current time, in milliseconds
+         */
+        private synchronized void checkTimeout(long now) {
+            if (!isFinished() && now - submitTime > timeout)
+                fail("The tree hasn't been learnt in " + timeout / 60000 + " minutes, please retry later.");
+        }
+
+        /**
+         * Records the end of the training and wakes up the threads waiting for it.
+         * The next jobs of the same dataset will start a new training.
+         *
+         * @param tree        the learnt tree, <code>null</code> if the training failed
+         * @param trainingSet the dataset of the tree
+         * @param error       the error, if the training failed
+         * @return <code>false</code> if the training had already ended, e.g. for its timeout
+         */
+        private synchronized boolean finish(DecisionTree tree, Data trainingSet, String error) {
+            if (isFinished())
+                return false;
+            trainings.remove(source, this);
+            if (tree != null) {
+                // the text is built first: if it fails, the training is still unfinished
+                treeText = tree.toString();
+                this.tree = tree;
+                this.trainingSet = trainingSet;
+                state = TrainingJobTO.State.COMPLETED;
+            } else {
+                this.error = error;
+                state = TrainingJobTO.State.FAILED;
+            }
+            finishTime = System.currentTimeMillis();
+            notifyAll();
+            return true;
+        }
+
+        /**
+         * Checks if the training is finished.
+         *
+         * @return <code>true</code> if the training is completed or failed
+         */
+        private boolean isFinished() {
+            return state == TrainingJobTO.State.COMPLETED || state == TrainingJobTO.State.FAILED;
+        }
+
+        /**
+         * Checks if the training finished longer than {@link #RETENTION_PROPERTY} ago.
+         *
+         * @param now the current time, in milliseconds
+         * @return <code>true</code> if the jobs of the training can be discarded
+         */
+        private synchronized boolean isExpired(long now) {
+            return isFinished() && now - finishTime > retention;
+        }
+
+        /**
+         * Orders the trainings by decreasing priority and then by submission.
+         */
+        public int compareTo(Training other) {
+            if (priority != other.priority)
+                return priority > other.priority ? -1 : 1;
+            return id < other.id ? -1 : (id == other.id ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.mapgroup.to;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Constructor;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class defines the binary protocol used between the client and the server
+ * in place of the Java serialization.
+ * <p>
+ * The client opens the connection sending {@link #MAGIC} and the greatest version of
+ * the protocol it knows; the server answers with the same magic and the version that
+ * will be used. A server which doesn't know the protocol closes the connection, so the
+ * client connects again with the object streams; a server which receives the header
+ * of an object stream uses the object streams, so the old clients keep working.
+ * A server which can't serve another client answers with the magic and version
+ * <code>0</code> ({@link #reject(OutputStream)}), so the client reports the error
+ * instead of taking the server for an old one.
+ * </p>
+ * <p>
+ * Versions:
+ * <ul>
+ * <li>1: the server answers the requests in the order in which they were sent;</li>
+ * <li>2: the client can send other requests before the responses of the previous ones,
+ * and the server can answer the requests which don't depend on the others as soon as
+ * they are completed, so the client must match the responses by their request id
+ * ({@link BinaryObjectInputStream#readResponse(int)});</li>
+ * <li>3: the client can submit the trainings of the trees in background and ask for their status.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Every message is a frame made of:
+ * <ul>
+ * <li>the opcode, which is the type of the value (1 byte);</li>
+ * <li>the id of the request to which the message belongs (4 bytes);</li>
+ * <li>the length of the payload (4 bytes);</li>
+ * <li>the payload, which is the value encoded as described for its type.</li>
+ * </ul>
+ * The values inside arrays and lists are encoded as their type followed by their payload.
+ * The values of the other types are sent with the Java serialization, each one in a stream
+ * of its own, so that the connection doesn't keep references to the values already sent.
+ * </p>
+ *
+ * @see BinaryObjectOutputStream
+ * @see BinaryObjectInputStream
+ */
+public final class WireProtocol {
+
+    /**
+     * Greatest version of the protocol known by this side
+     */
+    public static final int VERSION = 3;
+
+    /**
+     * First version in which the responses can be sent out of order
+     */
+    public static final int PIPELINING_VERSION = 2;
+
+    /**
+     * First version in which the server accepts the training jobs
+     */
+    public static final int TRAINING_JOBS_VERSION = 3;
+
+    /**
+     * Bytes which open a connection using this protocol
+     */
+    static final byte[] MAGIC = {'D', 'T', 'W', 'P'};
+
+    /** Length of the header of a frame: the opcode, the request id and the length of the payload */
+    public static final int FRAME_HEADER_LENGTH = 9;
+
+    /** Greatest length of the payload of a frame */
+    static final int MAX_PAYLOAD_LENGTH = 1 << 28;
+    /** Milliseconds the client waits for the answer of the server to its greeting */
+    public static final int HANDSHAKE_TIMEOUT = 10000;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /* Opcodes, i.e. the types of the values */
+    static final byte NULL = 0;
+    static final byte COMMAND = 1;
+    static final byte STRING = 2;
+    static final byte INTEGER = 3;
+    static final byte LONG = 4;
+    static final byte FLOAT = 5;
+    static final byte DOUBLE = 6;
+    static final byte BOOLEAN = 7;
+    static final byte STRING_ARRAY = 8;
+    static final byte OBJECT_ARRAY = 9;
+    static final byte LIST = 10;
+    static final byte EXCEPTION = 11;
+    static final byte SERIALIZED = 12;
+
+    private WireProtocol() {
+    }
+
+    /**
+     * Asks the server to use this protocol, called by the client as soon as it is connected.
+     *
+     * @param socket the socket connected to the server
+     * @return the version of the protocol accepted by the server; <code>0</code> if it doesn't
+     * know this protocol, so the socket is no more usable and must be closed
+     * @throws IOException if the greeting can't be sent, if the server doesn't answer in time
+     * or if it is too busy to serve the client
+     */
+    public static int request(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(MAGIC);
+        out.write(VERSION);
+        out.flush();
+
+        int timeout = socket.getSoTimeout();
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT);
+        try {
+            byte[] answer = new byte[MAGIC.length + 1];
+            new DataInputStream(socket.getInputStream()).readFully(answer);
+            if (!Arrays.equals(Arrays.copyOf(answer, MAGIC.length), MAGIC))
+                return 0;
+            if (answer[MAGIC.length] <= 0)
+                throw new IOException("The server is too busy, please retry later.");
+            return Math.min(answer[MAGIC.length], VERSION);
+        } catch (SocketTimeoutException e) {
+            // a busy server may be slow, it isn't taken for an old one
+            throw new SocketTimeoutException("The server didn't answer in "
+                    + HANDSHAKE_TIMEOUT / 1000 + " seconds, please retry later.");
+        } catch (EOFException e) {
+            // a server which doesn't know the protocol closes the connection
+            return 0;
+        } catch (SocketException e) {
+            // the connection may also be reset, if the server closes it before reading the version
+            return 0;
+        } finally {
+            if (!socket.isClosed())
+                socket.setSoTimeout(timeout);
+        }
+    }
+
+    /**
+     * Reads the first bytes sent by a client and, if they ask for this protocol,
+     * answers with the version that will be used.
+     *
+     * @param in  the stream of the client, which must be able to unread {@link #MAGIC}
+     * @param out the stream to the client
+     * @return the version of this protocol that must be used; <code>0</code> if the
+     * client uses the object streams, whose bytes are left in <code>in</code>
+     * @throws IOException if the client closed the connection or sent an unknown greeting
+     */
+    public static int accept(PushbackInputStream in, OutputStream out) throws IOException {
+        byte[] greeting = new byte[MAGIC.length];
+        new DataInputStream(in).readFully(greeting);
+
+        if (!Arrays.equals(greeting, MAGIC)) {
+            in.unread(greeting);
+            return 0;
+        }
+
+        int version = in.read();
+        if (version < 1)
+            throw new StreamCorruptedException("Invalid protocol version: " + version);
+        version = Math.min(version, VERSION);
+        out.write(MAGIC);
+        out.write(version);
+        out.flush();
+        return version;
+    }
+
+    /**
+     * Tells a client that the server can't serve it, before closing its connection.
+     * A client of this protocol reports the error; an old client fails to read the
+     * header of the object stream.
+     *
+     * @param out the stream to the client
+     * @throws IOException if the answer can't be sent
+     */
+    public static void reject(OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(0);
+        out.flush();
+    }
+
+    /**
+     * Returns the number of bytes which {@link #accept(PushbackInputStream, OutputStream)}
+     * may unread.
+     *
+     * @return the size of the pushback buffer of the client stream
+     */
+    public static int getGreetingLength() {
+        return MAGIC.length;
+    }
+
+    /**
+     * Checks if the first bytes sent by a client ask for this protocol.
+     *
+     * @param bytes the first bytes sent by the client, at least {@link #getGreetingLength()}
+     * @return <code>true</code> if the bytes begin with {@link #MAGIC}
+     */
+    public static boolean isGreeting(byte[] bytes) {
+        return bytes.length >= MAGIC.length && Arrays.equals(Arrays.copyOf(bytes, MAGIC.length), MAGIC);
+    }
+
+    /**
+     * Returns the length of a whole frame, including its header, so that the frame
+     * can be collected before it is read.
+     *
+     * @param header the first {@link #FRAME_HEADER_LENGTH} bytes of the frame
+     * @return the length of the frame; only the length of the header if the length of the
+     * payload is invalid, so that the reader of the frame finds the error
+     */
+    public static int getFrameLength(byte[] header) {
+        int length = ((header[5] & 0xff) << 24) | ((header[6] & 0xff) << 16)
+                | ((header[7] & 0xff) << 8) | (header[8] & 0xff);
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH)
+            return FRAME_HEADER_LENGTH;
+        return FRAME_HEADER_LENGTH + length;
+    }
+
+    /**
+     * Writes a value preceded by its type.
+     *
+     * @param out   the destination of the value
+     * @param value the value
+     * @throws IOException if the value can't be written or serialized
+     */
+    static void writeValue(DataOutputStream out, Object value) throws IOException {
+        byte type = typeOf(value);
+        out.writeByte(type);
+        writePayload(out, type, value);
+    }
+
+    /**
+     * Returns the type used to send a value.
+     *
+     * @param value the value
+     * @return the opcode of the value
+     */
+    static byte typeOf(Object value) {
+        if (value == null)
+            return NULL;
+        if (value instanceof ServerCommand)
+            return COMMAND;
+        if (value instanceof String)
+            return STRING;
+        if (value instanceof Integer)
+            return INTEGER;
+        if (value instanceof Long)
+            return LONG;
+        if (value instanceof Float)
+            return FLOAT;
+        if (value instanceof Double)
+            return DOUBLE;
+        if (value instanceof Boolean)
+            return BOOLEAN;
+        if (value instanceof String[])
+            return STRING_ARRAY;
+        if (value.getClass() == Object[].class)
+            return OBJECT_ARRAY;
+        if (value.getClass() == ArrayList.class)
+            return LIST;
+        if (value instanceof Exception)
+            return EXCEPTION;
+        return SERIALIZED;
+    }
+
+    /**
+     * Writes the payload of a value.
+     *
+     * @param out   the destination of the payload
+     * @param type  the type of the value, as returned by {@link #typeOf(Object)}
+     * @param value the value
+     * @throws IOException if the value can't be written or serialized
+     */
+    static void writePayload(DataOutputStream out, byte type, Object value) throws IOException {
+        switch (type) {
+            case NULL:
+                break;
+            case COMMAND:
+                out.writeInt(((ServerCommand) value).getId());
+                break;
+            case STRING:
+                writeString(out, (String) value);
+                break;
+            case INTEGER:
+                out.writeInt((Integer) value);
+                break;
+            case LONG:
+                out.writeLong((Long) value);
+                break;
+            case FLOAT:
+                out.writeFloat((Float) value);
+                break;
+            case DOUBLE:
+                out.writeDouble((Double) value);
+                break;
+            case BOOLEAN:
+                out.writeBoolean((Boolean) value);
+                break;
+            case STRING_ARRAY:
+                String[] strings = (String[]) value;
+                out.writeInt(strings.length);
+                for (String s : strings)
+                    writeString(out, s);
+                break;
+            case OBJECT_ARRAY:
+                Object[] values = (Object[]) value;
+                out.writeInt(values.length);
+                for (Object v : values)
+                    writeValue(out, v);
+                break;
+            case LIST:
+                List<?> list = (List<?>) value;
+                out.writeInt(list.size());
+                for (Object v : list)
+                    writeValue(out, v);
+                break;
+            case EXCEPTION:
+                writeString(out, value.getClass().getName());
+                writeString(out, ((Exception) value).getMessage());
+                break;
+            default:
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                ObjectOutputStream objectOut = new ObjectOutputStream(bytes);
+                objectOut.writeObject(value);
+                objectOut.close();
+                out.writeInt(bytes.size());
+                bytes.writeTo(out);
+        }
+    }
+
+    /**
+     * Reads a value preceded by its type.
+     *
+     * @param in the source of the value
+     * @return the value
+     * @throws IOException            if the value can't be read
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    static Object readValue(DataInputStream in) throws IOException, ClassNotFoundException {
+        return readPayload(in.readByte(), in);
+    }
+
+    /**
+     * Reads the payload of a value whose type is known.
+     *
+     * @param type the type of the value
+     * @param in   the source of the payload
+     * @return the value
+     * @throws IOException            if the value can't be read or the type is unknown
+     * @throws ClassNotFoundException if the class of a serialized value is unknown
+     */
+    static Object readPayload(byte type, DataInputStream in) throws IOException, ClassNotFoundException {
+        switch (type) {
+            case NULL:
+                return null;
+            case COMMAND:
+                int id = in.readInt();
+                ServerCommand command = ServerCommand.valueOf(id);
+                if (command == null)
+                    throw new StreamCorruptedException("Unknown command: " + id);
+                return command;
+            case STRING:
+                return readString(in);
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case BOOLEAN:
+                return in.readBoolean();
+            case STRING_ARRAY:
+                String[] strings = new String[readLength(in)];
+                for (int i = 0; i < strings.length; i++)
+                    strings[i] = readString(in);
+                return strings;
+            case OBJECT_ARRAY:
+                Object[] values = new Object[readLength(in)];
+                for (int i = 0; i < values.length; i++)
+                    values[i] = readValue(in);
+                return values;
+            case LIST:
+                int size = readLength(in);
+                ArrayList<Object> list = new ArrayList<Object>(size);
+                for (int i = 0; i < size; i++)
+                    list.add(readValue(in));
+                return list;
+            case EXCEPTION:
+                return newException(readString(in), readString(in));
+            case SERIALIZED:
+                byte[] bytes = new byte[readLength(in)];
+                in.readFully(bytes);
+                ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes));
+                try {
+                    return objectIn.readObject();
+                } finally {
+                    objectIn.close();
+                }
+            default:
+                throw new StreamCorruptedException("Unknown type: " + type);
+        }
+    }
+
+    /**
+     * Reads a length, checking that it is valid.
+     *
+     * @param in the source of the length
+     * @return the length
+     * @throws IOException if the length can't be read or it's invalid
+     */
+    static int readLength(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH)
+            throw new StreamCorruptedException("Invalid length: " + length);
+        return length;
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(UTF8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        if (length < 0 || length > MAX_PAYLOAD_LENGTH)
+            throw new StreamCorruptedException("Invalid length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Creates the exception sent by the other side: an exception of the same class if it's
+     * known on this side, a generic exception with the same message otherwise.
+     *
+     * @param className name of the class of the exception
+     * @param message   message of the exception
+     * @return the exception
+     */
+    private static Exception newException(String className, String message) {
+        try {
+            Class<? extends Exception> type = Class.forName(className).asSubclass(Exception.class);
+            try {
+                Constructor<? extends Exception> constructor = type.getConstructor(String.class);
+                return constructor.newInstance(message);
+            } catch (NoSuchMethodException e) {
+                if (message == null)
+                    return type.getConstructor().newInstance();
+            }
+        } catch (Exception e) {
+            // the class is unknown or can't be instantiated
+        }
+        return new Exception(message);
+    }
+}